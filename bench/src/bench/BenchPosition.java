@@ -0,0 +1,65 @@
+package bench;
+
+import core.BitBoard;
+import core.Board;
+import core.Constants;
+import java.awt.Color;
+
+/**
+ * A benchmark position: the board with its side to move, also as raw masks
+ */
+public class BenchPosition
+{
+    /**
+     * @param board the board holding the position
+     * @param color the color to move
+     */
+    public BenchPosition(Board board, Color color) {
+        this.board = board;
+        this.color = color;
+
+        BitBoard bitBoard = board.getBitBoard();
+        player = color == Constants.DARK ? bitBoard.getDark() : bitBoard.getLight();
+        opponent = color == Constants.DARK ? bitBoard.getLight() : bitBoard.getDark();
+    }
+
+    /**
+     * @return the board
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * @return the color to move
+     */
+    public Color getColor() {
+        return color;
+    }
+
+    /**
+     * @return the side to move
+     */
+    public int getSide() {
+        return color == Constants.DARK ? Constants.DARK_SIDE : Constants.LIGHT_SIDE;
+    }
+
+    /**
+     * @return the discs of the player to move
+     */
+    public long getPlayer() {
+        return player;
+    }
+
+    /**
+     * @return the discs of the opponent
+     */
+    public long getOpponent() {
+        return opponent;
+    }
+
+    private final Board board;
+    private final Color color;
+    private final long player;
+    private final long opponent;
+}
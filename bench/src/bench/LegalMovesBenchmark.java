@@ -0,0 +1,70 @@
+package bench;
+
+import core.BitBoard;
+import core.Board;
+import core.MoveList;
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Legal move generation: the raw bitboard call, the Board facade, the
+ * reusable move list and the hasMove check used by gameOver
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LegalMovesBenchmark
+{
+    @Param({ "initial", "tiger", "tiger-long", "cow", "buffalo", "parallel", "midgame-20", "midgame-30", "midgame-40" })
+    public String position;
+
+    @Setup
+    public void setUp() {
+        BenchPosition benchPosition = Positions.load(position);
+        board = benchPosition.getBoard();
+        color = benchPosition.getColor();
+        player = benchPosition.getPlayer();
+        opponent = benchPosition.getOpponent();
+        moves = new MoveList();
+    }
+
+    @Benchmark
+    public long bitBoardLegalMoves() {
+        return BitBoard.legalMoves(player, opponent);
+    }
+
+    @Benchmark
+    public long boardLegalMoves() {
+        return board.getLegalMoves(color);
+    }
+
+    @Benchmark
+    public int moveList() {
+        return board.getLegalMoves(color, moves);
+    }
+
+    @Benchmark
+    public boolean hasMove() {
+        return board.hasMove(color);
+    }
+
+    private Board board;
+    private Color color;
+    private long player;
+    private long opponent;
+    private MoveList moves;
+}
@@ -0,0 +1,89 @@
+package bench;
+
+import core.BitBoard;
+import core.Board;
+import core.MoveList;
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Making and taking back every legal move of a position, through the Board
+ * facade (which also keeps the disc counts) and on raw masks as the search does
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MakeUndoBenchmark
+{
+    @Param({ "initial", "tiger", "tiger-long", "cow", "buffalo", "parallel", "midgame-20", "midgame-30", "midgame-40" })
+    public String position;
+
+    @Setup
+    public void setUp() {
+        BenchPosition benchPosition = Positions.load(position);
+        board = benchPosition.getBoard();
+        color = benchPosition.getColor();
+        player = benchPosition.getPlayer();
+        opponent = benchPosition.getOpponent();
+        moves = new MoveList();
+        board.getLegalMoves(color, moves);
+    }
+
+    @Benchmark
+    public long boardPlayUndo() {
+        long flipped = 0;
+
+        for (int index = 0; index < moves.size(); index++) {
+            int move = moves.get(index);
+            long flips = board.play(move, color);
+            board.undo(move, flips);
+            flipped |= flips;
+        }
+
+        return flipped;
+    }
+
+    @Benchmark
+    public long bitBoardFlips() {
+        long flipped = 0;
+
+        for (int index = 0; index < moves.size(); index++) {
+            int move = moves.get(index);
+            long flips = BitBoard.flips(move, player, opponent);
+            flipped ^= (opponent & ~flips) ^ (player | flips | (1L << move));
+        }
+
+        return flipped;
+    }
+
+    @Benchmark
+    public boolean isLegal() {
+        boolean legal = false;
+
+        for (int index = 0; index < moves.size(); index++) {
+            legal ^= board.isLegal(moves.getRow(index), moves.getCol(index), color);
+        }
+
+        return legal;
+    }
+
+    private Board board;
+    private Color color;
+    private long player;
+    private long opponent;
+    private MoveList moves;
+}
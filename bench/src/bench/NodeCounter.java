@@ -0,0 +1,23 @@
+package bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts the positions a benchmark visits, so JMH reports nodes per second
+ * next to the operation rate
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class NodeCounter
+{
+    @Setup(Level.Iteration)
+    public void reset() {
+        nodes = 0;
+    }
+
+    public long nodes;
+}
@@ -0,0 +1,51 @@
+package bench;
+
+import core.Perft;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Perft (counting every leaf of the move tree) to a fixed depth, which
+ * exercises move generation and make-move together
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerftBenchmark
+{
+    @Param({ "initial", "tiger", "midgame-20" })
+    public String position;
+
+    @Param({ "6", "8" })
+    public int depth;
+
+    @Setup
+    public void setUp() {
+        BenchPosition benchPosition = Positions.load(position);
+        player = benchPosition.getPlayer();
+        opponent = benchPosition.getOpponent();
+    }
+
+    @Benchmark
+    public long perft(NodeCounter counter) {
+        long leaves = Perft.count(player, opponent, depth);
+        counter.nodes += leaves;
+        return leaves;
+    }
+
+    private long player;
+    private long opponent;
+}
@@ -0,0 +1,83 @@
+package bench;
+
+import core.BitBoard;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Random playouts to the end of the game on raw masks, the inner loop of
+ * self-play and Monte Carlo search
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayoutBenchmark
+{
+    @Param({ "initial", "tiger", "cow", "midgame-20", "midgame-40" })
+    public String position;
+
+    @Setup
+    public void setUp() {
+        BenchPosition benchPosition = Positions.load(position);
+        player = benchPosition.getPlayer();
+        opponent = benchPosition.getOpponent();
+        seed = 0x2545F4914F6CDD1DL;
+    }
+
+    @Benchmark
+    public int randomPlayout(NodeCounter counter) {
+        long mover = player;
+        long other = opponent;
+        boolean passed = false;
+
+        while (true) {
+            long moves = BitBoard.legalMoves(mover, other);
+
+            if (moves == 0) {
+                if (passed) {
+                    break;
+                }
+                passed = true;
+            } else {
+                passed = false;
+
+                // xorshift random choice among the legal moves
+                seed ^= seed << 13;
+                seed ^= seed >>> 7;
+                seed ^= seed << 17;
+                for (int skip = (int) ((seed >>> 1) % Long.bitCount(moves)); skip > 0; skip--) {
+                    moves &= moves - 1;
+                }
+
+                int move = Long.numberOfTrailingZeros(moves);
+                long flips = BitBoard.flips(move, mover, other);
+                mover |= flips | (1L << move);
+                other &= ~flips;
+                counter.nodes++;
+            }
+
+            long swap = mover;
+            mover = other;
+            other = swap;
+        }
+
+        return Long.bitCount(mover) - Long.bitCount(other);
+    }
+
+    private long player;
+    private long opponent;
+    private long seed;
+}
@@ -0,0 +1,92 @@
+package bench;
+
+import core.Board;
+import core.Constants;
+import core.Transcript;
+import java.awt.Color;
+import java.util.Random;
+
+/**
+ * The positions every benchmark runs over: the initial position, a set of
+ * standard openings and midgame positions reached by seeded random play, so
+ * the corpus is the same on every run and every machine.
+ */
+public class Positions
+{
+    /**
+     * Build a position of the corpus
+     *
+     * @param name one of the names in ALL
+     * @return the position
+     */
+    public static BenchPosition load(String name) {
+        Board board = new Board();
+
+        for (int index = 0; index < OPENING_NAMES.length; index++) {
+            if (OPENING_NAMES[index].equals(name)) {
+                Color color = Transcript.replay(Transcript.parse(OPENINGS[index]), board);
+                return new BenchPosition(board, color);
+            }
+        }
+
+        // Midgame positions are named "midgame-<plies>"
+        if (name.startsWith(MIDGAME_PREFIX)) {
+            int plies = Integer.parseInt(name.substring(MIDGAME_PREFIX.length()));
+            Color color = playRandomly(board, plies, MIDGAME_SEED + plies);
+            return new BenchPosition(board, color);
+        }
+
+        throw new IllegalArgumentException("Unknown benchmark position: " + name);
+    }
+
+    /**
+     * Play random legal moves from the initial position
+     *
+     * @param board the board to play on
+     * @param plies the number of moves to play
+     * @param seed the seed of the random moves
+     * @return the color to move afterwards
+     */
+    private static Color playRandomly(Board board, int plies, long seed) {
+        Random random = new Random(seed);
+        Color color = Constants.DARK;
+
+        for (int ply = 0; ply < plies; ply++) {
+            long moves = board.getLegalMoves(color);
+            if (moves == 0) {
+                color = Board.getNextColor(color);
+                moves = board.getLegalMoves(color);
+                if (moves == 0) {
+                    break;
+                }
+            }
+
+            for (int skip = random.nextInt(Long.bitCount(moves)); skip > 0; skip--) {
+                moves &= moves - 1;
+            }
+            board.play(Long.numberOfTrailingZeros(moves), color);
+            color = Board.getNextColor(color);
+        }
+
+        return color;
+    }
+
+    private static final String MIDGAME_PREFIX = "midgame-";
+    private static final long MIDGAME_SEED = 20240601L;
+
+    private static final String[] OPENING_NAMES = {
+        "initial", "tiger", "tiger-long", "tiger-c2", "cow", "buffalo", "parallel", "perpendicular", "diagonal"
+    };
+
+    private static final String[] OPENINGS = {
+        "",
+        "f5d6c3d3c4",
+        "f5d6c3d3c4f4f6f3e6e7",
+        "f5d6c3d3c4f4c5b3c2",
+        "f5d6c5f4e3",
+        "f5f6e6f4c3",
+        "f5f4e3f6d3",
+        "f5d6c4d3c3",
+        "f5f6e6f4e3c5c4"
+    };
+}
@@ -0,0 +1,67 @@
+package bench;
+
+import core.Board;
+import core.Constants;
+import core.Player;
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Score keeping: pushing the disc counts to the players, recounting with
+ * popcount, and the end-of-game check that reads the counts
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoreBenchmark
+{
+    @Param({ "initial", "tiger-long", "midgame-20", "midgame-40" })
+    public String position;
+
+    @Setup
+    public void setUp() {
+        BenchPosition benchPosition = Positions.load(position);
+        board = benchPosition.getBoard();
+        color = benchPosition.getColor();
+
+        ArrayList<Player> players = new ArrayList<>();
+        for (int playerIdx = 0; playerIdx < Constants.MAX_PLAYERS; playerIdx++) {
+            players.add(new Player());
+        }
+        board.setPlayers(players);
+    }
+
+    @Benchmark
+    public int calculateScore() {
+        board.calculateScore();
+        return board.getPlayers().get(Constants.PLAYER_ONE).getScore();
+    }
+
+    @Benchmark
+    public int popcount() {
+        return Long.bitCount(board.getBitBoard().getDark()) - Long.bitCount(board.getBitBoard().getLight());
+    }
+
+    @Benchmark
+    public boolean gameOver() {
+        return board.gameOver(color, board.getDarkCount(), board.getLightCount());
+    }
+
+    private Board board;
+    private Color color;
+}
@@ -0,0 +1,43 @@
+package core.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JFR event for every move taken from the opening book instead of being
+ * searched. Enable or disable it in a recording's settings as
+ * othello.BookHit.
+ */
+@Name("othello.BookHit")
+@Label("Book Hit")
+@Category({ "Othello", "Search" })
+@Description("A move played from the opening book")
+@StackTrace(false)
+public class BookHitEvent extends Event
+{
+    /**
+     * Record a book move if the event is enabled in a running recording
+     *
+     * @param move the square of the book move
+     * @param empties the empty squares of the position
+     */
+    public static void emit(int move, int empties) {
+        BookHitEvent event = new BookHitEvent();
+
+        if (event.isEnabled()) {
+            event.move = move;
+            event.empties = empties;
+            event.commit();
+        }
+    }
+
+    @Label("Move")
+    private int move;
+
+    @Label("Empties")
+    private int empties;
+}
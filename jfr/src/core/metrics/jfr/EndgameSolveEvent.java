@@ -0,0 +1,52 @@
+package core.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JFR event for each exact endgame solve, lasting as long as the solve.
+ * Enable or disable it in a recording's settings as othello.EndgameSolve.
+ */
+@Name("othello.EndgameSolve")
+@Label("Endgame Solve")
+@Category({ "Othello", "Search" })
+@Description("An exact solve of a position to the end of the game")
+@StackTrace(false)
+public class EndgameSolveEvent extends Event
+{
+    /**
+     * Finish the solve started when the event was created and begun.
+     * Nothing is recorded unless the event is enabled.
+     *
+     * @param empties the empty squares of the position
+     * @param score the final disc difference for the side to move
+     * @param bestMove the best move
+     * @param nodes the nodes the solve visited
+     */
+    public void finish(int empties, int score, int bestMove, long nodes) {
+        if (shouldCommit()) {
+            this.empties = empties;
+            this.score = score;
+            this.bestMove = bestMove;
+            this.nodes = nodes;
+            commit();
+        }
+    }
+
+    @Label("Empties")
+    private int empties;
+
+    @Label("Score")
+    @Description("The exact final disc difference for the side to move")
+    private int score;
+
+    @Label("Best Move")
+    private int bestMove;
+
+    @Label("Nodes")
+    private long nodes;
+}
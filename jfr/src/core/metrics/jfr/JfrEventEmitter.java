@@ -0,0 +1,56 @@
+package core.metrics.jfr;
+
+import core.metrics.FlightEventEmitter;
+
+/**
+ * Sends the engine's events to Java Flight Recorder. FlightEvents loads this
+ * class by name when the JDK has jdk.jfr.
+ */
+public class JfrEventEmitter implements FlightEventEmitter
+{
+    @Override
+    public void movePlayed(int move, int side, long flips, int darkCount, int lightCount) {
+        MovePlayedEvent.emit(move, side, flips, darkCount, lightCount);
+    }
+
+    @Override
+    public Object beginSearchIteration() {
+        SearchIterationEvent iteration = new SearchIterationEvent();
+        if (!iteration.isEnabled()) {
+            return null;
+        }
+
+        iteration.begin();
+        return iteration;
+    }
+
+    @Override
+    public void endSearchIteration(Object iteration, int depth, int score, int bestMove, long nodes, boolean completed) {
+        if (iteration != null) {
+            ((SearchIterationEvent) iteration).finish(depth, score, bestMove, nodes, completed);
+        }
+    }
+
+    @Override
+    public Object beginEndgameSolve() {
+        EndgameSolveEvent solve = new EndgameSolveEvent();
+        if (!solve.isEnabled()) {
+            return null;
+        }
+
+        solve.begin();
+        return solve;
+    }
+
+    @Override
+    public void endEndgameSolve(Object solve, int empties, int score, int bestMove, long nodes) {
+        if (solve != null) {
+            ((EndgameSolveEvent) solve).finish(empties, score, bestMove, nodes);
+        }
+    }
+
+    @Override
+    public void bookHit(int move, int empties) {
+        BookHitEvent.emit(move, empties);
+    }
+}
@@ -0,0 +1,61 @@
+package core.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JFR event for every move placed on a Board, whether by a person, a
+ * game runner or a transcript being replayed. Enable or disable it in a
+ * recording's settings as othello.MovePlayed.
+ */
+@Name("othello.MovePlayed")
+@Label("Move Played")
+@Category({ "Othello", "Game" })
+@Description("A disc placed on a board and the discs it flipped")
+@StackTrace(false)
+public class MovePlayedEvent extends Event
+{
+    /**
+     * Record a move if the event is enabled in a running recording; when it
+     * is not, the JIT removes the event object and this costs nothing
+     *
+     * @param move the square of the move
+     * @param side Constants.DARK_SIDE or Constants.LIGHT_SIDE
+     * @param flips the mask of flipped discs
+     * @param darkCount the dark discs after the move
+     * @param lightCount the light discs after the move
+     */
+    public static void emit(int move, int side, long flips, int darkCount, int lightCount) {
+        MovePlayedEvent event = new MovePlayedEvent();
+
+        if (event.isEnabled()) {
+            event.move = move;
+            event.side = side;
+            event.flipCount = Long.bitCount(flips);
+            event.darkCount = darkCount;
+            event.lightCount = lightCount;
+            event.commit();
+        }
+    }
+
+    @Label("Move")
+    @Description("The square, row * 8 + column")
+    private int move;
+
+    @Label("Side")
+    @Description("0 for dark, 1 for light")
+    private int side;
+
+    @Label("Flip Count")
+    private int flipCount;
+
+    @Label("Dark Discs")
+    private int darkCount;
+
+    @Label("Light Discs")
+    private int lightCount;
+}
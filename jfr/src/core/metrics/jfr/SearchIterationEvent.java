@@ -0,0 +1,60 @@
+package core.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JFR event for each iteration of an iterative deepening search, lasting
+ * from the start of the iteration to its end. Every worker of a parallel
+ * search records its own iterations. Enable or disable it in a recording's
+ * settings as othello.SearchIteration.
+ */
+@Name("othello.SearchIteration")
+@Label("Search Iteration")
+@Category({ "Othello", "Search" })
+@Description("One depth of an iterative deepening search")
+@StackTrace(false)
+public class SearchIterationEvent extends Event
+{
+    /**
+     * Finish the iteration started when the event was created and begun.
+     * Nothing is recorded unless the event is enabled.
+     *
+     * @param depth the depth of the iteration
+     * @param score the score it found, or 0 if it was stopped
+     * @param bestMove the best move it found
+     * @param nodes the nodes the search has visited so far
+     * @param completed whether the iteration finished rather than being stopped
+     */
+    public void finish(int depth, int score, int bestMove, long nodes, boolean completed) {
+        if (shouldCommit()) {
+            this.depth = depth;
+            this.score = score;
+            this.bestMove = bestMove;
+            this.nodes = nodes;
+            this.completed = completed;
+            commit();
+        }
+    }
+
+    @Label("Depth")
+    private int depth;
+
+    @Label("Score")
+    @Description("In hundredths of a disc, from the side to move")
+    private int score;
+
+    @Label("Best Move")
+    private int bestMove;
+
+    @Label("Nodes")
+    @Description("The nodes visited by the search so far")
+    private long nodes;
+
+    @Label("Completed")
+    private boolean completed;
+}
@@ -0,0 +1,329 @@
+package core;
+
+/**
+ * Stores an Othello position as two 64-bit masks, one for each color.
+ *
+ * Square (row, col) is bit (row * 8 + col), so bit 0 is the top-left tile and
+ * bit 63 is the bottom-right tile. Moving one tile in any direction is a single
+ * shift, and the column masks stop discs from wrapping around the board edges.
+ */
+public class BitBoard
+{
+    public BitBoard() {
+        initObjects();
+    }
+
+    /**
+     * @param dark the mask of the dark discs
+     * @param light the mask of the light discs
+     */
+    public BitBoard(long dark, long light) {
+        this.dark = dark;
+        this.light = light;
+    }
+
+    /**
+     * @param other the bitboard to copy
+     */
+    public BitBoard(BitBoard other) {
+        this(other.dark, other.light);
+    }
+
+    /**
+     * Set the four initial discs in the center of the board
+     */
+    private void initObjects() {
+        dark = INITIAL_DARK;
+        light = INITIAL_LIGHT;
+    }
+
+    /**
+     * @param row the row of the tile
+     * @param col the column of the tile
+     * @return the square index of the tile
+     */
+    public static int square(int row, int col) {
+        return row * Constants.COLUMNS + col;
+    }
+
+    /**
+     * @param row the row of the tile
+     * @param col the column of the tile
+     * @return a mask containing only the given tile
+     */
+    public static long mask(int row, int col) {
+        return 1L << square(row, col);
+    }
+
+    /**
+     * @param discs a mask of discs
+     * @return the tiles directly left or right of those discs
+     */
+    public static long horizontalNeighbours(long discs) {
+        return ((discs << 1) & ~FIRST_COLUMN) | ((discs >>> 1) & ~LAST_COLUMN);
+    }
+
+    /**
+     * @param discs a mask of discs
+     * @return the tiles directly above or below those discs
+     */
+    public static long verticalNeighbours(long discs) {
+        return (discs << 8) | (discs >>> 8);
+    }
+
+    /**
+     * @param discs a mask of discs
+     * @return the tiles touching those discs in any of the eight directions,
+     *         which may include some of the discs themselves
+     */
+    public static long neighbours(long discs) {
+        // A row grown sideways, then moved up and down, covers the diagonals too
+        long row = discs | horizontalNeighbours(discs);
+        return horizontalNeighbours(discs) | verticalNeighbours(row);
+    }
+
+    /**
+     * Calculate every tile where the player can legally place a disc
+     *
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @return the mask of legal moves
+     */
+    public static long legalMoves(long player, long opponent) {
+        // Opponent discs on the edge columns can never be flanked sideways, so
+        // leaving them out keeps the sideways runs from wrapping around an edge
+        long inner = opponent & INNER_COLUMNS;
+
+        // Grow a run of opponent discs away from each of the player's discs;
+        // an empty tile right after a run closes it off
+        long moves = runForward(player, inner, 1) << 1;
+        moves |= runBackward(player, inner, 1) >>> 1;
+        moves |= runForward(player, opponent, 8) << 8;
+        moves |= runBackward(player, opponent, 8) >>> 8;
+        moves |= runForward(player, inner, 7) << 7;
+        moves |= runBackward(player, inner, 7) >>> 7;
+        moves |= runForward(player, inner, 9) << 9;
+        moves |= runBackward(player, inner, 9) >>> 9;
+
+        return moves & ~(player | opponent);
+    }
+
+    /**
+     * Grow runs of discs towards higher squares, one tile per step
+     *
+     * @param start the discs the runs start next to
+     * @param run the discs a run may contain
+     * @param amount the bit distance of one step (1, 7, 8 or 9)
+     * @return the runs, without the start discs
+     */
+    private static long runForward(long start, long run, int amount) {
+        long grown = run & (start << amount);
+        grown |= run & (grown << amount);
+        grown |= run & (grown << amount);
+        grown |= run & (grown << amount);
+        grown |= run & (grown << amount);
+        return grown | (run & (grown << amount));
+    }
+
+    /**
+     * Grow runs of discs towards lower squares, one tile per step
+     *
+     * @param start the discs the runs start next to
+     * @param run the discs a run may contain
+     * @param amount the bit distance of one step (1, 7, 8 or 9)
+     * @return the runs, without the start discs
+     */
+    private static long runBackward(long start, long run, int amount) {
+        long grown = run & (start >>> amount);
+        grown |= run & (grown >>> amount);
+        grown |= run & (grown >>> amount);
+        grown |= run & (grown >>> amount);
+        grown |= run & (grown >>> amount);
+        return grown | (run & (grown >>> amount));
+    }
+
+    /**
+     * Calculate every disc that a move flips, in all eight directions at once.
+     * Each direction grows its run of opponent discs with a fixed number of
+     * shifts, so no ray is walked twice and there is no per-tile branching.
+     *
+     * @param square the square of the placed disc
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @return the mask of flipped discs, or 0 if the move flips nothing
+     */
+    public static long flips(int square, long player, long opponent) {
+        long placed = 1L << square;
+        long inner = opponent & INNER_COLUMNS;
+        long flipped = 0;
+
+        // Keep each run only if one of the player's discs closes it off
+        long run = runForward(placed, inner, 1);
+        flipped |= ((run << 1) & player) != 0 ? run : 0;
+        run = runBackward(placed, inner, 1);
+        flipped |= ((run >>> 1) & player) != 0 ? run : 0;
+        run = runForward(placed, opponent, 8);
+        flipped |= ((run << 8) & player) != 0 ? run : 0;
+        run = runBackward(placed, opponent, 8);
+        flipped |= ((run >>> 8) & player) != 0 ? run : 0;
+        run = runForward(placed, inner, 7);
+        flipped |= ((run << 7) & player) != 0 ? run : 0;
+        run = runBackward(placed, inner, 7);
+        flipped |= ((run >>> 7) & player) != 0 ? run : 0;
+        run = runForward(placed, inner, 9);
+        flipped |= ((run << 9) & player) != 0 ? run : 0;
+        run = runBackward(placed, inner, 9);
+        flipped |= ((run >>> 9) & player) != 0 ? run : 0;
+
+        return flipped;
+    }
+
+    /**
+     * @param side the side (Constants.DARK_SIDE or Constants.LIGHT_SIDE)
+     * @return the discs of the given side
+     */
+    public long getDiscs(int side) {
+        return side == Constants.DARK_SIDE ? dark : light;
+    }
+
+    /**
+     * @param side the side to move
+     * @return the mask of legal moves for the given side
+     */
+    public long legalMoves(int side) {
+        return legalMoves(getDiscs(side), getDiscs(1 - side));
+    }
+
+    /**
+     * Determine whether a side may place a disc on a tile, without changing the board
+     *
+     * @param square the square of the tile
+     * @param side the side to move
+     * @return whether the move is legal
+     */
+    public boolean isLegal(int square, int side) {
+        if ((getEmpty() & (1L << square)) == 0) {
+            return false;
+        }
+
+        return flips(square, getDiscs(side), getDiscs(1 - side)) != 0;
+    }
+
+    /**
+     * Place a disc and flip every disc it surrounds
+     *
+     * @param square the square of the placed disc
+     * @param side the side to move
+     * @return the mask of flipped discs, or 0 if the move was illegal and nothing changed
+     */
+    public long play(int square, int side) {
+        if ((getEmpty() & (1L << square)) == 0) {
+            return 0;
+        }
+
+        long flipped = flips(square, getDiscs(side), getDiscs(1 - side));
+
+        if (flipped != 0) {
+            apply(square, side, flipped);
+        }
+
+        return flipped;
+    }
+
+    /**
+     * Take back a move made by play
+     *
+     * @param square the square of the placed disc
+     * @param flipped the mask returned by play
+     */
+    public void undo(int square, long flipped) {
+        long placed = 1L << square;
+
+        if ((dark & placed) != 0) {
+            dark &= ~(placed | flipped);
+            light |= flipped;
+        } else {
+            light &= ~(placed | flipped);
+            dark |= flipped;
+        }
+    }
+
+    /**
+     * Place a disc and flip discs that were already calculated
+     *
+     * @param square the square of the placed disc
+     * @param side the side that placed the disc
+     * @param flipped the discs to flip
+     */
+    public void apply(int square, int side, long flipped) {
+        long placed = (1L << square) | flipped;
+
+        if (side == Constants.DARK_SIDE) {
+            dark |= placed;
+            light &= ~flipped;
+        } else {
+            light |= placed;
+            dark &= ~flipped;
+        }
+    }
+
+    /**
+     * @param square the square of the tile
+     * @return the side occupying the tile, or Constants.NO_SIDE if it is empty
+     */
+    public int getSide(int square) {
+        long tile = 1L << square;
+
+        if ((dark & tile) != 0) {
+            return Constants.DARK_SIDE;
+        } else if ((light & tile) != 0) {
+            return Constants.LIGHT_SIDE;
+        }
+
+        return Constants.NO_SIDE;
+    }
+
+    /**
+     * @return the mask of the empty tiles
+     */
+    public long getEmpty() {
+        return ~(dark | light);
+    }
+
+    /**
+     * @return the dark discs
+     */
+    public long getDark() {
+        return dark;
+    }
+
+    /**
+     * @param dark the dark discs to set
+     */
+    public void setDark(long dark) {
+        this.dark = dark;
+    }
+
+    /**
+     * @return the light discs
+     */
+    public long getLight() {
+        return light;
+    }
+
+    /**
+     * @param light the light discs to set
+     */
+    public void setLight(long light) {
+        this.light = light;
+    }
+
+    public static final long FIRST_COLUMN = 0x0101010101010101L;
+    public static final long LAST_COLUMN = 0x8080808080808080L;
+    public static final long INNER_COLUMNS = ~(FIRST_COLUMN | LAST_COLUMN);
+    public static final long INITIAL_DARK = 0x0000000810000000L;
+    public static final long INITIAL_LIGHT = 0x0000001008000000L;
+
+    private long dark;
+    private long light;
+}
@@ -1,619 +1,152 @@
 package core;
 
+import core.metrics.FlightEvents;
+import core.metrics.Metrics;
 import java.awt.Color;
 import java.util.ArrayList;
-import javax.swing.JOptionPane;
 
 public class Board
 {
     public Board() {
         initObjects();
     }
-    
+
     /**
      * Make the board and set the four initial pieces in the center of the board
      */
     private void initObjects() {
-        board = new Disc[Constants.ROWS][Constants.COLUMNS];
-        
-        // Place an invisible disc at each tile
-        for (int row = 0; row < Constants.ROWS; row++) {
-            for (int col = 0; col < Constants.COLUMNS; col++) {
-                board[row][col] = new Disc();
-            }
-        }
-        
-        // Get the starting positions of the board
-        int topMiddleRow      = Constants.ROWS / 2 - 1;
-        int bottomMiddleRow   = Constants.ROWS / 2;
-        int leftMiddleColumn  = Constants.COLUMNS / 2 - 1;
-        int rightMiddleColumn = Constants.COLUMNS / 2;
-    
-        // Set disc colors on the starting positions
-        board[topMiddleRow][leftMiddleColumn].setDiscColor(Constants.LIGHT);
-        board[topMiddleRow][rightMiddleColumn].setDiscColor(Constants.DARK);
-        board[bottomMiddleRow][leftMiddleColumn].setDiscColor(Constants.DARK);
-        board[bottomMiddleRow][rightMiddleColumn].setDiscColor(Constants.LIGHT);
+        bitBoard = new BitBoard();
+        countDiscs();
+    }
+
+    /**
+     * Recount the discs of both colors from the bitboard. Moves keep the counts
+     * up to date on their own, so this is only needed when the position is replaced.
+     */
+    private void countDiscs() {
+        darkCount = Long.bitCount(bitBoard.getDark());
+        lightCount = Long.bitCount(bitBoard.getLight());
     }
-    
+
     /**
-     * Calculate the player scores
+     * Pass the disc counts on to the players as their scores
      */
     public void calculateScore() {
-        // Initialize scores
-        darkCount = 0;
-        lightCount = 0;
-        
-        // Look through board to count number of dark and light discs
-        for (int row = 0; row < Constants.ROWS; row++) {
-            for (int col = 0; col < Constants.COLUMNS; col++) {
-                if (board[row][col].getDiscColor() == Constants.DARK) {
-                    darkCount++;
-                }
-                else if (board[row][col].getDiscColor() == Constants.LIGHT) {
-                    lightCount++;
-                }
-            }
-        }
-        
-        // Update scores
+        Metrics.scoreCalculated();
         players.get(Constants.PLAYER_ONE).setScore(darkCount);
         players.get(Constants.PLAYER_TWO).setScore(lightCount);
     }
-    
+
     /**
-     * This method determines whether the user made a valid move
-     * 
+     * This method determines whether the user made a valid move, and plays it if so.
+     * Reporting the end of the game is up to the caller, see gameOver.
+     *
      * @param selectedRow the row of the selected tile
      * @param selectedCol the column of the selected tile
      * @param currentPlayerColor the color of the current player
-     * 
+     *
      * @return whether the move was valid
      */
     public boolean isValidMove(int selectedRow, int selectedCol, Color currentPlayerColor) {
-        boolean isValidMove = false;
-        
-        // Check all directions to see if the discs can be flipped
-        if (tryFlippingNorth(selectedRow, selectedCol, currentPlayerColor, true) ||
-            tryFlippingNortheast(selectedRow, selectedCol, currentPlayerColor, true) ||
-            tryFlippingEast(selectedRow, selectedCol, currentPlayerColor, true) ||
-            tryFlippingSouthEast(selectedRow, selectedCol, currentPlayerColor, true) ||
-            tryFlippingSouth(selectedRow, selectedCol, currentPlayerColor, true) ||
-            tryFlippingSouthwest(selectedRow, selectedCol, currentPlayerColor, true) ||
-            tryFlippingWest(selectedRow, selectedCol, currentPlayerColor, true) ||
-            tryFlippingNorthwest(selectedRow, selectedCol, currentPlayerColor, true)) {
-            
-                isValidMove = true;
-                calculateScore();
-                isGameOver(currentPlayerColor);
+        long start = Metrics.start();
+
+        // Flip the discs in all eight directions in one go
+        long flipped = play(BitBoard.square(selectedRow, selectedCol), currentPlayerColor);
+        boolean isValidMove = flipped != 0;
+
+        if (isValidMove) {
+            calculateScore();
         }
 
+        Metrics.moveValidated(isValidMove, start);
         return isValidMove;
     }
-    
-    /**
-     * 
-     * @param currentPlayerColor
-     */
-    private void isGameOver(Color currentPlayerColor) {
-        Color nextColor = getNextColor(currentPlayerColor);
 
-        // Determine if the game is over from the next player's perspective.
-        if (gameOver(nextColor, darkCount, lightCount))
-        {
-            JOptionPane.showMessageDialog(null, "The game is over!");
-            if (darkCount > lightCount) {
-                JOptionPane.showMessageDialog(null, "Player " + getPlayers().get(Constants.PLAYER_ONE).getName() + " wins!");
-            } else if (darkCount < lightCount) {
-                JOptionPane.showMessageDialog(null, "Player " + getPlayers().get(Constants.PLAYER_TWO).getName() + " wins!");
-            } else {
-                JOptionPane.showMessageDialog(null, "The game has ended in a draw!");
-            }
-        }
-    }
-    
     /**
-     * Get the color of the next player
-     * 
-     * @param currentPlayerColor the color of the current player
-     * 
-     * @return the color of the next player
+     * Determine whether a move is legal. Unlike isValidMove this never changes
+     * the board, the scores or the UI.
+     *
+     * @param row the row of the tile
+     * @param col the column of the tile
+     * @param side the color of the player to move
+     * @return whether the player may place a disc on the tile
      */
-    private Color getNextColor(Color currentPlayerColor) {
-        Color nextColor;
-        
-        if (currentPlayerColor == getPlayers().get(Constants.PLAYER_ONE).getDiscColor()) {
-            nextColor = getPlayers().get(Constants.PLAYER_TWO).getDiscColor();
-        } else {
-            nextColor = getPlayers().get(Constants.PLAYER_ONE).getDiscColor();
-        }
-            
-        return nextColor;
+    public boolean isLegal(int row, int col, Color side) {
+        return bitBoard.isLegal(BitBoard.square(row, col), toSide(side));
     }
-    
+
     /**
-     * Determine whether discs can be flipped in the north direction
-     * 
-     * @param selectedRow the row of the selected tile
-     * @param selectedCol the column of the selected tile
-     * @param currentPlayerColor the color of the current player
-     * @param doFlip control whether to flip tiles
-     * 
-     * @return whether the discs can be flipped in the north direction
+     * Place a disc and flip every disc it surrounds. The disc counts are kept
+     * up to date, but the players' scores are not; call calculateScore for that.
+     *
+     * @param move the square of the move (row * 8 + col)
+     * @param side the color of the player to move
+     * @return the mask of flipped discs, or 0 if the move was illegal and the board is unchanged
      */
-    private boolean tryFlippingNorth(int selectedRow, int selectedCol, Color currentPlayerColor, boolean doFlip) {
-        boolean foundSameColorDisc = false;
-        boolean isValidMove = false;
-        
-        int tilesToFlip = 0;
-        int rowToCheck = selectedRow - 1; // Don't check the current row
-        
-        // While there are still rows to check and while we haven't found our color on the other end
-        while (rowToCheck >= 0 && !foundSameColorDisc) {
-            
-            // Stop checking when we stumble upon an empty tile
-            if (board[rowToCheck][selectedCol].getDiscColor() == Constants.EMPTY) {
-                break;
-            }
-            
-            // If the tile is of the opposite color, it gets flipped
-            else if (board[rowToCheck][selectedCol].getDiscColor() != currentPlayerColor) {
-                tilesToFlip++;
-            }
-            
-            // End the flipping sequence since the tile matches the current player's color
-            else {
-                foundSameColorDisc = true;
-            }
+    public long play(int move, Color side) {
+        long flips = bitBoard.play(move, toSide(side));
 
-            // Check the row above
-            rowToCheck--;
+        if (flips != 0) {
+            updateCounts(side, Long.bitCount(flips) + 1, Long.bitCount(flips));
+            FlightEvents.movePlayed(move, toSide(side), flips, darkCount, lightCount);
         }
-        
-        // Valid move
-        if (foundSameColorDisc && tilesToFlip > 0 && doFlip) {
-            
-            // Place disk on clicked tile
-            board[selectedRow][selectedCol].setDiscColor(currentPlayerColor);
 
-            while (tilesToFlip > 0) {
-                selectedRow--;
-                tilesToFlip--;
-                
-                // Update the disc color for the flipped discs
-                board[selectedRow][selectedCol].setDiscColor(currentPlayerColor);
-            }
-            isValidMove = true;
-        }
-        
-        return isValidMove;
+        return flips;
     }
-    
-    /**
-     * Determine whether discs can be flipped in the northeast direction
-     * 
-     * @param selectedRow the row of the selected tile
-     * @param selectedCol the column of the selected tile
-     * @param currentPlayerColor the color of the current player
-     * @param doFlip control whether to flip tiles
-     * 
-     * @return whether the discs can be flipped in the northeast direction
-     */
-    private boolean tryFlippingNortheast(int selectedRow, int selectedCol, Color currentPlayerColor, boolean doFlip) {
-        boolean foundSameColorDisc = false;
-        boolean isValidMove = false;
-
-        int tilesToFlip = 0;
-        int rowToCheck = selectedRow - 1; // Don't check the current row 
-        int columnToCheck = selectedCol + 1; // Don't check current column
-        
-        // While there are still rows and columns to check and if we haven't found our color on the other end
-        while (rowToCheck >= 0 && columnToCheck < Constants.COLUMNS && !foundSameColorDisc) {
-            
-            // Stop checking when we stumble upon an empty tile
-            if (board[rowToCheck][columnToCheck].getDiscColor() == Constants.EMPTY) {
-                break;
-            }
-                
-            // IIf the tile is of the opposite color, it gets flipped
-            else if (board[rowToCheck][columnToCheck].getDiscColor() != currentPlayerColor) {
-                tilesToFlip++;
-            }
-            
-            // End the flipping sequence since the tile matches the current player's color
-            else {
-                foundSameColorDisc = true;
-            }
 
-            // Check the row above and the column to the right
-            rowToCheck--;
-            columnToCheck++;
-        }
-        
-        // Valid move
-        if (foundSameColorDisc && tilesToFlip > 0 && doFlip) {
-            
-            // Place disk on clicked tile
-            board[selectedRow][selectedCol].setDiscColor(currentPlayerColor);
-            
-            while (tilesToFlip > 0) {
-                selectedRow--;
-                selectedCol++;
-                tilesToFlip--;
-                
-                // Update the disc color for the flipped discs
-                board[selectedRow][selectedCol].setDiscColor(currentPlayerColor);
-            }
-            isValidMove = true;
-        }
-        
-        return isValidMove;
-    }
-    
-    /**
-     * Determine whether discs can be flipped in the east direction
-     * 
-     * @param selectedRow the row of the selected tile
-     * @param selectedCol the column of the selected tile
-     * @param currentPlayerColor the color of the current player
-     * @param doFlip control whether to flip tiles
-     * 
-     * @return whether the discs can be flipped in the east direction
-     */
-    private boolean tryFlippingEast(int selectedRow, int selectedCol, Color color, boolean doFlip) {
-        boolean foundSameColorDisc = false;
-        boolean isValidMove = false;
-        
-        int tilesToFlip = 0;
-        int columnToCheck = selectedCol + 1; // Don't check the current column
-        
-        // While there are still columns to check and if we haven't found our color on the other end
-        while (columnToCheck < Constants.COLUMNS && !foundSameColorDisc) {
-            
-            // Stop checking when we stumble upon an empty tile
-            if (board[selectedRow][columnToCheck].getDiscColor() == Constants.EMPTY) {
-                break;
-            }
-            
-            // IIf the tile is of the opposite color, it gets flipped
-            else if (board[selectedRow][columnToCheck].getDiscColor() != color) {
-                tilesToFlip++;
-            }
-                
-            // End the flipping sequence since the tile matches the current player's color
-            else {
-                foundSameColorDisc = true;
-            }
-            
-            // Check the column to the right
-            columnToCheck++;
-        }
-        
-        // Valid move
-        if (foundSameColorDisc && tilesToFlip > 0 && doFlip) {
-            
-            // Place disk on clicked tile
-            board[selectedRow][selectedCol].setDiscColor(color);
-            
-            while (tilesToFlip > 0) {
-                selectedCol++;
-                tilesToFlip--;
-                
-                // Update the disc color for the flipped discs
-                board[selectedRow][selectedCol].setDiscColor(color);
-            }
-            isValidMove = true;
-        }
-        
-        return isValidMove;
-    }
-    
     /**
-     * Determine whether discs can be flipped in the southeast direction
-     * 
-     * @param selectedRow the row of the selected tile
-     * @param selectedCol the column of the selected tile
-     * @param currentPlayerColor the color of the current player
-     * @param doFlip control whether to flip tiles
-     * 
-     * @return whether the discs can be flipped in the southeast direction
+     * Restore the position from before a call to play
+     *
+     * @param move the square of the move
+     * @param flips the mask returned by play
      */
-    private boolean tryFlippingSouthEast(int selectedRow, int selectedCol, Color color, boolean doFlip) {
-        boolean foundSameColorDisc = false;
-        boolean isValidMove = false;
-        
-        int tilesToFlip = 0;
-        int rowToCheck = selectedRow + 1; // Don't check the current row
-        int columnToCheck = selectedCol + 1; // Don't check the current column
-        
-        // While there are still rows and columns to check and if we haven't found our color on the other end
-        while (rowToCheck < Constants.ROWS && columnToCheck < Constants.COLUMNS && !foundSameColorDisc) {
-            
-            // Stop checking when we stumble upon an empty tile
-            if (board[rowToCheck][columnToCheck].getDiscColor() == Constants.EMPTY) {
-                break;
-            }
-            
-            // IIf the tile is of the opposite color, it gets flipped
-            else if (board[rowToCheck][columnToCheck].getDiscColor() != color) {
-                tilesToFlip++;
-            }
-            
-            // End the flipping sequence since the tile matches the current player's color
-            else {
-                foundSameColorDisc = true;
-            }
-                
-            // Check the row below and the column to the right
-            rowToCheck++;
-            columnToCheck++;
-        }
-        
-        // Valid move
-        if (foundSameColorDisc && tilesToFlip > 0 && doFlip) {
-            
-            // Place disk on clicked tile
-            board[selectedRow][selectedCol].setDiscColor(color);
-            
-            while (tilesToFlip > 0) {
-                selectedRow++;
-                selectedCol++;
-                tilesToFlip--;
-                
-                // Update the disc color for the flipped discs
-                board[selectedRow][selectedCol].setDiscColor(color);
-            }
-            isValidMove = true; 
-        }
+    public void undo(int move, long flips) {
+        Color side = getDiscColor(move / Constants.COLUMNS, move % Constants.COLUMNS);
 
-        return isValidMove;
+        bitBoard.undo(move, flips);
+        updateCounts(side, -Long.bitCount(flips) - 1, -Long.bitCount(flips));
     }
-    
+
     /**
-     * Determine whether discs can be flipped in the south direction
-     * 
-     * @param selectedRow the row of the selected tile
-     * @param selectedCol the column of the selected tile
-     * @param currentPlayerColor the color of the current player
-     * @param doFlip control whether to flip tiles
-     * 
-     * @return whether the discs can be flipped in the south direction
+     * Move discs from one color's count to the other's
+     *
+     * @param side the color that gained discs
+     * @param gained the number of discs the color gained
+     * @param lost the number of discs the other color lost
      */
-    private boolean tryFlippingSouth(int selectedRow, int selectedCol, Color color, boolean doFlip) {
-        boolean foundSameColorDisc = false;
-        boolean isValidMove = false;
-        
-        int tilesToFlip = 0;
-        int rowToCheck = selectedRow + 1; // Don't check the current row
-        
-        // While there are still rows to check and while we haven't found our color on the other end
-        while (rowToCheck < Constants.ROWS && !foundSameColorDisc) {
-            
-            // Stop checking when we stumble upon an empty tile
-            if (board[rowToCheck][selectedCol].getDiscColor() == Constants.EMPTY) {
-                break;
-            }
-                
-            
-            // IIf the tile is of the opposite color, it gets flipped
-            else if (board[rowToCheck][selectedCol].getDiscColor() != color) {
-                tilesToFlip++;
-            }
-                
-            // End the flipping sequence since the tile matches the current player's color
-            else {
-                foundSameColorDisc = true;
-            }
-                
-            // Check the row below
-            rowToCheck++;
-        }
-        
-        // Valid move
-        if (foundSameColorDisc && tilesToFlip > 0 && doFlip) {
-            
-            // Place disk on clicked tile
-            board[selectedRow][selectedCol].setDiscColor(color);
-            
-            while (tilesToFlip > 0) {
-                selectedRow++;
-                tilesToFlip--;
-                
-                // Update the disc color for the flipped discs
-                board[selectedRow][selectedCol].setDiscColor(color);
-            }
-            isValidMove = true;   
+    private void updateCounts(Color side, int gained, int lost) {
+        if (side == Constants.DARK) {
+            darkCount += gained;
+            lightCount -= lost;
+        } else {
+            lightCount += gained;
+            darkCount -= lost;
         }
-        
-        return isValidMove;
     }
 
     /**
-     * Determine whether discs can be flipped in the southwest direction
-     * 
-     * @param selectedRow the row of the selected tile
-     * @param selectedCol the column of the selected tile
-     * @param currentPlayerColor the color of the current player
-     * @param doFlip control whether to flip tiles
-     * 
-     * @return whether the discs can be flipped in the southwest direction
+     * Get the color of the other player
+     *
+     * @param color the color of one player
+     *
+     * @return the color of the other player
      */
-    private boolean tryFlippingSouthwest(int selectedRow, int selectedCol, Color color, boolean doFlip) {
-        boolean foundSameColorDisc = false;
-        boolean isValidMove = false;
-        
-        int tilesToFlip = 0;
-        int rowToCheck = selectedRow + 1; // Don't check the current row
-        int columnToCheck = selectedCol - 1; // Don't check the current column
-        
-        
-        // While there are still rows to check and while we haven't found our color on the other end
-        while (rowToCheck < Constants.ROWS && columnToCheck >= 0 && !foundSameColorDisc) {
-            
-            // Stop checking when we stumble upon an empty tile
-            if (board[rowToCheck][columnToCheck].getDiscColor() == Constants.EMPTY) {
-                break;
-            }
-                
-            // IIf the tile is of the opposite color, it gets flipped
-            else if (board[rowToCheck][columnToCheck].getDiscColor() != color) {
-                tilesToFlip++;
-            }
-            
-            // End the flipping sequence since the tile matches the current player's color.
-            else {
-                foundSameColorDisc = true;
-            }
-            
-            // Check the row below and the column to the left
-            rowToCheck++;
-            columnToCheck--;
-        }
-        
-        // Valid move
-        if (foundSameColorDisc && tilesToFlip > 0 && doFlip) {
-            
-            // Place disk on clicked tile
-            board[selectedRow][selectedCol].setDiscColor(color);
-            
-            while (tilesToFlip > 0) {
-                selectedRow++;
-                selectedCol--;
-                tilesToFlip--;
-                
-                // Update the disc color for the flipped discs
-                board[selectedRow][selectedCol].setDiscColor(color);
-            }
-            isValidMove = true;
-        }
-        
-        return isValidMove;
+    public static Color getNextColor(Color color) {
+        return color == Constants.DARK ? Constants.LIGHT : Constants.DARK;
     }
-    
-    /**
-     * Determine whether discs can be flipped in the west direction
-     * 
-     * @param selectedRow the row of the selected tile
-     * @param selectedCol the column of the selected tile
-     * @param currentPlayerColor the color of the current player
-     * @param doFlip control whether to flip tiles
-     * 
-     * @return whether the discs can be flipped in the west direction
-     */
-    private boolean tryFlippingWest(int selectedRow, int selctedCol, Color currentPlayerColor, boolean doFlip) {
-        boolean foundSameColorDisc = false;
-        boolean isValidMove = false;
-        
-        int tilesToFlip = 0;
-        int columnToCheck = selctedCol - 1; // Don't check the current column
-        
-        
-        // While there are still rows to check and while we haven't found our color on the other end
-        while (columnToCheck >= 0 && !foundSameColorDisc) {
-            
-            // Stop checking when we stumble upon an empty tile
-            if (board[selectedRow][columnToCheck].getDiscColor() == Constants.EMPTY) {
-                break;
-            }
-                
-            // IIf the tile is of the opposite color, it gets flipped
-            else if (board[selectedRow][columnToCheck].getDiscColor() != currentPlayerColor) {
-                tilesToFlip++;
-            }
-            
-            // End the flipping sequence since the tile matches the current player's color
-            else {
-                foundSameColorDisc = true;
-            }
-                
-            // Check the column to the left
-            columnToCheck--;
-        }
-        
-        // Valid move
-        if (foundSameColorDisc && tilesToFlip > 0 && doFlip) {
-            
-            // Place disk on clicked tile
-            board[selectedRow][selctedCol].setDiscColor(currentPlayerColor);
-            
-            while (tilesToFlip > 0) {
-                selctedCol--;
-                tilesToFlip--;
-                
-                // Update the disc color for the flipped discs
-                board[selectedRow][selctedCol].setDiscColor(currentPlayerColor);
-            }
-            isValidMove = true;
-        }
 
-        return isValidMove;
-    }
-    
     /**
-     * Determine whether discs can be flipped in the northwest direction
-     * 
-     * @param selectedRow the row of the selected tile
-     * @param selectedCol the column of the selected tile
-     * @param currentPlayerColor the color of the current player
-     * @param doFlip control whether to flip tiles
-     * 
-     * @return whether the discs can be flipped in the northwest direction
+     * Put the four initial discs back on an otherwise empty board
      */
-    private boolean tryFlippingNorthwest(int selectedRow, int selectedCol, Color color, boolean doFlip) {
-        boolean foundSameColorDisc = false;
-        boolean isValidMove = false;
-        
-        int tilesToFlip = 0;
-        int rowToCheck = selectedRow - 1; // Don't check the current row
-        int columnToCheck = selectedCol - 1; // Don't check the current column
-        
-        
-        // While there are still rows to check and while we haven't found our color on the other end
-        while (rowToCheck >= 0 && columnToCheck >= 0 && !foundSameColorDisc) {
-            
-            // Stop checking when we stumble upon an empty tile
-            if (board[rowToCheck][columnToCheck].getDiscColor() == Constants.EMPTY) {
-                break;
-            }
-            
-            // IIf the tile is of the opposite color, it gets flipped
-            else if (board[rowToCheck][columnToCheck].getDiscColor() != color) {
-                tilesToFlip++;
-            }
-            
-            // End the flipping sequence since the tile matches the current player's color
-            else {
-                foundSameColorDisc = true;
-            }
-                
-            // Check the row above and the column to the left
-            rowToCheck--;
-            columnToCheck--;
-        }
-        
-        // Valid move
-        if (foundSameColorDisc && tilesToFlip > 0 && doFlip) {
-            
-            // Place disk on clicked tile
-            board[selectedRow][selectedCol].setDiscColor(color);
-            
-            while (tilesToFlip > 0) {
-                selectedRow--;
-                selectedCol--;
-                tilesToFlip--;
-                
-                // Update the disc color for the flipped discs
-                board[selectedRow][selectedCol].setDiscColor(color);
-            }
-            isValidMove = true;
-        }
-            
-        return isValidMove;
+    public void reset() {
+        bitBoard.setDark(BitBoard.INITIAL_DARK);
+        bitBoard.setLight(BitBoard.INITIAL_LIGHT);
+        countDiscs();
     }
-    
+
     /**
      * Determine whether the game is over
-     * 
+     *
      * @param currentPlayerColor the color of the current player
      * @param darkScore the score of the dark player
      * @param lightScore the score of the light player
@@ -624,476 +157,156 @@ public class Board
         if (darkScore + lightScore == 64) {
             return true;
         }
-            
+
         // Game over if either player lost all of their chips
         if (darkScore == 0 || lightScore == 0) {
             return true;
         }
-            
+
         // Check whether the current player still has a valid move left
         if (hasMove(currentPlayerColor)) {
             return false;
         }
-            
+
         //Otherwise, the game has ended.
         else {
             return true;
         }
     }
-    
+
     /**
-     * 
+     *
      * @param currentPlayerColor the color of the current player
      * @return whether there is still a valid move left to play for the current player
      */
-    private boolean hasMove(Color currentPlayerColor) {
-        
-        // Check all directions from each empty square on the board if there is still a valid move
-        for (int row = 0; row < Constants.ROWS; row++) {
-            for (int col = 0; col < Constants.COLUMNS; col++) {
-                
-                if (board[row][col].getDiscColor() == Constants.EMPTY) {
-                    
-                    /**
-                     * @note None of these methods have been refactored or restyled to my current standards
-                     */
-                    if (hasValidMoveNorth(row, col, currentPlayerColor) ||
-                        hasValidMoveNorthEast(row, col, currentPlayerColor) ||
-                        hasValidMoveEast(row, col, currentPlayerColor) ||
-                        hasValidMoveSouthEast(row, col, currentPlayerColor) ||
-                        hasValidMoveSouth(row, col, currentPlayerColor) ||
-                        hasValidMoveSouthWest(row, col, currentPlayerColor) ||
-                        hasValidMoveWest(row, col, currentPlayerColor) ||
-                        hasValidMoveNorthWest(row, col, currentPlayerColor)) {
-                        
-                            return true;
-                    }
-                }
-            }
-        }
-
-        // Game is over if there were no empty tiles or if there were no valid moves
-        return false;
+    public boolean hasMove(Color currentPlayerColor) {
+        return getLegalMoves(currentPlayerColor) != 0;
     }
-    
+
     /**
-     * Check whether there is a valid move to the north of a given empty tile
-     * 
-     * @param selectedRow the row of the selected tile
-     * @param selectedCol the column of the selected tile
+     * Find every legal move of a player in a single pass over the board
+     *
      * @param currentPlayerColor the color of the current player
-     * 
-     * @return whether there is a valid move in the north direction from the given empty tile
+     * @return a mask with bit (row * 8 + col) set for each legal move
      */
-    private boolean hasValidMoveNorth(int selectedRow, int selectedCol, Color currentPlayerColor) {
-        boolean isValidMove = false;
-        
-        int rowToCheck = selectedRow - 1; // Don't check the current row
-        
-        // Check that the row is within boundaries
-        if (rowToCheck >= 0 && rowToCheck < Constants.ROWS)
-        {
-            // Stop checking when we stumble upon an empty tile or contains same color
-            if (board[rowToCheck][selectedCol].getDiscColor() == Constants.EMPTY ||
-                board[rowToCheck][selectedCol].getDiscColor() == currentPlayerColor) {
-                
-                    isValidMove = false;
-            }
-            
-            // Valid move since adjacent tile must be occupied by enemy
-            else {   
-                // For as long as we are inbounds and run into discs of the opposing color, then keep checking in this direction
-                do
-                {
-                    rowToCheck--;
-                } while (rowToCheck >= 0 && board[rowToCheck][selectedCol].getDiscColor() != Constants.EMPTY //Two parameters.
-                         && board[rowToCheck][selectedCol].getDiscColor() != currentPlayerColor); //One parameter.
-                
-                // If the current square is out-of-bounds or empty, then the move is not valid
-                if (rowToCheck < 0 || board[rowToCheck][selectedCol].getDiscColor() == Constants.EMPTY)
-                    return false;
-                
-                // Otherwise, the current square contains our color, making this a valid direction since we can surround the opposing discs
-                else
-                    return true;
-                
-            }
-        }
-        
-        // We are not in bounds, so this is definitely not a valid direction.
-        else
-            isValidMove = false;
-        
-        return isValidMove;
+    public long getLegalMoves(Color currentPlayerColor) {
+        long start = Metrics.start();
+        long legalMoves = bitBoard.legalMoves(toSide(currentPlayerColor));
+        Metrics.movesGenerated(start);
+        return legalMoves;
     }
-    
+
     /**
-     * Check whether there is a valid move to the northwest of a given empty tile
-     * 
-     * @param row the row of the selected tile
-     * @param col the column of the selected tile
-     * @param color the color of the current player
-     * 
-     * @return whether there is a valid move in the northwest direction from the given empty tile
+     * Find every legal move of a player and store them in a list
+     *
+     * @param currentPlayerColor the color of the current player
+     * @param moves the list to fill, its previous contents are discarded
+     * @return the number of legal moves
      */
-    private boolean hasValidMoveNorthWest(int row, int col, Color color)
-    {
-        //There's no need to check the current square.
-        int rowToCheck = row - 1;
-        int columnToCheck = col - 1;
-        
-        //Make sure we are within array boundaries.
-        if ( (rowToCheck >= 0 && rowToCheck < Constants.ROWS) && (columnToCheck >= 0 && columnToCheck < Constants.COLUMNS) )
-        {
-            //The immediately adjacent square is empty or contains the same colored disc, so there is no valid move in this direction.
-            if (board[rowToCheck][columnToCheck].getDiscColor() == Constants.EMPTY || //first parameter
-                board[rowToCheck][columnToCheck].getDiscColor() == color) //second parameter
-                return false;
-            
-            //Otherwise, that immediately adjacent square must be occupied by an opposing disc.
-            else
-            {   
-                //For as long as we are inbounds and run into discs of the opposing color, then keep checking in this direction.
-                do
-                {
-                    rowToCheck--;
-                    columnToCheck--;
-                } while (rowToCheck >= 0 && columnToCheck >= 0 && //Two parameters.
-                         board[rowToCheck][columnToCheck].getDiscColor() != Constants.EMPTY && //One parameter.
-                         board[rowToCheck][columnToCheck].getDiscColor() != color); //One parameter.
-                
-                //If the current square is out-of-bounds or empty, then the move is not valid.
-                if (rowToCheck < 0 || columnToCheck < 0 || board[rowToCheck][columnToCheck].getDiscColor() == Constants.EMPTY)
-                    return false;
-                
-                //Otherwise, the current square contains our color, making this a valid direction since we can surround the opposing discs.
-                else
-                    return true;
-                
-            }//Closes opposing disc else statement.
-        }//Closes array boundaries if statement.
-        
-        //We are not in bounds, so this is definitely not a valid direction.
-        else
-            return false;
-        
+    public int getLegalMoves(Color currentPlayerColor, MoveList moves) {
+        return moves.setMoves(getLegalMoves(currentPlayerColor));
     }
-    
+
     /**
-     * Check whether there is a valid move to the west of a given empty tile
-     * 
-     * @param row the row of the selected tile
-     * @param col the column of the selected tile
-     * @param color the color of the current player
-     * 
-     * @return whether there is a valid move in the west direction from the given empty tile
+     * Convert a disc color to a bitboard side
+     *
+     * @param color the disc color
+     * @return the side playing that color
      */
-    private boolean hasValidMoveWest(int row, int col, Color color)
-    {
-        // There's no need to check the current square.
-        int columnToCheck = col - 1;
-        
-        // Make sure we are within array boundaries.
-        if (columnToCheck >= 0 && columnToCheck < Constants.COLUMNS)
-        {
-            // The immediately adjacent square is empty or contains the same colored disc, so there is no valid move in this direction.
-            if (board[row][columnToCheck].getDiscColor() == Constants.EMPTY || //first parameter
-                board[row][columnToCheck].getDiscColor() == color) //second parameter
-                return false;
-            
-            //Otherwise, that immediately adjacent square must be occupied by an opposing disc.
-            else
-            {   
-                //For as long as we are inbounds and run into discs of the opposing color, then keep checking in this direction.
-                do
-                {
-                    columnToCheck--;
-                } while (columnToCheck >= 0 && board[row][columnToCheck].getDiscColor() != Constants.EMPTY //Two parameters.
-                         && board[row][columnToCheck].getDiscColor() != color); //One parameter.
-                
-                //If the current square is out-of-bounds or empty, then the move is not valid.
-                if (columnToCheck < 0 || board[row][columnToCheck].getDiscColor() == Constants.EMPTY)
-                    return false;
-                
-                //Otherwise, the current square contains our color, making this a valid direction since we can surround the opposing discs.
-                else
-                    return true;
-                
-            }
-        }
-        
-        //We are not in bounds, so this is definitely not a valid direction.
-        else
-            return false;
-        
+    private int toSide(Color color) {
+        return color == Constants.DARK ? Constants.DARK_SIDE : Constants.LIGHT_SIDE;
     }
-    
+
     /**
-     * Check whether there is a valid move to the southwest of a given empty tile
-     * 
-     * @param row the row of the selected tile
-     * @param col the column of the selected tile
-     * @param color the color of the current player
-     * 
-     * @return whether there is a valid move in the southwest direction from the given empty tile
+     * Build a grid of discs from the bitboard. The grid is a copy, so changing
+     * it does not change the board; use setBoard for that.
+     *
+     * @return the board
      */
-    private boolean hasValidMoveSouthWest(int row, int col, Color color)
-    {
-        // There's no need to check the current square.
-        int rowToCheck = row + 1;
-        int columnToCheck = col - 1;
-        
-        // Make sure we are within array boundaries.
-        if ( (rowToCheck >= 0 && rowToCheck < Constants.ROWS) && (columnToCheck >= 0 && columnToCheck < Constants.COLUMNS) )
-        {
-            // The immediately adjacent square is empty or contains the same colored disc, so there is no valid move in this direction.
-            if (board[rowToCheck][columnToCheck].getDiscColor() == Constants.EMPTY || //first parameter
-                board[rowToCheck][columnToCheck].getDiscColor() == color) //second parameter
-                return false;
-            
-            // Otherwise, that immediately adjacent square must be occupied by an opposing disc.
-            else
-            {   
-                // For as long as we are inbounds and run into discs of the opposing color, then keep checking in this direction.
-                do
-                {
-                    rowToCheck++;
-                    columnToCheck--;
-                } while (rowToCheck < Constants.ROWS && columnToCheck >= 0 && //Two parameters.
-                         board[rowToCheck][columnToCheck].getDiscColor() != Constants.EMPTY && //One parameter.
-                         board[rowToCheck][columnToCheck].getDiscColor() != color); //One parameter.
-                
-                // If the current square is out-of-bounds or empty, then the move is not valid.
-                if (rowToCheck >= Constants.ROWS || columnToCheck < 0 || board[rowToCheck][columnToCheck].getDiscColor() == Constants.EMPTY)
-                    return false;
-                
-                // Otherwise, the current square contains our color, making this a valid direction since we can surround the opposing discs.
-                else
-                    return true;
-                
+    public Disc[][] getBoard() {
+        Disc[][] discs = new Disc[Constants.ROWS][Constants.COLUMNS];
+
+        for (int row = 0; row < Constants.ROWS; row++) {
+            for (int col = 0; col < Constants.COLUMNS; col++) {
+                discs[row][col] = new Disc();
+                discs[row][col].setDiscColor(getDiscColor(row, col));
             }
         }
-        
-        // We are not in bounds, so this is definitely not a valid direction.
-        else
-            return false;
-        
+
+        return discs;
     }
-    
+
     /**
-     * Check whether there is a valid move to the south of a given empty tile
-     * 
-     * @param row the row of the selected tile
-     * @param col the column of the selected tile
-     * @param color the color of the current player
-     * 
-     * @return whether there is a valid move in the south direction from the given empty tile
+     * @param board the board to set
      */
-    private boolean hasValidMoveSouth(int row, int col, Color color)
-    {
-        // There's no need to check the current square.
-        int rowToCheck = row + 1;
-        
-        // Make sure we are within array boundaries.
-        if (rowToCheck >= 0 && rowToCheck < Constants.ROWS)
-        {
-            // The immediately adjacent square is empty or contains the same colored disc, so there is no valid move in this direction.
-            if (board[rowToCheck][col].getDiscColor() == Constants.EMPTY || //first parameter
-                board[rowToCheck][col].getDiscColor() == color) //second parameter
-                return false;
-            
-            // Otherwise, that immediately adjacent square must be occupied by an opposing disc.
-            else
-            {   
-                // For as long as we are inbounds and run into discs of the opposing color, then keep checking in this direction.
-                do
-                {
-                    rowToCheck++;
-                } while (rowToCheck < Constants.ROWS && board[rowToCheck][col].getDiscColor() != Constants.EMPTY //Two parameters.
-                         && board[rowToCheck][col].getDiscColor() != color); //One parameter.
-                
-                // If the current square is out-of-bounds or empty, then the move is not valid.
-                if (rowToCheck >= Constants.ROWS || board[rowToCheck][col].getDiscColor() == Constants.EMPTY)
-                    return false;
-                
-                // Otherwise, the current square contains our color, making this a valid direction since we can surround the opposing discs.
-                else
-                    return true;
-                
+    public void setBoard(Disc[][] board) {
+        long dark = 0;
+        long light = 0;
+
+        for (int row = 0; row < Constants.ROWS; row++) {
+            for (int col = 0; col < Constants.COLUMNS; col++) {
+                if (board[row][col].getDiscColor() == Constants.DARK) {
+                    dark |= BitBoard.mask(row, col);
+                } else if (board[row][col].getDiscColor() == Constants.LIGHT) {
+                    light |= BitBoard.mask(row, col);
+                }
             }
         }
-        
-        // We are not in bounds, so this is definitely not a valid direction.
-        else
-            return false;
-        
+
+        bitBoard = new BitBoard(dark, light);
+        countDiscs();
     }
-    
+
     /**
-     * Check whether there is a valid move to the southeast of a given empty tile
-     * 
-     * @param row the row of the selected tile
-     * @param col the column of the selected tile
-     * @param color the color of the current player
-     * 
-     * @return whether there is a valid move in the southeast direction from the given empty tile
+     * @param row the row of the tile
+     * @param col the column of the tile
+     * @return the color of the disc on the tile, or Constants.EMPTY
      */
-    private boolean hasValidMoveSouthEast(int row, int col, Color color)
-    {
-        // There's no need to check the current square.
-        int rowToCheck = row + 1;
-        int columnToCheck = col + 1;
-        
-        // Make sure we are within array boundaries.
-        if ( (rowToCheck >= 0 && rowToCheck < Constants.ROWS) && (columnToCheck >= 0 && columnToCheck < Constants.COLUMNS) )
-        {
-            // The immediately adjacent square is empty or contains the same colored disc, so there is no valid move in this direction.
-            if (board[rowToCheck][columnToCheck].getDiscColor() == Constants.EMPTY || //first parameter
-                board[rowToCheck][columnToCheck].getDiscColor() == color) //second parameter
-                return false;
-            
-            // Otherwise, that immediately adjacent square must be occupied by an opposing disc.
-            else
-            {   
-                // For as long as we are inbounds and run into discs of the opposing color, then keep checking in this direction.
-                do
-                {
-                    rowToCheck++;
-                    columnToCheck++;
-                } while (rowToCheck < Constants.ROWS && columnToCheck < Constants.COLUMNS && //Two parameters.
-                         board[rowToCheck][columnToCheck].getDiscColor() != Constants.EMPTY && //One parameter.
-                         board[rowToCheck][columnToCheck].getDiscColor() != color); //One parameter.
-                
-                // If the current square is out-of-bounds or empty, then the move is not valid.
-                if (rowToCheck >= Constants.ROWS || columnToCheck >= Constants.COLUMNS || board[rowToCheck][columnToCheck].getDiscColor() == Constants.EMPTY)
-                    return false;
-                
-                // Otherwise, the current square contains our color, making this a valid direction since we can surround the opposing discs.
-                else
-                    return true;
-                
-            }
+    public Color getDiscColor(int row, int col) {
+        int side = bitBoard.getSide(BitBoard.square(row, col));
+
+        if (side == Constants.DARK_SIDE) {
+            return Constants.DARK;
+        } else if (side == Constants.LIGHT_SIDE) {
+            return Constants.LIGHT;
         }
-        
-        // We are not in bounds, so this is definitely not a valid direction.
-        else
-            return false;
-        
+
+        return Constants.EMPTY;
     }
-    
+
     /**
-     * Check whether there is a valid move to the east of a given empty tile
-     * 
-     * @param row the row of the selected tile
-     * @param col the column of the selected tile
-     * @param color the color of the current player
-     * 
-     * @return whether there is a valid move in the east direction from the given empty tile
+     * @param currentPlayerColor the color to move
+     * @return an immutable snapshot of the discs with the given color to move
      */
-    private boolean hasValidMoveEast(int row, int col, Color color)
-    {
-        // There's no need to check the current square.
-        int columnToCheck = col + 1;
-        
-        // Make sure we are within array boundaries.
-        if (columnToCheck >= 0 && columnToCheck < Constants.COLUMNS)
-        {
-            // The immediately adjacent square is empty or contains the same colored disc, so there is no valid move in this direction.
-            if (board[row][columnToCheck].getDiscColor() == Constants.EMPTY || //first parameter
-                board[row][columnToCheck].getDiscColor() == color) //second parameter
-                return false;
-            
-            // Otherwise, that immediately adjacent square must be occupied by an opposing disc.
-            else
-            {   
-                // For as long as we are inbounds and run into discs of the opposing color, then keep checking in this direction.
-                do
-                {
-                    columnToCheck++;
-                } while (columnToCheck < Constants.COLUMNS && board[row][columnToCheck].getDiscColor() != Constants.EMPTY //Two parameters.
-                         && board[row][columnToCheck].getDiscColor() != color); //One parameter.
-                
-                // If the current square is out-of-bounds or empty, then the move is not valid.
-                if (columnToCheck >= Constants.COLUMNS || board[row][columnToCheck].getDiscColor() == Constants.EMPTY)
-                    return false;
-                
-                // Otherwise, the current square contains our color, making this a valid direction since we can surround the opposing discs.
-                else
-                    return true;
-                
-            }
-        }
-        
-        // We are not in bounds, so this is definitely not a valid direction.
-        else
-            return false;
-        
+    public Position getPosition(Color currentPlayerColor) {
+        return new Position(bitBoard.getDark(), bitBoard.getLight(), toSide(currentPlayerColor));
     }
-    
+
     /**
-     * Check whether there is a valid move to the northeast of a given empty tile
-     * 
-     * @param row the row of the selected tile
-     * @param col the column of the selected tile
-     * @param color the color of the current player
-     * 
-     * @return whether there is a valid move in the northeast direction from the given empty tile
+     * Replace the discs on the board with the discs of a position. The side
+     * to move is not stored on the board; the caller keeps track of it.
+     *
+     * @param position the position to set
      */
-    private boolean hasValidMoveNorthEast(int row, int col, Color color)
-    {
-        // There's no need to check the current square.
-        int rowToCheck = row - 1;
-        int columnToCheck = col + 1;
-        
-        // Make sure we are within array boundaries.
-        if ( (rowToCheck >= 0 && rowToCheck < Constants.ROWS) && (columnToCheck >= 0 && columnToCheck < Constants.COLUMNS) )
-        {
-            // The immediately adjacent square is empty or contains the same colored disc, so there is no valid move in this direction.
-            if (board[rowToCheck][columnToCheck].getDiscColor() == Constants.EMPTY || //first parameter
-                board[rowToCheck][columnToCheck].getDiscColor() == color) //second parameter
-                return false;
-            
-            // Otherwise, that immediately adjacent square must be occupied by an opposing disc.
-            else
-            {   
-                // For as long as we are inbounds and run into discs of the opposing color, then keep checking in this direction.
-                do
-                {
-                    rowToCheck--;
-                    columnToCheck++;
-                } while (rowToCheck >= 0 && columnToCheck < Constants.COLUMNS && //Two parameters.
-                         board[rowToCheck][columnToCheck].getDiscColor() != Constants.EMPTY && //One parameter.
-                         board[rowToCheck][columnToCheck].getDiscColor() != color); //One parameter.
-                
-                // If the current square is out-of-bounds or empty, then the move is not valid.
-                if (rowToCheck < 0 || columnToCheck >= Constants.COLUMNS || board[rowToCheck][columnToCheck].getDiscColor() == Constants.EMPTY)
-                    return false;
-                
-                // Otherwise, the current square contains our color, making this a valid direction since we can surround the opposing discs.
-                else
-                    return true;
-                
-            }
-        }
-        
-        // We are not in bounds, so this is definitely not a valid direction.
-        else
-            return false;
-        
+    public void setPosition(Position position) {
+        bitBoard.setDark(position.getDark());
+        bitBoard.setLight(position.getLight());
+        countDiscs();
     }
-    
+
     /**
-     * @return the board
+     * @return the bitBoard
      */
-    public Disc[][] getBoard() {
-        return board;
+    public BitBoard getBitBoard() {
+        return bitBoard;
     }
 
     /**
-     * @param board the board to set
+     * @param bitBoard the bitBoard to set
      */
-    public void setBoard(Disc[][] board) {
-        this.board = board;
+    public void setBitBoard(BitBoard bitBoard) {
+        this.bitBoard = bitBoard;
+        countDiscs();
     }
 
     /**
@@ -1138,8 +351,8 @@ public class Board
     public void setPlayers(ArrayList<Player> players) {
         this.players = players;
     }
-    
-    private Disc[][] board;
+
+    private BitBoard bitBoard;
     private int darkCount;
     private int lightCount;
     private ArrayList<Player> players;
@@ -1,16 +1,20 @@
-package core;
-
-import java.awt.Color;
-
-public class Constants {
-    public static final Color DARK = Color.BLACK;
-    public static final Color LIGHT = Color.WHITE;
-    public static final Color EMPTY = null;
-    
-    public static final int PLAYER_ONE = 0;
-    public static final int PLAYER_TWO = 1;
-    public static final int ROWS = 8;
-    public static final int COLUMNS = 8;
-    public static final int MAX_PLAYERS = 2;
-    public static final int TWO = 2;
+package core;
+
+import java.awt.Color;
+
+public class Constants {
+    public static final Color DARK = Color.BLACK;
+    public static final Color LIGHT = Color.WHITE;
+    public static final Color EMPTY = null;
+    
+    public static final int PLAYER_ONE = 0;
+    public static final int PLAYER_TWO = 1;
+    public static final int ROWS = 8;
+    public static final int COLUMNS = 8;
+    public static final int MAX_PLAYERS = 2;
+    public static final int TWO = 2;
+    
+    public static final int DARK_SIDE = PLAYER_ONE;
+    public static final int LIGHT_SIDE = PLAYER_TWO;
+    public static final int NO_SIDE = -1;
 }
\ No newline at end of file
@@ -1,21 +1,27 @@
 package core;
 
 import java.util.ArrayList;
-import javax.swing.JOptionPane;
 
 public class Game {
 
-    public Game()
+    /**
+     * @param playerOneName the name of the dark player
+     * @param playerTwoName the name of the light player
+     */
+    public Game(String playerOneName, String playerTwoName)
     {
-        initObjects();
+        initObjects(playerOneName, playerTwoName);
     }
     
     /**
      * Start the game
+     * 
+     * @param playerOneName the name of the dark player
+     * @param playerTwoName the name of the light player
      */
-    private void initObjects() {
+    private void initObjects(String playerOneName, String playerTwoName) {
         board = new Board();
-        createPlayers();
+        createPlayers(playerOneName, playerTwoName);
         board.setPlayers(playerList);
         printPlayers();
         
@@ -24,18 +30,21 @@ public class Game {
     }
     
     /**
-     * Ask players for their names, and assign them disc colors
+     * Create the players with their names, and assign them disc colors
+     * 
+     * @param playerOneName the name of the dark player
+     * @param playerTwoName the name of the light player
      */
-    private void createPlayers()
+    private void createPlayers(String playerOneName, String playerTwoName)
     {
         playerList = new ArrayList<>();
+        String[] playerNames = { playerOneName, playerTwoName };
         
         for (int playerIdx = 0; playerIdx < Constants.MAX_PLAYERS; playerIdx++)
         {
             Player player = new Player();
             
-            String playerName = JOptionPane.showInputDialog(null, "Enter player's name");
-            player.setName(playerName);
+            player.setName(playerNames[playerIdx]);
             
             if (playerIdx == Constants.PLAYER_ONE) {
                 player.setDiscColor(Constants.DARK);
@@ -51,12 +60,27 @@ public class Game {
     }
     
     /**
-     * Calculates and set scores for players
+     * Set the scores of the players from the board's disc counts
      */
     public void calculateScore() {
         board.calculateScore();
-        playerList.get(Constants.PLAYER_ONE).setScore(board.getDarkCount());
-        playerList.get(Constants.PLAYER_TWO).setScore(board.getLightCount());
+    }
+    
+    /**
+     * Let a move source, such as an AI engine, play instead of a person
+     * 
+     * @param playerIdx Constants.PLAYER_ONE or Constants.PLAYER_TWO
+     * @param moveSource the move source to play for the player, or null for a person
+     */
+    public void setMoveSource(int playerIdx, MoveSource moveSource) {
+        playerList.get(playerIdx).setMoveSource(moveSource);
+    }
+    
+    /**
+     * @return whether the current player is played by a move source rather than a person
+     */
+    public boolean isCurrentPlayerAutomatic() {
+        return currentPlayer.getMoveSource() != null;
     }
     
     /**
@@ -0,0 +1,30 @@
+package core;
+
+import java.awt.Color;
+
+/**
+ * Receives the events of a game played by a GameRunner. Every method does
+ * nothing by default, so listeners only override what they need.
+ */
+public interface GameListener
+{
+    /**
+     * @param color the color that moved
+     * @param move the square of the move
+     * @param flips the mask of flipped discs
+     */
+    default void movePlayed(Color color, int move, long flips) {
+    }
+
+    /**
+     * @param color the color that had no legal move
+     */
+    default void passed(Color color) {
+    }
+
+    /**
+     * @param result the final result of the game
+     */
+    default void gameEnded(GameResult result) {
+    }
+}
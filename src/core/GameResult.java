@@ -0,0 +1,70 @@
+package core;
+
+import java.awt.Color;
+
+/**
+ * The outcome of a finished game
+ */
+public class GameResult
+{
+    /**
+     * @param darkCount the number of dark discs at the end of the game
+     * @param lightCount the number of light discs at the end of the game
+     * @param moves the squares of the moves in the order they were played, passes excluded
+     */
+    public GameResult(int darkCount, int lightCount, int[] moves) {
+        this.darkCount = darkCount;
+        this.lightCount = lightCount;
+        this.moves = moves;
+    }
+
+    /**
+     * @return the color with more discs, or Constants.EMPTY for a draw
+     */
+    public Color getWinner() {
+        if (darkCount > lightCount) {
+            return Constants.DARK;
+        } else if (lightCount > darkCount) {
+            return Constants.LIGHT;
+        }
+
+        return Constants.EMPTY;
+    }
+
+    /**
+     * @return the number of dark discs minus the number of light discs
+     */
+    public int getDiscDifference() {
+        return darkCount - lightCount;
+    }
+
+    /**
+     * @return the darkCount
+     */
+    public int getDarkCount() {
+        return darkCount;
+    }
+
+    /**
+     * @return the lightCount
+     */
+    public int getLightCount() {
+        return lightCount;
+    }
+
+    /**
+     * @return the moves
+     */
+    public int[] getMoves() {
+        return moves;
+    }
+
+    @Override
+    public String toString() {
+        return "Dark " + darkCount + " - " + lightCount + " Light after " + moves.length + " moves";
+    }
+
+    private final int darkCount;
+    private final int lightCount;
+    private final int[] moves;
+}
@@ -0,0 +1,173 @@
+package core;
+
+import core.metrics.Metrics;
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Plays complete games between two move sources without any user interface.
+ *
+ * A runner keeps one board and reuses it for every game, so it is cheap to
+ * play many games in a row. A runner is not thread-safe; use one per thread.
+ */
+public class GameRunner
+{
+    /**
+     * @param darkSource the move source of the dark player
+     * @param lightSource the move source of the light player
+     */
+    public GameRunner(MoveSource darkSource, MoveSource lightSource) {
+        this.darkSource = darkSource;
+        this.lightSource = lightSource;
+        initObjects();
+    }
+
+    /**
+     * Make the board and the move buffer shared by all games
+     */
+    private void initObjects() {
+        board = new Board();
+        moves = new int[Constants.ROWS * Constants.COLUMNS];
+        listeners = new ArrayList<>();
+    }
+
+    /**
+     * Play a game from the initial position
+     *
+     * @return the result of the game
+     */
+    public GameResult play() {
+        board.reset();
+        return play(Constants.DARK);
+    }
+
+    /**
+     * Play a game from the current position of the board until neither player
+     * can move. A player without a legal move passes.
+     *
+     * @param firstColor the color to move first
+     * @return the result of the game
+     */
+    public GameResult play(Color firstColor) {
+        Color color = firstColor;
+        int moveCount = 0;
+        int passes = 0;
+
+        while (passes < Constants.MAX_PLAYERS) {
+            long legalMoves = board.getLegalMoves(color);
+
+            if (legalMoves == 0) {
+                passes++;
+                firePassed(color);
+            } else {
+                passes = 0;
+
+                int move = getMoveSource(color).selectMove(board, color, legalMoves);
+                // A shift only uses the low six bits, so check the range first
+                if (move < 0 || move >= Constants.ROWS * Constants.COLUMNS || (legalMoves & (1L << move)) == 0) {
+                    throw new IllegalStateException("Move source chose an illegal move " + move + " for " + color);
+                }
+
+                long flips = board.play(move, color);
+                moves[moveCount++] = move;
+                fireMovePlayed(color, move, flips);
+            }
+
+            color = Board.getNextColor(color);
+        }
+
+        GameResult result = new GameResult(board.getDarkCount(), board.getLightCount(), Arrays.copyOf(moves, moveCount));
+        Metrics.gameFinished(moveCount);
+        fireGameEnded(result);
+        return result;
+    }
+
+    /**
+     * @param color the color to move
+     * @return the move source playing that color
+     */
+    private MoveSource getMoveSource(Color color) {
+        return color == Constants.DARK ? darkSource : lightSource;
+    }
+
+    private void fireMovePlayed(Color color, int move, long flips) {
+        for (GameListener listener : listeners) {
+            listener.movePlayed(color, move, flips);
+        }
+    }
+
+    private void firePassed(Color color) {
+        for (GameListener listener : listeners) {
+            listener.passed(color);
+        }
+    }
+
+    private void fireGameEnded(GameResult result) {
+        for (GameListener listener : listeners) {
+            listener.gameEnded(result);
+        }
+    }
+
+    /**
+     * @param listener the listener to notify of game events
+     */
+    public void addGameListener(GameListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener the listener to stop notifying
+     */
+    public void removeGameListener(GameListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return the board
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * @param board the board to set
+     */
+    public void setBoard(Board board) {
+        this.board = board;
+    }
+
+    /**
+     * @return the darkSource
+     */
+    public MoveSource getDarkSource() {
+        return darkSource;
+    }
+
+    /**
+     * @param darkSource the darkSource to set
+     */
+    public void setDarkSource(MoveSource darkSource) {
+        this.darkSource = darkSource;
+    }
+
+    /**
+     * @return the lightSource
+     */
+    public MoveSource getLightSource() {
+        return lightSource;
+    }
+
+    /**
+     * @param lightSource the lightSource to set
+     */
+    public void setLightSource(MoveSource lightSource) {
+        this.lightSource = lightSource;
+    }
+
+    private Board board;
+    private int[] moves;
+    private ArrayList<GameListener> listeners;
+    private MoveSource darkSource;
+    private MoveSource lightSource;
+}
@@ -0,0 +1,80 @@
+package core;
+
+/**
+ * A reusable list of moves, stored as square indices (row * 8 + col).
+ *
+ * The list never allocates after construction, so callers can keep one around
+ * and refill it from a move mask as often as they like.
+ */
+public class MoveList
+{
+    public MoveList() {
+        squares = new int[Constants.ROWS * Constants.COLUMNS];
+    }
+
+    /**
+     * Replace the contents of the list with the moves of a mask
+     *
+     * @param moves the mask of moves, such as one returned by BitBoard.legalMoves
+     * @return the number of moves in the list
+     */
+    public int setMoves(long moves) {
+        size = 0;
+
+        // Pop the lowest set bit until the mask is empty
+        while (moves != 0) {
+            squares[size++] = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+        }
+
+        return size;
+    }
+
+    /**
+     * Remove all moves from the list
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @param index the position in the list
+     * @return the square of the move
+     */
+    public int get(int index) {
+        return squares[index];
+    }
+
+    /**
+     * @param index the position in the list
+     * @return the row of the move
+     */
+    public int getRow(int index) {
+        return squares[index] / Constants.COLUMNS;
+    }
+
+    /**
+     * @param index the position in the list
+     * @return the column of the move
+     */
+    public int getCol(int index) {
+        return squares[index] % Constants.COLUMNS;
+    }
+
+    /**
+     * @return the number of moves in the list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return whether the list has no moves
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private final int[] squares;
+    private int size;
+}
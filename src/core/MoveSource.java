@@ -0,0 +1,19 @@
+package core;
+
+import java.awt.Color;
+
+/**
+ * Chooses the moves for one side of a game, such as a bot or a remote player
+ */
+public interface MoveSource
+{
+    /**
+     * Choose a move for the given color
+     *
+     * @param board the current position, which must not be left changed
+     * @param color the color to move
+     * @param legalMoves the mask of legal moves, never 0
+     * @return the square of the chosen move (row * 8 + col)
+     */
+    int selectMove(Board board, Color color, long legalMoves);
+}
@@ -0,0 +1,111 @@
+package core;
+
+import java.awt.Color;
+
+/**
+ * Counts the leaves of the move tree to a fixed depth. The counts from the
+ * initial position are well known, so comparing against them checks that
+ * move generation and flipping are still correct after a change.
+ *
+ * A pass uses up a ply like any other move, and a position where neither
+ * side can move is a leaf even when depth is left.
+ */
+public class Perft
+{
+    /**
+     * @param board the board holding the position
+     * @param color the color to move
+     * @param depth the number of plies to search
+     * @return the number of leaves
+     */
+    public static long count(Board board, Color color, int depth) {
+        BitBoard bitBoard = board.getBitBoard();
+        long dark = bitBoard.getDark();
+        long light = bitBoard.getLight();
+
+        return color == Constants.DARK ? count(dark, light, depth) : count(light, dark, depth);
+    }
+
+    /**
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @param depth the number of plies to search
+     * @return the number of leaves
+     */
+    public static long count(long player, long opponent, int depth) {
+        return count(player, opponent, depth, false);
+    }
+
+    /**
+     * Count the leaves below each root move separately
+     *
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @param depth the number of plies to search, at least 1
+     * @return the leaves per square, with a pass counted at index PASS
+     */
+    public static long[] divide(long player, long opponent, int depth) {
+        long[] counts = new long[PASS + 1];
+        long moves = BitBoard.legalMoves(player, opponent);
+
+        if (moves == 0) {
+            counts[PASS] = count(opponent, player, depth - 1, true);
+        }
+
+        for (; moves != 0; moves &= moves - 1) {
+            int move = Long.numberOfTrailingZeros(moves);
+            long flips = BitBoard.flips(move, player, opponent);
+            counts[move] = count(opponent & ~flips, player | flips | (1L << move), depth - 1, false);
+        }
+
+        return counts;
+    }
+
+    /**
+     * @param depth the number of plies
+     * @return the known leaf count from the initial position, or -1 if there is none
+     */
+    public static long getReferenceCount(int depth) {
+        return depth >= 0 && depth < REFERENCE_COUNTS.length ? REFERENCE_COUNTS[depth] : -1;
+    }
+
+    /**
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @param depth the remaining depth
+     * @param passed whether the previous move was a pass
+     * @return the number of leaves
+     */
+    private static long count(long player, long opponent, int depth, boolean passed) {
+        if (depth == 0) {
+            return 1;
+        }
+
+        long moves = BitBoard.legalMoves(player, opponent);
+
+        if (depth == 1) {
+            // Counting the moves is enough on the last ply; a pass or a finished game is one leaf
+            return moves != 0 ? Long.bitCount(moves) : 1;
+        } else if (moves == 0) {
+            return passed ? 1 : count(opponent, player, depth - 1, true);
+        }
+
+        long leaves = 0;
+        for (; moves != 0; moves &= moves - 1) {
+            int move = Long.numberOfTrailingZeros(moves);
+            long flips = BitBoard.flips(move, player, opponent);
+            leaves += count(opponent & ~flips, player | flips | (1L << move), depth - 1, false);
+        }
+
+        return leaves;
+    }
+
+    // Index of a pass in the counts returned by divide
+    public static final int PASS = Constants.ROWS * Constants.COLUMNS;
+
+    // Leaves from the initial position, indexed by depth
+    private static final long[] REFERENCE_COUNTS = {
+        1L, 4L, 12L, 56L, 244L, 1396L, 8200L, 55092L, 390216L, 3005288L,
+        24571284L, 212258800L, 1939886636L, 18429641748L, 184042084512L
+    };
+}
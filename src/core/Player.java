@@ -31,6 +31,20 @@ public class Player {
         this.discColor = discColor;
     }
 
+    /**
+     * @return the move source playing for this player, or null for a person at the board
+     */
+    public MoveSource getMoveSource() {
+        return moveSource;
+    }
+
+    /**
+     * @param moveSource the move source to play for this player, or null for a person at the board
+     */
+    public void setMoveSource(MoveSource moveSource) {
+        this.moveSource = moveSource;
+    }
+
     /**
      * @return the score
      */
@@ -48,4 +62,5 @@ public class Player {
     private String name;
     private Color discColor;
     private int score;
+    private MoveSource moveSource;
 }
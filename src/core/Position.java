@@ -0,0 +1,186 @@
+package core;
+
+import java.awt.Color;
+
+/**
+ * An immutable snapshot of a position: the two disc masks, the side to move
+ * and the Zobrist hash, which is worked out once when the position is made.
+ * Copying is a reference copy and equals and hashCode never look at a
+ * board, so positions can be used freely as map keys and cache entries.
+ */
+public final class Position
+{
+    /**
+     * @param dark the mask of the dark discs
+     * @param light the mask of the light discs
+     * @param side the side to move (Constants.DARK_SIDE or Constants.LIGHT_SIDE)
+     */
+    public Position(long dark, long light, int side) {
+        this(dark, light, side, Zobrist.hash(dark, light, side));
+    }
+
+    /**
+     * @param dark the mask of the dark discs
+     * @param light the mask of the light discs
+     * @param side the side to move
+     * @param hash the Zobrist hash of the position, already calculated
+     */
+    private Position(long dark, long light, int side, long hash) {
+        if ((dark & light) != 0) {
+            throw new IllegalArgumentException("Dark and light discs overlap");
+        } else if (side != Constants.DARK_SIDE && side != Constants.LIGHT_SIDE) {
+            throw new IllegalArgumentException("Not a side: " + side);
+        }
+
+        this.dark = dark;
+        this.light = light;
+        this.side = side;
+        this.hash = hash;
+    }
+
+    /**
+     * @return the discs of the side to move
+     */
+    public long getPlayer() {
+        return side == Constants.DARK_SIDE ? dark : light;
+    }
+
+    /**
+     * @return the discs of the side not to move
+     */
+    public long getOpponent() {
+        return side == Constants.DARK_SIDE ? light : dark;
+    }
+
+    /**
+     * @return the color to move
+     */
+    public Color getColor() {
+        return side == Constants.DARK_SIDE ? Constants.DARK : Constants.LIGHT;
+    }
+
+    /**
+     * @return the mask of the empty tiles
+     */
+    public long getEmpty() {
+        return ~(dark | light);
+    }
+
+    /**
+     * @return the mask of legal moves for the side to move
+     */
+    public long legalMoves() {
+        return BitBoard.legalMoves(getPlayer(), getOpponent());
+    }
+
+    /**
+     * @return whether neither side can move
+     */
+    public boolean isGameOver() {
+        return legalMoves() == 0 && BitBoard.legalMoves(getOpponent(), getPlayer()) == 0;
+    }
+
+    /**
+     * @param move the square of the move
+     * @return the position after the side to move plays the move
+     */
+    public Position play(int move) {
+        long player = getPlayer();
+        long opponent = getOpponent();
+        long flips = (getEmpty() & (1L << move)) != 0 ? BitBoard.flips(move, player, opponent) : 0;
+
+        if (flips == 0) {
+            throw new IllegalArgumentException("Illegal move " + Transcript.toNotation(move));
+        }
+
+        long placed = (1L << move) | flips;
+        long newHash = Zobrist.play(hash, move, flips, side);
+
+        if (side == Constants.DARK_SIDE) {
+            return new Position(dark | placed, light & ~flips, 1 - side, newHash);
+        }
+        return new Position(dark & ~flips, light | placed, 1 - side, newHash);
+    }
+
+    /**
+     * @return the same discs with the other side to move
+     */
+    public Position pass() {
+        return new Position(dark, light, 1 - side, Zobrist.pass(hash));
+    }
+
+    /**
+     * @return a new bitboard holding the discs of this position
+     */
+    public BitBoard toBitBoard() {
+        return new BitBoard(dark, light);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        } else if (!(other instanceof Position)) {
+            return false;
+        }
+
+        Position position = (Position) other;
+        return hash == position.hash && dark == position.dark && light == position.light && side == position.side;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(Constants.ROWS * (Constants.COLUMNS + 1) + 16);
+
+        for (int square = 0; square < Constants.ROWS * Constants.COLUMNS; square++) {
+            long tile = 1L << square;
+            text.append((dark & tile) != 0 ? 'X' : (light & tile) != 0 ? 'O' : '-');
+
+            if (square % Constants.COLUMNS == Constants.COLUMNS - 1) {
+                text.append('\n');
+            }
+        }
+
+        return text.append(side == Constants.DARK_SIDE ? "X to move" : "O to move").toString();
+    }
+
+    /**
+     * @return the dark discs
+     */
+    public long getDark() {
+        return dark;
+    }
+
+    /**
+     * @return the light discs
+     */
+    public long getLight() {
+        return light;
+    }
+
+    /**
+     * @return the side to move
+     */
+    public int getSide() {
+        return side;
+    }
+
+    /**
+     * @return the Zobrist hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    public static final Position INITIAL = new Position(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT, Constants.DARK_SIDE);
+
+    private final long dark;
+    private final long light;
+    private final int side;
+    private final long hash;
+}
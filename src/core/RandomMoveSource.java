@@ -0,0 +1,33 @@
+package core;
+
+import java.awt.Color;
+import java.util.Random;
+
+/**
+ * Plays a uniformly random legal move
+ */
+public class RandomMoveSource implements MoveSource
+{
+    public RandomMoveSource() {
+        random = new Random();
+    }
+
+    /**
+     * @param seed the seed of the random generator, for repeatable games
+     */
+    public RandomMoveSource(long seed) {
+        random = new Random(seed);
+    }
+
+    @Override
+    public int selectMove(Board board, Color color, long legalMoves) {
+        // Skip a random number of moves, then take the lowest one left
+        for (int skip = random.nextInt(Long.bitCount(legalMoves)); skip > 0; skip--) {
+            legalMoves &= legalMoves - 1;
+        }
+
+        return Long.numberOfTrailingZeros(legalMoves);
+    }
+
+    private final Random random;
+}
@@ -0,0 +1,216 @@
+package core;
+
+/**
+ * The eight symmetries of the board (four rotations, each with or without a
+ * mirror image) applied to disc masks with a few bit operations each. A
+ * position and its seven images are the same position for every purpose,
+ * so books, caches and data sets can store one canonical representative:
+ * the image with the smallest dark mask, ties broken by the light mask.
+ */
+public class Symmetry
+{
+    /**
+     * @param discs a mask of discs
+     * @param symmetry one of the symmetry constants
+     * @return the mask after applying the symmetry
+     */
+    public static long transform(long discs, int symmetry) {
+        switch (symmetry) {
+            case IDENTITY:
+                return discs;
+            case ROTATE_90:
+                return mirrorHorizontal(flipDiagonal(discs));
+            case ROTATE_180:
+                return Long.reverse(discs);
+            case ROTATE_270:
+                return flipDiagonal(mirrorHorizontal(discs));
+            case FLIP_VERTICAL:
+                return Long.reverseBytes(discs);
+            case FLIP_HORIZONTAL:
+                return mirrorHorizontal(discs);
+            case FLIP_DIAGONAL:
+                return flipDiagonal(discs);
+            case FLIP_ANTI_DIAGONAL:
+                return Long.reverse(flipDiagonal(discs));
+            default:
+                throw new IllegalArgumentException("Not a symmetry: " + symmetry);
+        }
+    }
+
+    /**
+     * @param square a square (row * 8 + col)
+     * @param symmetry one of the symmetry constants
+     * @return the square it is moved to by the symmetry
+     */
+    public static int transformSquare(int square, int symmetry) {
+        return Long.numberOfTrailingZeros(transform(1L << square, symmetry));
+    }
+
+    /**
+     * @param symmetry one of the symmetry constants
+     * @return the symmetry that undoes it
+     */
+    public static int inverse(int symmetry) {
+        if (symmetry == ROTATE_90) {
+            return ROTATE_270;
+        } else if (symmetry == ROTATE_270) {
+            return ROTATE_90;
+        }
+
+        // Every other symmetry is its own inverse
+        return symmetry;
+    }
+
+    /**
+     * @param position a position
+     * @param symmetry one of the symmetry constants
+     * @return the position after applying the symmetry, with the same side to move
+     */
+    public static Position transform(Position position, int symmetry) {
+        if (symmetry == IDENTITY) {
+            return position;
+        }
+
+        return new Position(transform(position.getDark(), symmetry), transform(position.getLight(), symmetry), position.getSide());
+    }
+
+    /**
+     * Find the symmetry that maps a position to its canonical representative
+     *
+     * @param dark the mask of the dark discs
+     * @param light the mask of the light discs
+     * @return the symmetry to apply, IDENTITY if the position is already canonical
+     */
+    public static int getCanonicalSymmetry(long dark, long light) {
+        // Build the images of the dark mask from one another rather than from scratch
+        long mirrored = mirrorHorizontal(dark);
+        long diagonal = flipDiagonal(dark);
+
+        int best = IDENTITY;
+        long bestDark = dark;
+        long bestLight = light;
+
+        for (int symmetry = IDENTITY + 1; symmetry < SYMMETRIES; symmetry++) {
+            long image = darkImage(dark, mirrored, diagonal, symmetry);
+
+            if (image < bestDark) {
+                best = symmetry;
+                bestDark = image;
+                bestLight = transform(light, symmetry);
+            } else if (image == bestDark) {
+                // Only symmetric dark masks need the light mask to break the tie
+                long imageLight = transform(light, symmetry);
+
+                if (imageLight < bestLight) {
+                    best = symmetry;
+                    bestLight = imageLight;
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * @param dark a mask of discs
+     * @param mirrored the mask mirrored horizontally
+     * @param diagonal the mask flipped in the diagonal
+     * @param symmetry one of the symmetry constants
+     * @return the mask after applying the symmetry, the same as transform gives
+     */
+    private static long darkImage(long dark, long mirrored, long diagonal, int symmetry) {
+        switch (symmetry) {
+            case ROTATE_90:
+                return mirrorHorizontal(diagonal);
+            case ROTATE_180:
+                return Long.reverse(dark);
+            case ROTATE_270:
+                return flipDiagonal(mirrored);
+            case FLIP_VERTICAL:
+                return Long.reverseBytes(dark);
+            case FLIP_HORIZONTAL:
+                return mirrored;
+            case FLIP_DIAGONAL:
+                return diagonal;
+            case FLIP_ANTI_DIAGONAL:
+                return Long.reverse(diagonal);
+            default:
+                return dark;
+        }
+    }
+
+    /**
+     * Pick one square out of the squares a symmetric position cannot tell
+     * apart, such as the four first moves of a game
+     *
+     * @param dark the mask of the dark discs
+     * @param light the mask of the light discs
+     * @param square a square (row * 8 + col)
+     * @return the smallest square the square is moved to by a symmetry that leaves the position unchanged
+     */
+    public static int getCanonicalSquare(long dark, long light, int square) {
+        int canonical = square;
+
+        for (int symmetry = IDENTITY + 1; symmetry < SYMMETRIES; symmetry++) {
+            if (transform(dark, symmetry) == dark && transform(light, symmetry) == light) {
+                canonical = Math.min(canonical, transformSquare(square, symmetry));
+            }
+        }
+
+        return canonical;
+    }
+
+    /**
+     * @param position a position
+     * @return the symmetry that maps the position to its canonical representative
+     */
+    public static int getCanonicalSymmetry(Position position) {
+        return getCanonicalSymmetry(position.getDark(), position.getLight());
+    }
+
+    /**
+     * @param position a position
+     * @return the canonical representative of the position
+     */
+    public static Position canonical(Position position) {
+        return transform(position, getCanonicalSymmetry(position));
+    }
+
+    /**
+     * Swap the columns of every row, so column 0 becomes column 7
+     *
+     * @param discs a mask of discs
+     * @return the mirrored mask
+     */
+    private static long mirrorHorizontal(long discs) {
+        discs = ((discs >>> 1) & 0x5555555555555555L) | ((discs & 0x5555555555555555L) << 1);
+        discs = ((discs >>> 2) & 0x3333333333333333L) | ((discs & 0x3333333333333333L) << 2);
+        return ((discs >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((discs & 0x0F0F0F0F0F0F0F0FL) << 4);
+    }
+
+    /**
+     * Swap rows and columns, mirroring the board in the diagonal through the
+     * top-left and bottom-right corners
+     *
+     * @param discs a mask of discs
+     * @return the mirrored mask
+     */
+    private static long flipDiagonal(long discs) {
+        long swapped = 0x0F0F0F0F00000000L & (discs ^ (discs << 28));
+        discs ^= swapped ^ (swapped >>> 28);
+        swapped = 0x3333000033330000L & (discs ^ (discs << 14));
+        discs ^= swapped ^ (swapped >>> 14);
+        swapped = 0x5500550055005500L & (discs ^ (discs << 7));
+        return discs ^ swapped ^ (swapped >>> 7);
+    }
+
+    public static final int IDENTITY = 0;
+    public static final int ROTATE_90 = 1;
+    public static final int ROTATE_180 = 2;
+    public static final int ROTATE_270 = 3;
+    public static final int FLIP_VERTICAL = 4;
+    public static final int FLIP_HORIZONTAL = 5;
+    public static final int FLIP_DIAGONAL = 6;
+    public static final int FLIP_ANTI_DIAGONAL = 7;
+    public static final int SYMMETRIES = 8;
+}
@@ -0,0 +1,97 @@
+package core;
+
+import java.awt.Color;
+
+/**
+ * Converts between move squares and the usual transcript notation, where a
+ * move is a column letter and a row number ("f5") and a game is the moves
+ * written one after another ("f5d6c3d3c4").
+ */
+public class Transcript
+{
+    /**
+     * @param move a square (row * 8 + col)
+     * @return the move in transcript notation, such as "f5"
+     */
+    public static String toNotation(int move) {
+        char column = (char) ('a' + move % Constants.COLUMNS);
+        return column + String.valueOf(move / Constants.COLUMNS + 1);
+    }
+
+    /**
+     * @param notation a move in transcript notation, upper or lower case
+     * @return the square of the move
+     */
+    public static int parseMove(String notation) {
+        if (notation.length() != 2) {
+            throw new IllegalArgumentException("Not a move: " + notation);
+        }
+
+        int col = Character.toLowerCase(notation.charAt(0)) - 'a';
+        int row = notation.charAt(1) - '1';
+
+        if (col < 0 || col >= Constants.COLUMNS || row < 0 || row >= Constants.ROWS) {
+            throw new IllegalArgumentException("Not a move: " + notation);
+        }
+
+        return BitBoard.square(row, col);
+    }
+
+    /**
+     * @param transcript the moves of a game, such as "f5d6c3"; spaces are ignored
+     * @return the squares of the moves in order
+     */
+    public static int[] parse(String transcript) {
+        String moves = transcript.replaceAll("\\s", "");
+
+        if (moves.length() % 2 != 0) {
+            throw new IllegalArgumentException("Transcript has an odd number of characters: " + transcript);
+        }
+
+        int[] squares = new int[moves.length() / 2];
+        for (int index = 0; index < squares.length; index++) {
+            squares[index] = parseMove(moves.substring(index * 2, index * 2 + 2));
+        }
+
+        return squares;
+    }
+
+    /**
+     * @param moves the squares of the moves in order
+     * @return the transcript of the moves
+     */
+    public static String toString(int[] moves) {
+        StringBuilder transcript = new StringBuilder(moves.length * 2);
+
+        for (int move : moves) {
+            transcript.append(toNotation(move));
+        }
+
+        return transcript.toString();
+    }
+
+    /**
+     * Play a transcript from the initial position. Passes are not written in
+     * transcripts, so a side without a legal move is skipped automatically.
+     *
+     * @param moves the squares of the moves in order
+     * @param board the board to play on; it is reset first
+     * @return the color to move after the last move
+     */
+    public static Color replay(int[] moves, Board board) {
+        Color color = Constants.DARK;
+        board.reset();
+
+        for (int move : moves) {
+            if (board.getLegalMoves(color) == 0) {
+                color = Board.getNextColor(color);
+            }
+            if (board.play(move, color) == 0) {
+                throw new IllegalArgumentException("Illegal move " + toNotation(move) + " in " + toString(moves));
+            }
+            color = Board.getNextColor(color);
+        }
+
+        return color;
+    }
+}
@@ -0,0 +1,98 @@
+package core;
+
+/**
+ * Zobrist keys for hashing positions.
+ *
+ * The hash of a position is the XOR of one random key per disc (which depends
+ * on its square and color) and, when light is to move, the side key. Because
+ * XOR undoes itself, a move updates the hash by XORing only the squares that
+ * changed, instead of rehashing the whole board.
+ */
+public class Zobrist
+{
+    /**
+     * Hash a position from scratch
+     *
+     * @param dark the dark discs
+     * @param light the light discs
+     * @param side the side to move
+     * @return the hash of the position
+     */
+    public static long hash(long dark, long light, int side) {
+        long hash = side == Constants.LIGHT_SIDE ? SIDE_KEY : 0;
+
+        for (long discs = dark; discs != 0; discs &= discs - 1) {
+            hash ^= KEYS[Constants.DARK_SIDE][Long.numberOfTrailingZeros(discs)];
+        }
+        for (long discs = light; discs != 0; discs &= discs - 1) {
+            hash ^= KEYS[Constants.LIGHT_SIDE][Long.numberOfTrailingZeros(discs)];
+        }
+
+        return hash;
+    }
+
+    /**
+     * Update a hash for a move and hand the turn to the other side
+     *
+     * @param hash the hash before the move
+     * @param square the square of the placed disc
+     * @param flips the discs the move flipped
+     * @param side the side that moved
+     * @return the hash after the move
+     */
+    public static long play(long hash, int square, long flips, int side) {
+        hash ^= KEYS[side][square] ^ SIDE_KEY;
+
+        // A flipped disc swaps its key of one color for the other
+        for (; flips != 0; flips &= flips - 1) {
+            hash ^= FLIP_KEYS[Long.numberOfTrailingZeros(flips)];
+        }
+
+        return hash;
+    }
+
+    /**
+     * Update a hash for a pass
+     *
+     * @param hash the hash before the pass
+     * @return the hash with the other side to move
+     */
+    public static long pass(long hash) {
+        return hash ^ SIDE_KEY;
+    }
+
+    /**
+     * The SplitMix64 generator, so the keys are the same on every run
+     *
+     * @param state the previous state
+     * @return the next random value
+     */
+    private static long nextKey(long state) {
+        long key = state;
+        key = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+        key = (key ^ (key >>> 27)) * 0x94D049BB133111EBL;
+        return key ^ (key >>> 31);
+    }
+
+    private static final int SQUARES = Constants.ROWS * Constants.COLUMNS;
+    private static final long[][] KEYS = new long[Constants.MAX_PLAYERS][SQUARES];
+    private static final long[] FLIP_KEYS = new long[SQUARES];
+    private static final long SIDE_KEY;
+
+    static {
+        long state = 0x5DEECE66DL;
+
+        for (int side = 0; side < Constants.MAX_PLAYERS; side++) {
+            for (int square = 0; square < SQUARES; square++) {
+                state += 0x9E3779B97F4A7C15L;
+                KEYS[side][square] = nextKey(state);
+            }
+        }
+        for (int square = 0; square < SQUARES; square++) {
+            FLIP_KEYS[square] = KEYS[Constants.DARK_SIDE][square] ^ KEYS[Constants.LIGHT_SIDE][square];
+        }
+
+        state += 0x9E3779B97F4A7C15L;
+        SIDE_KEY = nextKey(state);
+    }
+}
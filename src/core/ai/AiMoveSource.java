@@ -0,0 +1,106 @@
+package core.ai;
+
+import core.BitBoard;
+import core.Board;
+import core.Constants;
+import core.MoveSource;
+import core.metrics.FlightEvents;
+import java.awt.Color;
+
+/**
+ * Lets a search engine choose the moves of a player. An opening book, when
+ * one is set, answers the first moves; once few enough squares are empty,
+ * the endgame solver takes over and plays perfectly.
+ */
+public class AiMoveSource implements MoveSource
+{
+    public AiMoveSource() {
+        this(new SearchEngine());
+    }
+
+    /**
+     * @param engine the search that chooses the moves, single-threaded or parallel
+     */
+    public AiMoveSource(Searcher engine) {
+        this.engine = engine;
+        this.solver = new EndgameSolver();
+        this.solverEmpties = DEFAULT_SOLVER_EMPTIES;
+    }
+
+    @Override
+    public int selectMove(Board board, Color color, long legalMoves) {
+        BitBoard bitBoard = board.getBitBoard();
+        long player = color == Constants.DARK ? bitBoard.getDark() : bitBoard.getLight();
+        long opponent = color == Constants.DARK ? bitBoard.getLight() : bitBoard.getDark();
+
+        int side = color == Constants.DARK ? Constants.DARK_SIDE : Constants.LIGHT_SIDE;
+
+        if (book != null) {
+            int bookMove = book.lookup(bitBoard.getDark(), bitBoard.getLight(), side);
+
+            if (bookMove != OpeningBook.NO_MOVE && (legalMoves & (1L << bookMove)) != 0) {
+                FlightEvents.bookHit(bookMove, Long.bitCount(bitBoard.getEmpty()));
+                lastResult = new SearchResult(bookMove, 0, 0, 0, 0, new int[] { bookMove });
+                return bookMove;
+            }
+        }
+
+        if (Long.bitCount(bitBoard.getEmpty()) <= solverEmpties) {
+            lastResult = solver.solve(player, opponent);
+        } else {
+            lastResult = engine.search(player, opponent, side);
+        }
+        return lastResult.getBestMove();
+    }
+
+    /**
+     * @return the result of the most recent search; after an endgame solve the
+     *         score is the exact final disc difference, and a book move has depth 0
+     */
+    public SearchResult getLastResult() {
+        return lastResult;
+    }
+
+    /**
+     * @return the engine
+     */
+    public Searcher getEngine() {
+        return engine;
+    }
+
+    /**
+     * @return the number of empties from which the endgame solver takes over
+     */
+    public int getSolverEmpties() {
+        return solverEmpties;
+    }
+
+    /**
+     * @param solverEmpties the number of empties from which the endgame solver takes over, 0 to never solve
+     */
+    public void setSolverEmpties(int solverEmpties) {
+        this.solverEmpties = solverEmpties;
+    }
+
+    /**
+     * @return the opening book, or null if there is none
+     */
+    public OpeningBook getBook() {
+        return book;
+    }
+
+    /**
+     * @param book the opening book to play from, or null to always search
+     */
+    public void setBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    public static final int DEFAULT_SOLVER_EMPTIES = 14;
+
+    private final Searcher engine;
+    private final EndgameSolver solver;
+    private int solverEmpties;
+    private SearchResult lastResult;
+    private OpeningBook book;
+}
@@ -0,0 +1,662 @@
+package core.ai;
+
+import core.BitBoard;
+import core.Constants;
+import core.metrics.FlightEvents;
+import core.metrics.Metrics;
+
+/**
+ * Solves the end of the game exactly: the best move and the final disc
+ * difference with perfect play from both sides.
+ *
+ * With many empties the solver orders moves fastest-first (the reply that
+ * leaves the opponent the fewest moves is tried first), uses a principal
+ * variation search and keeps results in a transposition table. Closer to
+ * the end it stops generating move masks and instead tries the empty squares
+ * directly, odd regions first (parity ordering), down to dedicated routines
+ * for the last one to four empties. Searching makes no allocations. A solver
+ * is not thread-safe; use one per thread.
+ */
+public class EndgameSolver
+{
+    public EndgameSolver() {
+        this(DEFAULT_HASH_MEGABYTES);
+    }
+
+    /**
+     * @param hashMegabytes the size of the solver's transposition table
+     */
+    public EndgameSolver(int hashMegabytes) {
+        table = new TranspositionTable(hashMegabytes);
+        moveBuffers = new int[MAX_EMPTIES + 1][MAX_MOVES];
+        keyBuffers = new int[MAX_EMPTIES + 1][MAX_MOVES];
+    }
+
+    /**
+     * Solve a position
+     *
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @return the best move and, as the score, the exact final disc difference
+     *         (player minus opponent); the depth is the number of empties.
+     *         Null if the time limit ran out before the position was solved.
+     */
+    public SearchResult solve(long player, long opponent) {
+        Object event = FlightEvents.beginEndgameSolve();
+        long start = System.nanoTime();
+        deadline = timeLimitMillis > 0 ? start + timeLimitMillis * 1000000L : Long.MAX_VALUE;
+        nextTimeCheck = TIME_CHECK_INTERVAL;
+        stopped = false;
+        nodes = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        table.newSearch();
+
+        int empties = Long.bitCount(~(player | opponent));
+        long moves = BitBoard.legalMoves(player, opponent);
+        int bestMove = SearchEngine.PASS;
+        int bestScore;
+
+        if (moves == 0) {
+            bestScore = -solveDeep(opponent, player, -MAX_SCORE, MAX_SCORE, empties, true);
+        } else {
+            int count = orderFastestFirst(moves, player, opponent, empties);
+            int[] moveList = moveBuffers[empties];
+            int alpha = -MAX_SCORE;
+            bestScore = -MAX_SCORE;
+
+            for (int index = 0; index < count; index++) {
+                int move = moveList[index];
+                long flips = BitBoard.flips(move, player, opponent);
+                long newPlayer = opponent & ~flips;
+                long newOpponent = player | flips | (1L << move);
+                int score;
+
+                if (index == 0) {
+                    score = -solveDeep(newPlayer, newOpponent, -MAX_SCORE, -alpha, empties - 1, false);
+                } else {
+                    score = -solveDeep(newPlayer, newOpponent, -alpha - 1, -alpha, empties - 1, false);
+                    if (score > alpha) {
+                        score = -solveDeep(newPlayer, newOpponent, -MAX_SCORE, -alpha, empties - 1, false);
+                    }
+                }
+
+                if (stopped) {
+                    break;
+                }
+
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMove = move;
+                    alpha = Math.max(alpha, score);
+                }
+            }
+        }
+
+        Metrics.searchFinished(nodes, tableProbes, tableHits, start);
+        FlightEvents.endEndgameSolve(event, empties, bestScore, bestMove, nodes);
+        if (stopped) {
+            return null;
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1000000L;
+        return new SearchResult(bestMove, bestScore, empties, nodes, elapsedMillis, new int[] { bestMove });
+    }
+
+    /**
+     * Solve a position with enough empties for move generation, ordering and
+     * the transposition table to pay off
+     *
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @param alpha the lower bound of the window
+     * @param beta the upper bound of the window
+     * @param empties the number of empty squares
+     * @param passed whether the previous move was a pass
+     * @return the final disc difference for the player to move
+     */
+    private int solveDeep(long player, long opponent, int alpha, int beta, int empties, boolean passed) {
+        if (empties < FASTEST_FIRST_EMPTIES) {
+            return solveShallow(player, opponent, alpha, beta, empties, passed);
+        }
+
+        nodes++;
+
+        // Give up once the time limit has passed; the caller throws away whatever this returns
+        if (nodes >= nextTimeCheck) {
+            nextTimeCheck = nodes + TIME_CHECK_INTERVAL;
+            stopped = System.nanoTime() >= deadline;
+        }
+        if (stopped) {
+            return 0;
+        }
+
+        // Opponent discs that can never flip cap the best score we can reach
+        if (alpha >= Constants.ROWS * Constants.COLUMNS - 2 * Long.bitCount(opponent)) {
+            int bestPossible = Constants.ROWS * Constants.COLUMNS - 2 * Long.bitCount(stableEdgeDiscs(opponent));
+            if (bestPossible <= alpha) {
+                return bestPossible;
+            }
+        }
+
+        long moves = BitBoard.legalMoves(player, opponent);
+
+        if (moves == 0) {
+            if (passed) {
+                return finalScore(player, opponent);
+            }
+            return -solveDeep(opponent, player, -beta, -alpha, empties, true);
+        }
+
+        // The table is keyed on the discs only; the side to move is implied by
+        // whose discs come first
+        long hash = 0;
+        int hashMove = SearchEngine.PASS;
+        if (empties >= HASH_EMPTIES) {
+            hash = hash(player, opponent);
+            long entry = table.probe(hash);
+            tableProbes++;
+
+            if (entry != 0) {
+                tableHits++;
+                int stored = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+
+                if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && stored >= beta)
+                    || (bound == TranspositionTable.UPPER && stored <= alpha)) {
+                    return stored;
+                }
+                hashMove = TranspositionTable.move(entry);
+            }
+        }
+
+        int count = orderFastestFirst(moves, player, opponent, empties);
+        int[] moveList = moveBuffers[empties];
+        promote(moveList, count, hashMove);
+
+        int originalAlpha = alpha;
+        int bestScore = -MAX_SCORE;
+        int bestMove = SearchEngine.PASS;
+
+        for (int index = 0; index < count; index++) {
+            int move = moveList[index];
+            long flips = BitBoard.flips(move, player, opponent);
+            long newPlayer = opponent & ~flips;
+            long newOpponent = player | flips | (1L << move);
+            int score;
+
+            if (index == 0) {
+                score = -solveDeep(newPlayer, newOpponent, -beta, -alpha, empties - 1, false);
+            } else {
+                score = -solveDeep(newPlayer, newOpponent, -alpha - 1, -alpha, empties - 1, false);
+                if (score > alpha && score < beta) {
+                    score = -solveDeep(newPlayer, newOpponent, -beta, -alpha, empties - 1, false);
+                }
+            }
+
+            // An unfinished score must not reach the table
+            if (stopped) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (empties >= HASH_EMPTIES) {
+            int bound = bestScore <= originalAlpha ? TranspositionTable.UPPER
+                : bestScore >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            table.store(hash, empties, bestScore, bound, bestMove);
+        }
+
+        return bestScore;
+    }
+
+    /**
+     * Solve a position with few empties by trying each empty square directly,
+     * squares in regions with an odd number of empties first
+     *
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @param alpha the lower bound of the window
+     * @param beta the upper bound of the window
+     * @param empties the number of empty squares
+     * @param passed whether the previous move was a pass
+     * @return the final disc difference for the player to move
+     */
+    private int solveShallow(long player, long opponent, int alpha, int beta, int empties, boolean passed) {
+        long empty = ~(player | opponent);
+
+        if (empties == 4) {
+            int order = parityOrder(empty);
+            return solve4(player, opponent, alpha, beta, order & 63, (order >>> 6) & 63, (order >>> 12) & 63, order >>> 18, passed);
+        } else if (empties == 3) {
+            int order = parityOrder(empty);
+            return solve3(player, opponent, alpha, beta, order & 63, (order >>> 6) & 63, order >>> 12, passed);
+        } else if (empties == 2) {
+            return solve2(player, opponent, alpha, beta, Long.numberOfTrailingZeros(empty), 63 - Long.numberOfLeadingZeros(empty), passed);
+        } else if (empties == 1) {
+            return solve1(player, opponent, Long.numberOfTrailingZeros(empty));
+        } else if (empties == 0) {
+            return finalScore(player, opponent);
+        }
+
+        nodes++;
+        long odd = oddRegions(empty);
+        int bestScore = -MAX_SCORE;
+
+        // Two sweeps: the empties of odd regions, then the rest
+        for (int sweep = 0; sweep < 2; sweep++) {
+            long squares = sweep == 0 ? empty & odd : empty & ~odd;
+
+            for (; squares != 0; squares &= squares - 1) {
+                int move = Long.numberOfTrailingZeros(squares);
+                long flips = BitBoard.flips(move, player, opponent);
+                if (flips == 0) {
+                    continue;
+                }
+
+                int score = -solveShallow(opponent & ~flips, player | flips | (1L << move), -beta, -alpha, empties - 1, false);
+
+                if (score > bestScore) {
+                    bestScore = score;
+                    if (score > alpha) {
+                        alpha = score;
+                        if (alpha >= beta) {
+                            return bestScore;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (bestScore == -MAX_SCORE) {
+            if (passed) {
+                return finalScore(player, opponent);
+            }
+            return -solveShallow(opponent, player, -beta, -alpha, empties, true);
+        }
+
+        return bestScore;
+    }
+
+    /**
+     * Solve a position with four empties, the squares tried in the order given
+     *
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @param alpha the lower bound of the window
+     * @param beta the upper bound of the window
+     * @param x1 the first empty square to try
+     * @param x2 the second empty square to try
+     * @param x3 the third empty square to try
+     * @param x4 the fourth empty square to try
+     * @param passed whether the previous move was a pass
+     * @return the final disc difference for the player to move
+     */
+    private int solve4(long player, long opponent, int alpha, int beta, int x1, int x2, int x3, int x4, boolean passed) {
+        nodes++;
+        int bestScore = -MAX_SCORE;
+        int score;
+
+        long flips = BitBoard.flips(x1, player, opponent);
+        if (flips != 0) {
+            bestScore = -solve3(opponent & ~flips, player | flips | (1L << x1), -beta, -alpha, x2, x3, x4, false);
+            if (bestScore >= beta) {
+                return bestScore;
+            }
+            alpha = Math.max(alpha, bestScore);
+        }
+
+        flips = BitBoard.flips(x2, player, opponent);
+        if (flips != 0) {
+            score = -solve3(opponent & ~flips, player | flips | (1L << x2), -beta, -alpha, x1, x3, x4, false);
+            if (score >= beta) {
+                return score;
+            }
+            bestScore = Math.max(bestScore, score);
+            alpha = Math.max(alpha, score);
+        }
+
+        flips = BitBoard.flips(x3, player, opponent);
+        if (flips != 0) {
+            score = -solve3(opponent & ~flips, player | flips | (1L << x3), -beta, -alpha, x1, x2, x4, false);
+            if (score >= beta) {
+                return score;
+            }
+            bestScore = Math.max(bestScore, score);
+            alpha = Math.max(alpha, score);
+        }
+
+        flips = BitBoard.flips(x4, player, opponent);
+        if (flips != 0) {
+            score = -solve3(opponent & ~flips, player | flips | (1L << x4), -beta, -alpha, x1, x2, x3, false);
+            bestScore = Math.max(bestScore, score);
+        }
+
+        if (bestScore == -MAX_SCORE) {
+            if (passed) {
+                return finalScore(player, opponent);
+            }
+            return -solve4(opponent, player, -beta, -alpha, x1, x2, x3, x4, true);
+        }
+
+        return bestScore;
+    }
+
+    /**
+     * Solve a position with three empties, the squares tried in the order given
+     *
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @param alpha the lower bound of the window
+     * @param beta the upper bound of the window
+     * @param x1 the first empty square to try
+     * @param x2 the second empty square to try
+     * @param x3 the third empty square to try
+     * @param passed whether the previous move was a pass
+     * @return the final disc difference for the player to move
+     */
+    private int solve3(long player, long opponent, int alpha, int beta, int x1, int x2, int x3, boolean passed) {
+        nodes++;
+        int bestScore = -MAX_SCORE;
+        int score;
+
+        long flips = BitBoard.flips(x1, player, opponent);
+        if (flips != 0) {
+            bestScore = -solve2(opponent & ~flips, player | flips | (1L << x1), -beta, -alpha, x2, x3, false);
+            if (bestScore >= beta) {
+                return bestScore;
+            }
+            alpha = Math.max(alpha, bestScore);
+        }
+
+        flips = BitBoard.flips(x2, player, opponent);
+        if (flips != 0) {
+            score = -solve2(opponent & ~flips, player | flips | (1L << x2), -beta, -alpha, x1, x3, false);
+            if (score >= beta) {
+                return score;
+            }
+            bestScore = Math.max(bestScore, score);
+            alpha = Math.max(alpha, score);
+        }
+
+        flips = BitBoard.flips(x3, player, opponent);
+        if (flips != 0) {
+            score = -solve2(opponent & ~flips, player | flips | (1L << x3), -beta, -alpha, x1, x2, false);
+            bestScore = Math.max(bestScore, score);
+        }
+
+        if (bestScore == -MAX_SCORE) {
+            if (passed) {
+                return finalScore(player, opponent);
+            }
+            return -solve3(opponent, player, -beta, -alpha, x1, x2, x3, true);
+        }
+
+        return bestScore;
+    }
+
+    /**
+     * Solve a position with two empties
+     *
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @param alpha the lower bound of the window
+     * @param beta the upper bound of the window
+     * @param first one empty square
+     * @param second the other empty square
+     * @param passed whether the previous move was a pass
+     * @return the final disc difference for the player to move
+     */
+    private int solve2(long player, long opponent, int alpha, int beta, int first, int second, boolean passed) {
+        nodes++;
+        int bestScore = -MAX_SCORE;
+
+        long flips = BitBoard.flips(first, player, opponent);
+        if (flips != 0) {
+            bestScore = -solve1(opponent & ~flips, player | flips | (1L << first), second);
+            if (bestScore >= beta) {
+                return bestScore;
+            }
+        }
+
+        flips = BitBoard.flips(second, player, opponent);
+        if (flips != 0) {
+            int score = -solve1(opponent & ~flips, player | flips | (1L << second), first);
+            if (score > bestScore) {
+                bestScore = score;
+            }
+        }
+
+        if (bestScore == -MAX_SCORE) {
+            if (passed) {
+                return finalScore(player, opponent);
+            }
+            return -solve2(opponent, player, -beta, -alpha, first, second, true);
+        }
+
+        return bestScore;
+    }
+
+    /**
+     * Solve a position with one empty square. Only the disc counts matter, so
+     * the result comes straight from the number of flipped discs.
+     *
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @param square the empty square
+     * @return the final disc difference for the player to move
+     */
+    private int solve1(long player, long opponent, int square) {
+        nodes++;
+        int score = Long.bitCount(player) - Long.bitCount(opponent);
+
+        long flips = BitBoard.flips(square, player, opponent);
+        if (flips != 0) {
+            return score + 2 * Long.bitCount(flips) + 1;
+        }
+
+        flips = BitBoard.flips(square, opponent, player);
+        if (flips != 0) {
+            return score - 2 * Long.bitCount(flips) - 1;
+        }
+
+        // Neither player can fill the last square
+        return score;
+    }
+
+    /**
+     * Fill the move buffer with the legal moves, the ones leaving the
+     * opponent the fewest replies first
+     *
+     * @param moves the mask of legal moves
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @param empties the number of empty squares, which selects the buffer
+     * @return the number of moves
+     */
+    private int orderFastestFirst(long moves, long player, long opponent, int empties) {
+        int[] moveList = moveBuffers[empties];
+        int[] keys = keyBuffers[empties];
+        long odd = oddRegions(~(player | opponent));
+        int count = 0;
+
+        for (; moves != 0; moves &= moves - 1) {
+            int move = Long.numberOfTrailingZeros(moves);
+            long flips = BitBoard.flips(move, player, opponent);
+            long replies = BitBoard.legalMoves(opponent & ~flips, player | flips | (1L << move));
+
+            // Fewer replies first; parity breaks ties
+            int key = (Long.bitCount(replies) + Long.bitCount(replies & CORNERS)) * 4 + ((odd & (1L << move)) != 0 ? 0 : 1);
+
+            int index = count++;
+            while (index > 0 && keys[index - 1] > key) {
+                keys[index] = keys[index - 1];
+                moveList[index] = moveList[index - 1];
+                index--;
+            }
+            keys[index] = key;
+            moveList[index] = move;
+        }
+
+        return count;
+    }
+
+    /**
+     * Move a move to the front of a list, keeping the order of the others
+     *
+     * @param moveList the list of moves
+     * @param count the number of moves
+     * @param move the move to promote, ignored if it is not in the list
+     */
+    private static void promote(int[] moveList, int count, int move) {
+        for (int index = 0; index < count; index++) {
+            if (moveList[index] == move) {
+                System.arraycopy(moveList, 0, moveList, 1, index);
+                moveList[0] = move;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Find the discs that can never be flipped because they sit on an edge in
+     * an unbroken line of their own color that starts in a corner
+     *
+     * @param discs the discs of one player
+     * @return the stable discs found
+     */
+    private static long stableEdgeDiscs(long discs) {
+        long stable = discs & CORNERS;
+        long previous = 0;
+
+        while (stable != previous) {
+            previous = stable;
+            stable |= discs & HORIZONTAL_EDGES & BitBoard.horizontalNeighbours(stable);
+            stable |= discs & VERTICAL_EDGES & BitBoard.verticalNeighbours(stable);
+        }
+
+        return stable;
+    }
+
+    /**
+     * @param empty the mask of empty squares
+     * @return the union of the board quadrants holding an odd number of empties
+     */
+    private static long oddRegions(long empty) {
+        long odd = 0;
+
+        for (long quadrant : QUADRANTS) {
+            if ((Long.bitCount(empty & quadrant) & 1) != 0) {
+                odd |= quadrant;
+            }
+        }
+
+        return odd;
+    }
+
+    /**
+     * List up to four empty squares, those of odd regions first
+     *
+     * @param empty the mask of empty squares
+     * @return the squares packed six bits each, the first to try in the lowest bits
+     */
+    private static int parityOrder(long empty) {
+        long odd = oddRegions(empty);
+        int order = 0;
+        int shift = 0;
+
+        for (long squares = empty & odd; squares != 0; squares &= squares - 1) {
+            order |= Long.numberOfTrailingZeros(squares) << shift;
+            shift += 6;
+        }
+        for (long squares = empty & ~odd; squares != 0; squares &= squares - 1) {
+            order |= Long.numberOfTrailingZeros(squares) << shift;
+            shift += 6;
+        }
+
+        return order;
+    }
+
+    /**
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @return the final disc difference for the player to move
+     */
+    private static int finalScore(long player, long opponent) {
+        return Long.bitCount(player) - Long.bitCount(opponent);
+    }
+
+    /**
+     * Hash a position from the point of view of the player to move
+     *
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @return the hash
+     */
+    private static long hash(long player, long opponent) {
+        long hash = player * 0x9E3779B97F4A7C15L + Long.rotateLeft(opponent, 29) * 0xC2B2AE3D27D4EB4FL;
+        hash ^= hash >>> 32;
+        hash *= 0xD6E8FEB86659FD93L;
+        return hash ^ (hash >>> 32);
+    }
+
+    /**
+     * @return the number of nodes visited by the last solve
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the time a solve may take before it gives up, or 0 for no limit
+     */
+    public long getTimeLimitMillis() {
+        return timeLimitMillis;
+    }
+
+    /**
+     * @param timeLimitMillis the time a solve may take before it gives up, or 0 for no limit
+     */
+    public void setTimeLimitMillis(long timeLimitMillis) {
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    public static final int DEFAULT_HASH_MEGABYTES = 16;
+
+    private static final int MAX_SCORE = 65;
+    private static final int MAX_EMPTIES = 60;
+    private static final int MAX_MOVES = 64;
+    private static final int FASTEST_FIRST_EMPTIES = 6;
+    private static final int HASH_EMPTIES = 8;
+    private static final long TIME_CHECK_INTERVAL = 4096;
+
+    private static final long CORNERS = 0x8100000000000081L;
+    private static final long HORIZONTAL_EDGES = 0xFF000000000000FFL;
+    private static final long VERTICAL_EDGES = BitBoard.FIRST_COLUMN | BitBoard.LAST_COLUMN;
+    private static final long[] QUADRANTS = {
+        0x000000000F0F0F0FL, 0x00000000F0F0F0F0L, 0x0F0F0F0F00000000L, 0xF0F0F0F000000000L
+    };
+
+    private final TranspositionTable table;
+    private final int[][] moveBuffers;
+    private final int[][] keyBuffers;
+    private long nodes;
+    private long tableProbes;
+    private long tableHits;
+    private long timeLimitMillis;
+    private long deadline;
+    private long nextTimeCheck;
+    private boolean stopped;
+}
@@ -0,0 +1,15 @@
+package core.ai;
+
+/**
+ * Scores a position that the search does not look past
+ */
+public interface Evaluator
+{
+    /**
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @return the score from the point of view of the player to move, in
+     *         SearchEngine.DISC_VALUE units per disc
+     */
+    int evaluate(long player, long opponent);
+}
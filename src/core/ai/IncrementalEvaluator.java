@@ -0,0 +1,33 @@
+package core.ai;
+
+/**
+ * An evaluator that keeps state about the current position and updates it
+ * move by move, so the work at a leaf is only a few table lookups. The
+ * search tells it about every move it makes and takes back.
+ */
+public interface IncrementalEvaluator extends Evaluator
+{
+    /**
+     * Start tracking a position from scratch
+     *
+     * @param dark the mask of the dark discs
+     * @param light the mask of the light discs
+     */
+    void setPosition(long dark, long light);
+
+    /**
+     * @param square the square of the placed disc
+     * @param flips the discs the move flipped
+     * @param side the side that moved
+     */
+    void play(int square, long flips, int side);
+
+    /**
+     * Take back a move reported to play
+     *
+     * @param square the square of the placed disc
+     * @param flips the discs the move flipped
+     * @param side the side that moved
+     */
+    void undo(int square, long flips, int side);
+}
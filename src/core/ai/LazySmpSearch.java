@@ -0,0 +1,170 @@
+package core.ai;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Searches one position on several threads at once ("lazy SMP").
+ *
+ * Every thread runs its own SearchEngine on the same root, and they all share
+ * one transposition table. The threads never talk to each other directly;
+ * they help by filling the table with results the others can reuse. So
+ * that they do not all search the same depth in lockstep, each helper skips
+ * some depths, following the skip tables of Stockfish: helper i searches
+ * runs of SKIP_SIZE[i] depths and leaves out the runs in between, starting
+ * SKIP_PHASE[i] depths in. Each helper also breaks ties in move ordering its
+ * own way. The calling thread runs the main worker; when it finishes, the
+ * helpers are stopped and the deepest result is reported, with the node
+ * counts of all threads added up.
+ */
+public class LazySmpSearch implements Searcher
+{
+    /**
+     * @param threads the number of threads to search with
+     */
+    public LazySmpSearch(int threads) {
+        this(threads, SearchEngine.DEFAULT_HASH_MEGABYTES * threads, SimpleEvaluator::new);
+    }
+
+    /**
+     * @param threads the number of threads to search with
+     * @param hashMegabytes the size of the shared transposition table
+     * @param evaluators makes one evaluator per thread
+     */
+    public LazySmpSearch(int threads, int hashMegabytes, Supplier<Evaluator> evaluators) {
+        table = new TranspositionTable(hashMegabytes);
+        workers = new SearchEngine[Math.max(1, threads)];
+
+        for (int index = 0; index < workers.length; index++) {
+            workers[index] = new SearchEngine(evaluators.get(), table);
+            workers[index].setOrderSeed(index);
+        }
+
+        helpers = Executors.newFixedThreadPool(Math.max(1, workers.length - 1), runnable -> {
+            Thread thread = new Thread(runnable, "lazy-smp-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        futures = new ArrayList<>();
+    }
+
+    @Override
+    public SearchResult search(long player, long opponent, int side) {
+        long start = System.nanoTime();
+        table.newSearch();
+
+        for (SearchEngine worker : workers) {
+            worker.prepare();
+        }
+
+        futures.clear();
+        for (int index = 1; index < workers.length; index++) {
+            final SearchEngine worker = workers[index];
+            final int helper = (index - 1) % SKIP_SIZE.length;
+            futures.add(helpers.submit(() -> worker.iterate(player, opponent, side, SKIP_SIZE[helper], SKIP_PHASE[helper])));
+        }
+
+        SearchResult best = workers[0].iterate(player, opponent, side, 0, 0);
+        long nodes = best.getNodes();
+
+        for (int index = 1; index < workers.length; index++) {
+            workers[index].stop();
+        }
+
+        for (Future<SearchResult> future : futures) {
+            SearchResult result = getResult(future);
+            nodes += result.getNodes();
+
+            // A helper that finished a deeper iteration knows more than the main worker
+            if (result.getDepth() > best.getDepth()) {
+                best = result;
+            }
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1000000L;
+        return new SearchResult(best.getBestMove(), best.getScore(), best.getDepth(), nodes, elapsedMillis, best.getPrincipalVariation());
+    }
+
+    /**
+     * Wait for a helper to finish its search
+     *
+     * @param future the helper's pending result
+     * @return the helper's result
+     */
+    private static SearchResult getResult(Future<SearchResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a search thread", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("A search thread failed", ex.getCause());
+        }
+    }
+
+    @Override
+    public void stop() {
+        for (SearchEngine worker : workers) {
+            worker.stop();
+        }
+    }
+
+    /**
+     * Stop the helper threads. The search cannot be used afterwards.
+     */
+    public void shutdown() {
+        stop();
+        helpers.shutdownNow();
+    }
+
+    @Override
+    public long getTimeLimitMillis() {
+        return workers[0].getTimeLimitMillis();
+    }
+
+    @Override
+    public void setTimeLimitMillis(long timeLimitMillis) {
+        for (SearchEngine worker : workers) {
+            worker.setTimeLimitMillis(timeLimitMillis);
+        }
+    }
+
+    @Override
+    public int getMaxDepth() {
+        return workers[0].getMaxDepth();
+    }
+
+    @Override
+    public void setMaxDepth(int maxDepth) {
+        for (SearchEngine worker : workers) {
+            worker.setMaxDepth(maxDepth);
+        }
+    }
+
+    /**
+     * @return the number of threads searching
+     */
+    public int getThreadCount() {
+        return workers.length;
+    }
+
+    /**
+     * @return the shared transposition table
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    // Runs of depths each helper searches and skips, and where the runs start; past 20 helpers they repeat
+    private static final int[] SKIP_SIZE = { 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4 };
+    private static final int[] SKIP_PHASE = { 0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7 };
+
+    private final TranspositionTable table;
+    private final SearchEngine[] workers;
+    private final ExecutorService helpers;
+    private final ArrayList<Future<SearchResult>> futures;
+}
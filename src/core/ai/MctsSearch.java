@@ -0,0 +1,680 @@
+package core.ai;
+
+import core.BitBoard;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monte Carlo tree search with UCT selection and random playouts.
+ *
+ * The tree lives in an arena of primitive arrays indexed by node number
+ * instead of one object per node. The children of a node sit next to each
+ * other, so a node only stores where its children start and how many
+ * there are. A playout works on two local masks and a random state held in
+ * a long, and allocates nothing.
+ *
+ * With more than one thread the workers share the tree ("tree parallel").
+ * A worker walking down the tree adds a virtual loss to every node on its
+ * path, which steers the other workers to different branches until the
+ * playout result replaces it. Visit and win counters are updated without
+ * locks; a lost update now and then only blurs the statistics slightly.
+ *
+ * When the next search starts from a position already in the tree (the
+ * engine's own move followed by the opponent's reply), that subtree is
+ * copied to the front of a second arena and searched further.
+ *
+ * The score of a result is the expected outcome of the best move in
+ * percent, from 100 for a certain win down to -100 for a certain loss.
+ */
+public class MctsSearch implements Searcher
+{
+    public MctsSearch() {
+        this(1, DEFAULT_NODES);
+    }
+
+    /**
+     * @param threads the number of threads to search with
+     * @param nodes the capacity of the tree arena
+     */
+    public MctsSearch(int threads, int nodes) {
+        capacity = Math.max(2, nodes);
+        allocateArena();
+        spareArena = new Arena(capacity);
+        oldIndices = new int[capacity];
+        nextNode = new AtomicInteger();
+        playouts = new AtomicLong();
+
+        workers = new Worker[Math.max(1, threads)];
+        for (int index = 0; index < workers.length; index++) {
+            workers[index] = new Worker(SEED + index);
+        }
+
+        helpers = Executors.newFixedThreadPool(Math.max(1, workers.length - 1), runnable -> {
+            Thread thread = new Thread(runnable, "mcts-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        futures = new ArrayList<>();
+
+        timeLimitMillis = SearchEngine.DEFAULT_TIME_LIMIT_MILLIS;
+        maxDepth = SearchEngine.MAX_DEPTH;
+        maxPlayouts = Long.MAX_VALUE;
+        exploration = DEFAULT_EXPLORATION;
+        cornerPlayouts = true;
+        treeReuse = true;
+    }
+
+    /**
+     * Make the arena the tree is built in
+     */
+    private void allocateArena() {
+        Arena arena = new Arena(capacity);
+        players = arena.players;
+        opponents = arena.opponents;
+        visits = arena.visits;
+        wins = arena.wins;
+        firstChild = arena.firstChild;
+        childCount = arena.childCount;
+        moves = arena.moves;
+    }
+
+    @Override
+    public SearchResult search(long player, long opponent, int side) {
+        long start = System.currentTimeMillis();
+        stopped = false;
+        playouts.set(0);
+        deadline = start + timeLimitMillis;
+
+        if (BitBoard.legalMoves(player, opponent) == 0) {
+            return new SearchResult(SearchEngine.PASS, 0, 0, 0, 0, new int[] { SearchEngine.PASS });
+        }
+
+        setRoot(player, opponent);
+        expand(ROOT);
+
+        if (firstChild.get(ROOT) <= 0) {
+            // Not even the root's children fit next to the reused tree, so start afresh
+            nextNode.set(1);
+            initNode(ROOT, player, opponent, SearchEngine.PASS);
+            expand(ROOT);
+        }
+
+        futures.clear();
+        for (int index = 1; index < workers.length; index++) {
+            final Worker worker = workers[index];
+            futures.add(helpers.submit(() -> worker.run()));
+        }
+
+        workers[0].run();
+        stopped = true;
+
+        int depth = workers[0].deepest;
+        for (int index = 1; index < workers.length; index++) {
+            waitFor(futures.get(index - 1));
+            depth = Math.max(depth, workers[index].deepest);
+        }
+
+        int best = mostVisitedChild(ROOT);
+        int score = visits[best] == 0 ? 0 : (int) Math.round(100.0 * wins[best] / visits[best]) - 100;
+        long elapsedMillis = System.currentTimeMillis() - start;
+        return new SearchResult(moves[best], score, depth, playouts.get(), elapsedMillis, principalVariation());
+    }
+
+    /**
+     * Make the given position the root, keeping the part of the last tree
+     * below it when it is there
+     *
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     */
+    private void setRoot(long player, long opponent) {
+        int reused = treeReuse && nextNode.get() > 0 ? findNode(player, opponent) : NONE;
+
+        if (reused == NONE) {
+            nextNode.set(1);
+            initNode(ROOT, player, opponent, SearchEngine.PASS);
+        } else if (reused != ROOT) {
+            compact(reused);
+        }
+    }
+
+    /**
+     * Look for a position among the root, its children and its grandchildren
+     *
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @return the node holding the position, or NONE
+     */
+    private int findNode(long player, long opponent) {
+        if (players[ROOT] == player && opponents[ROOT] == opponent) {
+            return ROOT;
+        }
+
+        int first = firstChild.get(ROOT);
+        for (int child = first; first > 0 && child < first + childCount[ROOT]; child++) {
+            int firstGrandchild = firstChild.get(child);
+
+            for (int grandchild = firstGrandchild; firstGrandchild > 0 && grandchild < firstGrandchild + childCount[child]; grandchild++) {
+                if (players[grandchild] == player && opponents[grandchild] == opponent) {
+                    return grandchild;
+                }
+            }
+        }
+
+        return NONE;
+    }
+
+    /**
+     * Copy the subtree below a node to the front of the spare arena, breadth
+     * first so children stay next to each other, and swap the arenas
+     *
+     * @param newRoot the node that becomes the root
+     */
+    private void compact(int newRoot) {
+        Arena target = spareArena;
+        int size = 1;
+        oldIndices[ROOT] = newRoot;
+
+        for (int index = 0; index < size; index++) {
+            int old = oldIndices[index];
+            int first = firstChild.get(old);
+
+            target.players[index] = players[old];
+            target.opponents[index] = opponents[old];
+            target.visits[index] = visits[old];
+            target.wins[index] = wins[old];
+            target.moves[index] = moves[old];
+            target.childCount[index] = first > 0 ? childCount[old] : 0;
+            // Nodes the full arena could not expand get another chance in the compacted one
+            target.firstChild.set(index, first > 0 ? size : first == TERMINAL ? TERMINAL : UNEXPANDED);
+
+            for (int child = 0; first > 0 && child < childCount[old]; child++) {
+                oldIndices[size++] = first + child;
+            }
+        }
+
+        spareArena = new Arena(players, opponents, visits, wins, firstChild, childCount, moves);
+        players = target.players;
+        opponents = target.opponents;
+        visits = target.visits;
+        wins = target.wins;
+        firstChild = target.firstChild;
+        childCount = target.childCount;
+        moves = target.moves;
+        nextNode.set(size);
+    }
+
+    /**
+     * @param node the node to set
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @param move the move that led to the node
+     */
+    private void initNode(int node, long player, long opponent, int move) {
+        players[node] = player;
+        opponents[node] = opponent;
+        visits[node] = 0;
+        wins[node] = 0;
+        childCount[node] = 0;
+        moves[node] = (byte) move;
+        firstChild.set(node, UNEXPANDED);
+    }
+
+    /**
+     * Add all children of a node at once. Only the worker that wins the race
+     * to mark the node expands it; the others treat it as a leaf meanwhile.
+     *
+     * @param node the node to expand
+     * @return whether the node now has children or is known to end the game
+     */
+    private boolean expand(int node) {
+        if (!firstChild.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+            return firstChild.get(node) != EXPANDING;
+        }
+
+        long player = players[node];
+        long opponent = opponents[node];
+        long legal = BitBoard.legalMoves(player, opponent);
+
+        if (legal == 0 && BitBoard.legalMoves(opponent, player) == 0) {
+            firstChild.set(node, TERMINAL);
+            return true;
+        }
+
+        int count = legal == 0 ? 1 : Long.bitCount(legal);
+        int first = nextNode.getAndAdd(count);
+
+        if (first + count > capacity) {
+            // The arena is full; the node stays a leaf and keeps getting playouts
+            firstChild.set(node, FULL);
+            return false;
+        }
+
+        if (legal == 0) {
+            initNode(first, opponent, player, SearchEngine.PASS);
+        }
+
+        for (int child = first; legal != 0; legal &= legal - 1, child++) {
+            int move = Long.numberOfTrailingZeros(legal);
+            long flips = BitBoard.flips(move, player, opponent);
+            initNode(child, opponent & ~flips, player | flips | (1L << move), move);
+        }
+
+        childCount[node] = count;
+        firstChild.set(node, first);
+        return true;
+    }
+
+    /**
+     * @param node a node with children
+     * @return the child with the highest upper confidence bound
+     */
+    private int selectChild(int node) {
+        int first = firstChild.get(node);
+        int last = first + childCount[node];
+        double logVisits = Math.log(Math.max(1, visits[node]));
+        double bestValue = Double.NEGATIVE_INFINITY;
+        int best = first;
+
+        for (int child = first; child < last; child++) {
+            int childVisits = visits[child];
+            if (childVisits == 0) {
+                return child;
+            }
+
+            // Wins are counted in half points, two for a win and one for a draw
+            double value = wins[child] / (2.0 * childVisits) + exploration * Math.sqrt(logVisits / childVisits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * @param node a node with children
+     * @return the child visited most often
+     */
+    private int mostVisitedChild(int node) {
+        int first = firstChild.get(node);
+        int best = first;
+
+        for (int child = first + 1; child < first + childCount[node]; child++) {
+            if (visits[child] > visits[best]) {
+                best = child;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * @return the line of most visited children from the root
+     */
+    private int[] principalVariation() {
+        int[] line = new int[SearchEngine.MAX_DEPTH];
+        int length = 0;
+        int node = ROOT;
+
+        while (firstChild.get(node) > 0 && length < line.length) {
+            node = mostVisitedChild(node);
+            if (visits[node] == 0) {
+                break;
+            }
+            line[length++] = moves[node];
+        }
+
+        int[] variation = new int[length];
+        System.arraycopy(line, 0, variation, 0, length);
+        return variation;
+    }
+
+    /**
+     * Play random moves to the end of the game. With corner playouts a
+     * corner is always taken when one is available.
+     *
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @param worker the worker whose random state is used
+     * @return the final disc difference for the player to move at the start
+     */
+    private int playout(long player, long opponent, Worker worker) {
+        long random = worker.random;
+        long mover = player;
+        long other = opponent;
+        boolean passed = false;
+        int plies = 0;
+
+        while (true) {
+            long legal = BitBoard.legalMoves(mover, other);
+
+            if (legal == 0) {
+                if (passed) {
+                    break;
+                }
+                passed = true;
+            } else {
+                passed = false;
+
+                if (cornerPlayouts && (legal & CORNERS) != 0) {
+                    legal &= CORNERS;
+                }
+
+                random ^= random << 13;
+                random ^= random >>> 7;
+                random ^= random << 17;
+                // Scale 32 random bits to the number of moves instead of dividing
+                for (int skip = (int) (((random >>> 32) * Long.bitCount(legal)) >>> 32); skip > 0; skip--) {
+                    legal &= legal - 1;
+                }
+
+                int move = Long.numberOfTrailingZeros(legal);
+                long flips = BitBoard.flips(move, mover, other);
+                mover |= flips | (1L << move);
+                other &= ~flips;
+            }
+
+            long swap = mover;
+            mover = other;
+            other = swap;
+            plies++;
+        }
+
+        worker.random = random;
+        int difference = Long.bitCount(mover) - Long.bitCount(other);
+        return (plies & 1) == 0 ? difference : -difference;
+    }
+
+    /**
+     * Wait for a helper to finish
+     *
+     * @param future the helper's pending run
+     */
+    private static void waitFor(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a search thread", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("A search thread failed", ex.getCause());
+        }
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Stop the helper threads. The search cannot be used afterwards.
+     */
+    public void shutdown() {
+        stop();
+        helpers.shutdownNow();
+    }
+
+    /**
+     * @return the number of nodes in the tree
+     */
+    public int getTreeSize() {
+        return Math.min(nextNode.get(), capacity);
+    }
+
+    @Override
+    public long getTimeLimitMillis() {
+        return timeLimitMillis;
+    }
+
+    @Override
+    public void setTimeLimitMillis(long timeLimitMillis) {
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    /**
+     * @return the deepest level of the tree that is expanded
+     */
+    @Override
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @param maxDepth the deepest level of the tree that is expanded
+     */
+    @Override
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * @return the number of playouts after which a search stops
+     */
+    public long getMaxPlayouts() {
+        return maxPlayouts;
+    }
+
+    /**
+     * @param maxPlayouts the number of playouts after which a search stops
+     */
+    public void setMaxPlayouts(long maxPlayouts) {
+        this.maxPlayouts = maxPlayouts;
+    }
+
+    /**
+     * @return the exploration constant of the UCT formula
+     */
+    public double getExploration() {
+        return exploration;
+    }
+
+    /**
+     * @param exploration the exploration constant of the UCT formula
+     */
+    public void setExploration(double exploration) {
+        this.exploration = exploration;
+    }
+
+    /**
+     * @return whether playouts always take an available corner
+     */
+    public boolean isCornerPlayouts() {
+        return cornerPlayouts;
+    }
+
+    /**
+     * @param cornerPlayouts whether playouts always take an available corner
+     */
+    public void setCornerPlayouts(boolean cornerPlayouts) {
+        this.cornerPlayouts = cornerPlayouts;
+    }
+
+    /**
+     * @return whether a search keeps the part of the last tree that is still relevant
+     */
+    public boolean isTreeReuse() {
+        return treeReuse;
+    }
+
+    /**
+     * @param treeReuse whether a search keeps the part of the last tree that is still relevant
+     */
+    public void setTreeReuse(boolean treeReuse) {
+        this.treeReuse = treeReuse;
+    }
+
+    /**
+     * The state one search thread keeps between playouts
+     */
+    private class Worker
+    {
+        /**
+         * @param seed the seed of the worker's random moves
+         */
+        Worker(long seed) {
+            this.random = seed;
+            this.path = new int[SearchEngine.MAX_DEPTH * 2 + 2];
+        }
+
+        /**
+         * Run playouts until the time or playout budget is spent
+         */
+        void run() {
+            int virtualLoss = workers.length > 1 ? VIRTUAL_LOSS : 0;
+            deepest = 0;
+
+            while (!stopped) {
+                for (int iteration = 0; iteration < CHECK_INTERVAL; iteration++) {
+                    iterate(virtualLoss);
+                }
+
+                if (playouts.addAndGet(CHECK_INTERVAL) >= maxPlayouts || System.currentTimeMillis() >= deadline) {
+                    stopped = true;
+                }
+            }
+        }
+
+        /**
+         * Walk down the tree, expand a leaf, play it out and back up the result
+         *
+         * @param virtualLoss the number of visits to add on the way down
+         */
+        private void iterate(int virtualLoss) {
+            int node = ROOT;
+            int depth = 0;
+            path[0] = ROOT;
+            visits[ROOT] += virtualLoss;
+
+            while (true) {
+                int first = firstChild.get(node);
+
+                if (first == UNEXPANDED && visits[node] > virtualLoss && depth < maxDepth) {
+                    if (!expand(node)) {
+                        break;
+                    }
+                    first = firstChild.get(node);
+                }
+                if (first <= 0) {
+                    break;
+                }
+
+                node = selectChild(node);
+                path[++depth] = node;
+                visits[node] += virtualLoss;
+            }
+
+            int difference;
+            if (firstChild.get(node) == TERMINAL) {
+                difference = Long.bitCount(players[node]) - Long.bitCount(opponents[node]);
+            } else {
+                difference = playout(players[node], opponents[node], this);
+            }
+
+            // Half points for the side to move at the leaf; every node is credited to the side that moved into it
+            int reward = difference > 0 ? 2 : difference == 0 ? 1 : 0;
+            for (int level = depth; level >= 0; level--) {
+                int visited = path[level];
+                visits[visited] += 1 - virtualLoss;
+                wins[visited] += ((depth - level) & 1) == 0 ? 2 - reward : reward;
+            }
+
+            deepest = Math.max(deepest, depth);
+        }
+
+        private long random;
+        private final int[] path;
+        private int deepest;
+    }
+
+    /**
+     * The node arrays of one arena
+     */
+    private static class Arena
+    {
+        /**
+         * @param capacity the number of nodes
+         */
+        Arena(int capacity) {
+            this(new long[capacity], new long[capacity], new int[capacity], new int[capacity],
+                    new AtomicIntegerArray(capacity), new int[capacity], new byte[capacity]);
+        }
+
+        /**
+         * @param players the discs of the player to move, per node
+         * @param opponents the discs of the opponent, per node
+         * @param visits the visit counts
+         * @param wins the half points won by the side that moved into each node
+         * @param firstChild the index of the first child, or a negative state
+         * @param childCount the number of children
+         * @param moves the move that led to each node
+         */
+        Arena(long[] players, long[] opponents, int[] visits, int[] wins, AtomicIntegerArray firstChild, int[] childCount, byte[] moves) {
+            this.players = players;
+            this.opponents = opponents;
+            this.visits = visits;
+            this.wins = wins;
+            this.firstChild = firstChild;
+            this.childCount = childCount;
+            this.moves = moves;
+        }
+
+        private final long[] players;
+        private final long[] opponents;
+        private final int[] visits;
+        private final int[] wins;
+        private final AtomicIntegerArray firstChild;
+        private final int[] childCount;
+        private final byte[] moves;
+    }
+
+    public static final int DEFAULT_NODES = 1 << 20;
+    public static final double DEFAULT_EXPLORATION = 0.7;
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    // States of firstChild for nodes without children; index 0 is the root and never a child
+    private static final int UNEXPANDED = 0;
+    private static final int EXPANDING = -1;
+    private static final int TERMINAL = -2;
+    private static final int FULL = -3;
+
+    private static final int VIRTUAL_LOSS = 1;
+    private static final int CHECK_INTERVAL = 64;
+    private static final long SEED = 0x2545F4914F6CDD1DL;
+    private static final long CORNERS = 0x8100000000000081L;
+
+    private final int capacity;
+    private final int[] oldIndices;
+    private final AtomicInteger nextNode;
+    private final AtomicLong playouts;
+    private final Worker[] workers;
+    private final ExecutorService helpers;
+    private final ArrayList<Future<?>> futures;
+    private Arena spareArena;
+
+    private long[] players;
+    private long[] opponents;
+    private int[] visits;
+    private int[] wins;
+    private AtomicIntegerArray firstChild;
+    private int[] childCount;
+    private byte[] moves;
+
+    private volatile boolean stopped;
+    private long deadline;
+    private long timeLimitMillis;
+    private int maxDepth;
+    private long maxPlayouts;
+    private double exploration;
+    private boolean cornerPlayouts;
+    private boolean treeReuse;
+}
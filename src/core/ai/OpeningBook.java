@@ -0,0 +1,182 @@
+package core.ai;
+
+import core.Symmetry;
+import core.Zobrist;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only opening book mapped straight from disk. The file is a short
+ * header followed by fixed-width records sorted by key, so a lookup is a
+ * binary search over the mapped pages: nothing is parsed when the book is
+ * opened, nothing is allocated per lookup, and every engine that opens the
+ * same book shares one copy of it through the page cache.
+ *
+ * Keys are the Zobrist hash of the canonical position (see Symmetry), and
+ * the stored move is in the canonical orientation; lookup maps it back.
+ *
+ * Record layout, big-endian: key (8 bytes), move (1), unused (1), average
+ * final disc difference for the side to move (2), games played (4).
+ */
+public class OpeningBook
+{
+    /**
+     * @param file the book file, as written by OpeningBookBuilder
+     * @throws IOException if the file cannot be read or is not a book
+     */
+    public OpeningBook(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Keep reading until the header is complete or the file ends
+            }
+            header.flip();
+
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not an opening book: " + file);
+            }
+
+            size = header.getLong();
+            if (HEADER_SIZE + size * RECORD_SIZE > channel.size()) {
+                throw new IOException("Opening book is truncated: " + file);
+            }
+
+            // A single mapping is limited to 2 GB, so larger books are mapped in chunks
+            chunks = new MappedByteBuffer[(int) ((size + RECORDS_PER_CHUNK - 1) / RECORDS_PER_CHUNK)];
+            for (int chunk = 0; chunk < chunks.length; chunk++) {
+                long first = (long) chunk * RECORDS_PER_CHUNK;
+                long records = Math.min(RECORDS_PER_CHUNK, size - first);
+                chunks[chunk] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * RECORD_SIZE, records * RECORD_SIZE);
+            }
+        }
+    }
+
+    /**
+     * @param dark the mask of the dark discs
+     * @param light the mask of the light discs
+     * @param side the side to move
+     * @return the key of the position in the book, the same for all eight symmetric images
+     */
+    public static long key(long dark, long light, int side) {
+        int symmetry = Symmetry.getCanonicalSymmetry(dark, light);
+        return Zobrist.hash(Symmetry.transform(dark, symmetry), Symmetry.transform(light, symmetry), side);
+    }
+
+    /**
+     * Look up the book move of a position
+     *
+     * @param dark the mask of the dark discs
+     * @param light the mask of the light discs
+     * @param side the side to move
+     * @return the square of the book move in the position as given, or NO_MOVE
+     */
+    public int lookup(long dark, long light, int side) {
+        int symmetry = Symmetry.getCanonicalSymmetry(dark, light);
+        long key = Zobrist.hash(Symmetry.transform(dark, symmetry), Symmetry.transform(light, symmetry), side);
+        long index = find(key);
+
+        if (index < 0) {
+            return NO_MOVE;
+        }
+
+        return Symmetry.transformSquare(getMove(index), Symmetry.inverse(symmetry));
+    }
+
+    /**
+     * @param key the key of a position
+     * @return the index of the record with the key, or -1 if the position is not in the book
+     */
+    public long find(long key) {
+        long low = 0;
+        long high = size - 1;
+
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            long middleKey = getKey(middle);
+
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @param index the index of a record
+     * @return the key of the record
+     */
+    public long getKey(long index) {
+        return chunk(index).getLong(offset(index));
+    }
+
+    /**
+     * @param index the index of a record
+     * @return the book move, in the canonical orientation of the position
+     */
+    public int getMove(long index) {
+        return chunk(index).get(offset(index) + MOVE_OFFSET);
+    }
+
+    /**
+     * @param index the index of a record
+     * @return the average final disc difference after the move, for the side to move
+     */
+    public int getScore(long index) {
+        return chunk(index).getShort(offset(index) + SCORE_OFFSET);
+    }
+
+    /**
+     * @param index the index of a record
+     * @return the number of games in which the move was played
+     */
+    public int getCount(long index) {
+        return chunk(index).getInt(offset(index) + COUNT_OFFSET);
+    }
+
+    /**
+     * @return the number of positions in the book
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @param index the index of a record
+     * @return the mapped chunk holding the record
+     */
+    private MappedByteBuffer chunk(long index) {
+        return chunks[(int) (index / RECORDS_PER_CHUNK)];
+    }
+
+    /**
+     * @param index the index of a record
+     * @return the byte offset of the record within its chunk
+     */
+    private static int offset(long index) {
+        return (int) (index % RECORDS_PER_CHUNK) * RECORD_SIZE;
+    }
+
+    public static final int NO_MOVE = -1;
+
+    static final int MAGIC = 0x4F424B31;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 16;
+
+    private static final int MOVE_OFFSET = 8;
+    private static final int SCORE_OFFSET = 10;
+    private static final int COUNT_OFFSET = 12;
+    private static final long RECORDS_PER_CHUNK = (1L << 30) / RECORD_SIZE;
+
+    private final long size;
+    private final MappedByteBuffer[] chunks;
+}
@@ -0,0 +1,364 @@
+package core.ai;
+
+import core.BitBoard;
+import core.Board;
+import core.Constants;
+import core.Symmetry;
+import core.Transcript;
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * Builds an opening book from recorded games. Every position in the first
+ * plies of a game counts the move played from it and the final disc
+ * difference; the book then keeps the most played move of each position.
+ *
+ * Counts are kept in memory for a bounded number of positions. When the
+ * bound is reached they are written to a temporary run file sorted by key,
+ * keeping only the moves that were played, and write merges the runs, so
+ * the heap needed does not grow with the size of the book.
+ */
+public class OpeningBookBuilder
+{
+    public OpeningBookBuilder() {
+        this(DEFAULT_MAX_PLIES, DEFAULT_MIN_COUNT);
+    }
+
+    /**
+     * @param maxPlies the number of plies of each game that go into the book
+     * @param minCount the number of games a move needs before it is kept
+     */
+    public OpeningBookBuilder(int maxPlies, int minCount) {
+        this.maxPlies = maxPlies;
+        this.minCount = minCount;
+        this.board = new Board();
+        this.positions = new HashMap<>();
+        this.runs = new ArrayList<>();
+        this.maxPositionsInMemory = DEFAULT_MAX_POSITIONS_IN_MEMORY;
+    }
+
+    /**
+     * Add every game of a file with one transcript per line. Blank lines and
+     * lines starting with '#' are skipped, and so are lines that are not a
+     * legal game, which getSkippedGames counts.
+     *
+     * @param games the file of transcripts
+     * @return the number of games added
+     * @throws IOException if the file cannot be read
+     */
+    public int addGames(Path games) throws IOException {
+        int added = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(games)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                try {
+                    addGame(Transcript.parse(line));
+                    added++;
+                } catch (IllegalArgumentException e) {
+                    skippedGames++;
+                }
+            }
+        }
+
+        return added;
+    }
+
+    /**
+     * @param moves the squares of the moves of a game, passes excluded
+     * @throws IllegalArgumentException if the moves are not a legal game, in which case nothing is added
+     * @throws IOException if the counts in memory cannot be written to a run file
+     */
+    public void addGame(int[] moves) throws IOException {
+        // Play the game through once to learn the final result, and that every move is legal
+        Transcript.replay(moves, board);
+        int discDifference = board.getDarkCount() - board.getLightCount();
+
+        Color color = Constants.DARK;
+        board.reset();
+
+        for (int ply = 0; ply < moves.length && ply < maxPlies; ply++) {
+            if (board.getLegalMoves(color) == 0) {
+                color = Board.getNextColor(color);
+            }
+
+            BitBoard bitBoard = board.getBitBoard();
+            int side = color == Constants.DARK ? Constants.DARK_SIDE : Constants.LIGHT_SIDE;
+            int symmetry = Symmetry.getCanonicalSymmetry(bitBoard.getDark(), bitBoard.getLight());
+            long dark = Symmetry.transform(bitBoard.getDark(), symmetry);
+            long light = Symmetry.transform(bitBoard.getLight(), symmetry);
+            long key = OpeningBook.key(dark, light, side);
+
+            int[] stats = positions.get(key);
+            if (stats == null) {
+                stats = new int[SQUARES * 2];
+                positions.put(key, stats);
+            }
+
+            // A symmetric position has moves that are the same move; count them as one
+            int move = Symmetry.getCanonicalSquare(dark, light, Symmetry.transformSquare(moves[ply], symmetry));
+            stats[move]++;
+            stats[SQUARES + move] += color == Constants.DARK ? discDifference : -discDifference;
+
+            board.play(moves[ply], color);
+            color = Board.getNextColor(color);
+        }
+
+        if (positions.size() >= maxPositionsInMemory) {
+            spill();
+        }
+    }
+
+    /**
+     * Write the book, sorted by key, from the counts of every game added.
+     * The counts are used up: the builder is empty afterwards.
+     *
+     * @param file the file to write
+     * @return the number of positions written
+     * @throws IOException if the file cannot be written or a run file read
+     */
+    public long write(Path file) throws IOException {
+        spill();
+
+        PriorityQueue<Run> heads = new PriorityQueue<>((first, second) -> Long.compare(first.key, second.key));
+        ArrayList<Run> opened = new ArrayList<>();
+        long[] stats = new long[SQUARES * 2];
+        long count = 0;
+        positionCount = 0;
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+            for (Path path : runs) {
+                Run run = new Run(path);
+                opened.add(run);
+                if (!run.isDone()) {
+                    heads.add(run);
+                }
+            }
+
+            // The record count is filled in at the end
+            output.writeInt(OpeningBook.MAGIC);
+            output.writeInt(OpeningBook.VERSION);
+            output.writeLong(0);
+
+            while (!heads.isEmpty()) {
+                long key = heads.peek().key;
+                Arrays.fill(stats, 0);
+                while (!heads.isEmpty() && heads.peek().key == key) {
+                    Run run = heads.poll();
+                    run.addTo(stats);
+                    if (!run.isDone()) {
+                        heads.add(run);
+                    }
+                }
+                positionCount++;
+
+                int move = bestMove(stats);
+                if (move != OpeningBook.NO_MOVE) {
+                    output.writeLong(key);
+                    output.writeByte(move);
+                    output.writeByte(0);
+                    output.writeShort(Math.round((float) stats[SQUARES + move] / stats[move]));
+                    output.writeInt((int) Math.min(Integer.MAX_VALUE, stats[move]));
+                    count++;
+                }
+            }
+        } finally {
+            for (Run run : opened) {
+                run.close();
+            }
+            for (Path path : runs) {
+                Files.deleteIfExists(path);
+            }
+            runs.clear();
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer size = ByteBuffer.allocate(Long.BYTES).putLong(0, count);
+            while (size.hasRemaining()) {
+                channel.write(size, Integer.BYTES * 2 + size.position());
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Write the counts in memory to a new run file, sorted by key, and forget them
+     *
+     * @throws IOException if the run file cannot be written
+     */
+    private void spill() throws IOException {
+        if (positions.isEmpty()) {
+            return;
+        }
+
+        long[] keys = new long[positions.size()];
+        int count = 0;
+        for (long key : positions.keySet()) {
+            keys[count++] = key;
+        }
+        Arrays.sort(keys);
+
+        Path path = Files.createTempFile("opening-book-", ".run");
+        path.toFile().deleteOnExit();
+        runs.add(path);
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE))) {
+            output.writeInt(keys.length);
+            for (long key : keys) {
+                int[] stats = positions.get(key);
+                int played = 0;
+                for (int move = 0; move < SQUARES; move++) {
+                    played += stats[move] != 0 ? 1 : 0;
+                }
+
+                output.writeLong(key);
+                output.writeByte(played);
+                for (int move = 0; move < SQUARES; move++) {
+                    if (stats[move] != 0) {
+                        output.writeByte(move);
+                        output.writeInt(stats[move]);
+                        output.writeInt(stats[SQUARES + move]);
+                    }
+                }
+            }
+        }
+
+        positions.clear();
+    }
+
+    /**
+     * @return the number of positions the last write found, kept or not
+     */
+    public long getPositionCount() {
+        return positionCount;
+    }
+
+    /**
+     * @param maxPositionsInMemory the number of positions to count in memory before writing them to a run file
+     */
+    void setMaxPositionsInMemory(int maxPositionsInMemory) {
+        this.maxPositionsInMemory = maxPositionsInMemory;
+    }
+
+    /**
+     * @return the number of lines addGames skipped because they were not a legal game
+     */
+    public int getSkippedGames() {
+        return skippedGames;
+    }
+
+    /**
+     * @param stats the play counts and disc difference sums of a position, per move
+     * @return the most played move, the better average breaking ties, or NO_MOVE if no move was played often enough
+     */
+    private int bestMove(long[] stats) {
+        int best = OpeningBook.NO_MOVE;
+
+        for (int move = 0; move < SQUARES; move++) {
+            if (stats[move] < minCount) {
+                continue;
+            }
+
+            if (best == OpeningBook.NO_MOVE || stats[move] > stats[best]
+                    || (stats[move] == stats[best] && stats[SQUARES + move] > stats[SQUARES + best])) {
+                best = move;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * A run file being merged, positioned at the moves of its current key
+     */
+    private static class Run implements Closeable
+    {
+        /**
+         * @param path the run file, as written by spill
+         * @throws IOException if the file cannot be read
+         */
+        Run(Path path) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+            this.remaining = input.readInt();
+            next();
+        }
+
+        /**
+         * Add the counts of the current key, and move on to the next key
+         *
+         * @param stats the play counts and disc difference sums of the key, per move
+         * @throws IOException if the file cannot be read
+         */
+        void addTo(long[] stats) throws IOException {
+            for (int played = input.readUnsignedByte(); played > 0; played--) {
+                int move = input.readUnsignedByte();
+                stats[move] += input.readInt();
+                stats[SQUARES + move] += input.readInt();
+            }
+            next();
+        }
+
+        /**
+         * @return whether every key has been read
+         */
+        boolean isDone() {
+            return remaining < 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+
+        /**
+         * Read the next key, or note that there is none
+         */
+        private void next() throws IOException {
+            if (remaining-- > 0) {
+                key = input.readLong();
+            }
+        }
+
+        private final DataInputStream input;
+        private int remaining;
+        private long key;
+    }
+
+    public static final int DEFAULT_MAX_PLIES = 20;
+    public static final int DEFAULT_MIN_COUNT = 2;
+
+    private static final int SQUARES = Constants.ROWS * Constants.COLUMNS;
+    // About 600 bytes each, so some 80 MB of counts before a spill
+    private static final int DEFAULT_MAX_POSITIONS_IN_MEMORY = 1 << 17;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final int maxPlies;
+    private final int minCount;
+    private final Board board;
+    private final HashMap<Long, int[]> positions;
+    private final ArrayList<Path> runs;
+    private int maxPositionsInMemory;
+    private long positionCount;
+    private int skippedGames;
+}
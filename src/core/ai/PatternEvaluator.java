@@ -0,0 +1,572 @@
+package core.ai;
+
+import core.BitBoard;
+import core.Constants;
+import core.Symmetry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+
+/**
+ * Scores a position by looking up every edge, corner region, line and
+ * diagonal in a table of weights, plus a mobility term.
+ *
+ * Each pattern is a fixed list of squares read as a base-3 number, one digit
+ * per square: 0 for empty, 1 for a dark disc and 2 for a light disc. The
+ * same pattern is used in every orientation the board's symmetries give it,
+ * and all orientations share one table. The pattern indices are kept up to
+ * date as discs are placed and flipped, so a leaf costs one lookup per
+ * pattern instead of reading the board. The tables hold weights from the
+ * point of view of the player to move; for light the digits 1 and 2 swap
+ * roles, which a second set of tables, reordered once, takes care of.
+ *
+ * There is a separate set of tables per game stage, by number of discs.
+ * PatternTrainer fits the tables to recorded games and writes them to a
+ * weights file; the default constructor loads the file named by the system
+ * property WEIGHTS_PROPERTY.
+ */
+public class PatternEvaluator implements IncrementalEvaluator
+{
+    /**
+     * Use the weights file named by the system property WEIGHTS_PROPERTY, or
+     * weights derived from the square values of SimpleEvaluator without one
+     */
+    public PatternEvaluator() {
+        this(DefaultWeights.WEIGHTS, DefaultWeights.LIGHT_WEIGHTS);
+    }
+
+    /**
+     * @param weights the weight tables by stage, then pattern (see getTableSize), then pattern index
+     */
+    public PatternEvaluator(short[][][] weights) {
+        this(checkWeights(weights), swapColors(weights));
+    }
+
+    /**
+     * @param weights the weight tables for the player to move as dark
+     * @param lightWeights the same tables for the player to move as light
+     */
+    private PatternEvaluator(short[][][] weights, short[][][] lightWeights) {
+        this.weights = weights;
+        this.lightWeights = lightWeights;
+        this.indices = new int[INSTANCES];
+        this.scratchIndices = new int[INSTANCES];
+        setPosition(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT);
+    }
+
+    @Override
+    public void setPosition(long dark, long light) {
+        this.dark = dark;
+        this.light = light;
+        computeIndices(dark, light, indices);
+    }
+
+    @Override
+    public void play(int square, long flips, int side) {
+        // The placed disc turns an empty digit into its own; a flip turns 2 into 1 or 1 into 2
+        addDigit(square, side == Constants.DARK_SIDE ? 1 : 2);
+        int flipDelta = side == Constants.DARK_SIDE ? -1 : 1;
+        for (long flipped = flips; flipped != 0; flipped &= flipped - 1) {
+            addDigit(Long.numberOfTrailingZeros(flipped), flipDelta);
+        }
+
+        long placed = (1L << square) | flips;
+        if (side == Constants.DARK_SIDE) {
+            dark |= placed;
+            light &= ~flips;
+        } else {
+            light |= placed;
+            dark &= ~flips;
+        }
+    }
+
+    @Override
+    public void undo(int square, long flips, int side) {
+        addDigit(square, side == Constants.DARK_SIDE ? -1 : -2);
+        int flipDelta = side == Constants.DARK_SIDE ? 1 : -1;
+        for (long flipped = flips; flipped != 0; flipped &= flipped - 1) {
+            addDigit(Long.numberOfTrailingZeros(flipped), flipDelta);
+        }
+
+        long placed = (1L << square) | flips;
+        if (side == Constants.DARK_SIDE) {
+            dark &= ~placed;
+            light |= flips;
+        } else {
+            light &= ~placed;
+            dark |= flips;
+        }
+    }
+
+    /**
+     * @param square the square whose digit changes
+     * @param delta the change of the digit
+     */
+    private void addDigit(int square, int delta) {
+        int[] instances = SQUARE_INSTANCES[square];
+        int[] powers = SQUARE_POWERS[square];
+
+        for (int index = 0; index < instances.length; index++) {
+            indices[instances[index]] += delta * powers[index];
+        }
+    }
+
+    @Override
+    public int evaluate(long player, long opponent) {
+        int stage = getStage(player, opponent);
+        short[][] tables;
+        int[] positionIndices;
+
+        if (player == dark && opponent == light) {
+            tables = weights[stage];
+            positionIndices = indices;
+        } else if (player == light && opponent == dark) {
+            tables = lightWeights[stage];
+            positionIndices = indices;
+        } else {
+            // A position nobody told us about; read it from scratch with the player as dark, and
+            // leave the tracked position alone for the play and undo calls still to come
+            computeIndices(player, opponent, scratchIndices);
+            tables = weights[stage];
+            positionIndices = scratchIndices;
+        }
+
+        int score = 0;
+        for (int instance = 0; instance < INSTANCES; instance++) {
+            score += tables[INSTANCE_PATTERN[instance]][positionIndices[instance]];
+        }
+
+        int mobility = Long.bitCount(BitBoard.legalMoves(player, opponent)) - Long.bitCount(BitBoard.legalMoves(opponent, player));
+        return score + tables[MOBILITY][MOBILITY_OFFSET + mobility];
+    }
+
+    /**
+     * Read every pattern of a position from scratch
+     *
+     * @param first the discs written as digit 1
+     * @param second the discs written as digit 2
+     * @param indices receives the index of every pattern instance
+     */
+    static void computeIndices(long first, long second, int[] indices) {
+        for (int instance = 0; instance < INSTANCES; instance++) {
+            int[] squares = INSTANCE_SQUARES[instance];
+            int index = 0;
+
+            for (int digit = squares.length - 1; digit >= 0; digit--) {
+                long tile = 1L << squares[digit];
+                index = index * 3 + ((first & tile) != 0 ? 1 : (second & tile) != 0 ? 2 : 0);
+            }
+
+            indices[instance] = index;
+        }
+    }
+
+    /**
+     * @param weights weight tables to check
+     * @return the weights
+     * @throws IllegalArgumentException if there are not STAGES sets of tables of the right sizes
+     */
+    static short[][][] checkWeights(short[][][] weights) {
+        if (weights.length != STAGES) {
+            throw new IllegalArgumentException("Expected " + STAGES + " stages of weights, got " + weights.length);
+        }
+        for (short[][] stage : weights) {
+            if (stage.length != TABLES) {
+                throw new IllegalArgumentException("Expected " + TABLES + " weight tables per stage, got " + stage.length);
+            }
+            for (int table = 0; table < TABLES; table++) {
+                if (stage[table].length != getTableSize(table)) {
+                    throw new IllegalArgumentException("Weight table " + table + " has the wrong size");
+                }
+            }
+        }
+
+        return weights;
+    }
+
+    /**
+     * Read a weights file, as written by PatternTrainer. The file is mapped
+     * rather than read through a stream, so the tables are copied straight
+     * out of the page cache.
+     *
+     * Layout, big-endian: magic, version, stages and tables per stage (4
+     * bytes each), then every table of every stage in order, 2 bytes per
+     * weight.
+     *
+     * @param file the weights file
+     * @return the weight tables by stage, then pattern, then pattern index
+     * @throws IOException if the file cannot be read or does not hold weights for these patterns
+     */
+    public static short[][][] readWeights(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long expected = WEIGHTS_HEADER_SIZE;
+            for (int table = 0; table < TABLES; table++) {
+                expected += 2L * STAGES * getTableSize(table);
+            }
+
+            if (channel.size() != expected) {
+                throw new IOException("Not a weights file for these patterns: " + file);
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, expected);
+            if (buffer.getInt() != WEIGHTS_MAGIC || buffer.getInt() != WEIGHTS_VERSION
+                    || buffer.getInt() != STAGES || buffer.getInt() != TABLES) {
+                throw new IOException("Not a weights file for these patterns: " + file);
+            }
+
+            ShortBuffer shorts = buffer.asShortBuffer();
+            short[][][] weights = new short[STAGES][TABLES][];
+            for (int stage = 0; stage < STAGES; stage++) {
+                for (int table = 0; table < TABLES; table++) {
+                    weights[stage][table] = new short[getTableSize(table)];
+                    shorts.get(weights[stage][table]);
+                }
+            }
+
+            return weights;
+        }
+    }
+
+    /**
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @return the game stage, which selects the set of weights
+     */
+    public static int getStage(long player, long opponent) {
+        return (Long.bitCount(player | opponent) - 4) / STAGE_DISCS;
+    }
+
+    /**
+     * @param table a pattern number, or MOBILITY
+     * @return the number of weights in the table
+     */
+    public static int getTableSize(int table) {
+        return table == MOBILITY ? MOBILITY_SIZE : POWERS[PATTERNS[table].length];
+    }
+
+    /**
+     * @param index a pattern index
+     * @param length the number of squares of the pattern
+     * @return the index with the digits 1 and 2 swapped
+     */
+    static int swapDigits(int index, int length) {
+        int swapped = 0;
+
+        for (int digit = 0; digit < length; digit++) {
+            int value = index % 3;
+            swapped += (value == 0 ? 0 : 3 - value) * POWERS[digit];
+            index /= 3;
+        }
+
+        return swapped;
+    }
+
+    /**
+     * @param weights weights for the player to move as digit 1
+     * @return the same weights for the player to move as digit 2
+     */
+    private static short[][][] swapColors(short[][][] weights) {
+        // Stages often share tables, so reorder each distinct table once
+        IdentityHashMap<short[], short[]> swappedTables = new IdentityHashMap<>();
+        short[][][] swapped = new short[STAGES][TABLES][];
+
+        for (int stage = 0; stage < STAGES; stage++) {
+            for (int table = 0; table < TABLES; table++) {
+                short[] original = weights[stage][table];
+                short[] copy = swappedTables.get(original);
+
+                if (copy == null) {
+                    copy = original;
+                    if (table != MOBILITY) {
+                        int length = PATTERNS[table].length;
+                        copy = new short[original.length];
+                        for (int index = 0; index < original.length; index++) {
+                            copy[index] = original[swapDigits(index, length)];
+                        }
+                    }
+                    swappedTables.put(original, copy);
+                }
+
+                swapped[stage][table] = copy;
+            }
+        }
+
+        return swapped;
+    }
+
+    /**
+     * Spread the square values of SimpleEvaluator over the patterns, so the
+     * pattern evaluation starts out as a weighted-square evaluation. X and C
+     * squares only count while the corner next to them is empty, which each
+     * pattern that holds the corner can see.
+     *
+     * @return one set of tables shared by every stage
+     */
+    public static short[][][] defaultWeights() {
+        // How many pattern instances account for each square
+        int[] coverage = new int[SQUARES];
+        for (int instance = 0; instance < INSTANCES; instance++) {
+            int[] squares = INSTANCE_SQUARES[instance];
+            for (int square : squares) {
+                if (!isCornerNeighbour(square) || contains(squares, cornerOf(square))) {
+                    coverage[square]++;
+                }
+            }
+        }
+
+        short[][] tables = new short[TABLES][];
+        for (int pattern = 0; pattern < PATTERNS.length; pattern++) {
+            int[] squares = PATTERNS[pattern];
+            tables[pattern] = new short[getTableSize(pattern)];
+
+            for (int index = 0; index < tables[pattern].length; index++) {
+                int value = 0;
+
+                for (int digit = 0; digit < squares.length; digit++) {
+                    int square = squares[digit];
+                    int owner = index / POWERS[digit] % 3;
+                    if (owner == 0 || coverage[square] == 0) {
+                        continue;
+                    }
+
+                    int squareValue = SQUARE_VALUES[square];
+                    if (isCornerNeighbour(square)) {
+                        int corner = indexOf(squares, cornerOf(square));
+                        squareValue = corner >= 0 && index / POWERS[corner] % 3 == 0 ? squareValue : 0;
+                    }
+
+                    // Round each share on its own so mirror images of a pattern sum to the same value
+                    int share = (int) Math.round(squareValue / (double) coverage[square]);
+                    value += owner == 1 ? share : -share;
+                }
+
+                tables[pattern][index] = (short) value;
+            }
+        }
+
+        tables[MOBILITY] = new short[MOBILITY_SIZE];
+        for (int index = 0; index < MOBILITY_SIZE; index++) {
+            tables[MOBILITY][index] = (short) ((index - MOBILITY_OFFSET) * MOBILITY_WEIGHT);
+        }
+
+        short[][][] weights = new short[STAGES][][];
+        for (int stage = 0; stage < STAGES; stage++) {
+            weights[stage] = tables;
+        }
+        return weights;
+    }
+
+    /**
+     * @param square a square
+     * @return whether the square is an X or C square
+     */
+    private static boolean isCornerNeighbour(int square) {
+        return (X_AND_C_SQUARES & (1L << square)) != 0;
+    }
+
+    /**
+     * @param square a square
+     * @return the corner in the same quarter of the board
+     */
+    private static int cornerOf(int square) {
+        int row = square / Constants.COLUMNS < Constants.ROWS / 2 ? 0 : Constants.ROWS - 1;
+        int col = square % Constants.COLUMNS < Constants.COLUMNS / 2 ? 0 : Constants.COLUMNS - 1;
+        return BitBoard.square(row, col);
+    }
+
+    /**
+     * @param squares a list of squares
+     * @param square the square to look for
+     * @return the position of the square in the list, or -1
+     */
+    private static int indexOf(int[] squares, int square) {
+        for (int index = 0; index < squares.length; index++) {
+            if (squares[index] == square) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param squares a list of squares
+     * @param square the square to look for
+     * @return whether the list holds the square
+     */
+    private static boolean contains(int[] squares, int square) {
+        return indexOf(squares, square) >= 0;
+    }
+
+    /**
+     * @return the pattern number of every instance
+     */
+    private static int[] instancePatterns() {
+        int[] patterns = new int[countInstances()];
+        int instance = 0;
+
+        for (int pattern = 0; pattern < PATTERNS.length; pattern++) {
+            for (int symmetry = 0; symmetry < PATTERN_SYMMETRIES[pattern].length; symmetry++) {
+                patterns[instance++] = pattern;
+            }
+        }
+
+        return patterns;
+    }
+
+    /**
+     * @return the squares of every instance, digit 0 first
+     */
+    private static int[][] instanceSquares() {
+        int[][] squares = new int[countInstances()][];
+        int instance = 0;
+
+        for (int pattern = 0; pattern < PATTERNS.length; pattern++) {
+            for (int symmetry : PATTERN_SYMMETRIES[pattern]) {
+                squares[instance] = new int[PATTERNS[pattern].length];
+                for (int digit = 0; digit < squares[instance].length; digit++) {
+                    squares[instance][digit] = Symmetry.transformSquare(PATTERNS[pattern][digit], symmetry);
+                }
+                instance++;
+            }
+        }
+
+        return squares;
+    }
+
+    /**
+     * @param powers whether to list the digit values instead of the instances
+     * @return per square, the instances containing it or the value of its digit in each
+     */
+    private static int[][] squareLists(boolean powers) {
+        int[][] lists = new int[SQUARES][];
+
+        for (int square = 0; square < SQUARES; square++) {
+            int count = 0;
+            for (int[] squares : INSTANCE_SQUARES) {
+                count += contains(squares, square) ? 1 : 0;
+            }
+
+            lists[square] = new int[count];
+            count = 0;
+            for (int instance = 0; instance < INSTANCE_SQUARES.length; instance++) {
+                int digit = indexOf(INSTANCE_SQUARES[instance], square);
+                if (digit >= 0) {
+                    lists[square][count++] = powers ? POWERS[digit] : instance;
+                }
+            }
+        }
+
+        return lists;
+    }
+
+    /**
+     * @return the number of pattern instances
+     */
+    private static int countInstances() {
+        int count = 0;
+        for (int[] symmetries : PATTERN_SYMMETRIES) {
+            count += symmetries.length;
+        }
+        return count;
+    }
+
+    /**
+     * Loads the default weights the first time they are needed, so every
+     * evaluator in the process shares one copy
+     */
+    private static class DefaultWeights
+    {
+        /**
+         * @return the weights from the file named by WEIGHTS_PROPERTY, or the derived weights
+         */
+        private static short[][][] load() {
+            String file = System.getProperty(WEIGHTS_PROPERTY);
+            if (file == null) {
+                return defaultWeights();
+            }
+
+            try {
+                return readWeights(Paths.get(file));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read the pattern weights " + file, e);
+            }
+        }
+
+        static final short[][][] WEIGHTS = load();
+        static final short[][][] LIGHT_WEIGHTS = swapColors(WEIGHTS);
+    }
+
+    private static final int SQUARES = Constants.ROWS * Constants.COLUMNS;
+    private static final int[] POWERS = { 1, 3, 9, 27, 81, 243, 729, 2187, 6561, 19683, 59049 };
+
+    // Base squares of each pattern, digit 0 first, laid out near the top-left corner
+    private static final int[][] PATTERNS = {
+        { 0, 1, 2, 3, 4, 5, 6, 7, 9, 14 },          // edge with both X squares
+        { 0, 1, 2, 3, 4, 8, 9, 10, 11, 12 },        // 2x5 corner region
+        { 0, 1, 2, 8, 9, 10, 16, 17, 18 },          // 3x3 corner region
+        { 8, 9, 10, 11, 12, 13, 14, 15 },           // second line
+        { 16, 17, 18, 19, 20, 21, 22, 23 },         // third line
+        { 24, 25, 26, 27, 28, 29, 30, 31 },         // fourth line
+        { 0, 9, 18, 27, 36, 45, 54, 63 },           // main diagonal
+        { 1, 10, 19, 28, 37, 46, 55 },              // diagonal of 7
+        { 2, 11, 20, 29, 38, 47 },                  // diagonal of 6
+        { 3, 12, 21, 30, 39 },                      // diagonal of 5
+        { 4, 13, 22, 31 }                           // diagonal of 4
+    };
+
+    // The symmetries that place each pattern everywhere it occurs on the board
+    private static final int[] ROTATIONS = { Symmetry.IDENTITY, Symmetry.ROTATE_90, Symmetry.ROTATE_180, Symmetry.ROTATE_270 };
+    private static final int[][] PATTERN_SYMMETRIES = {
+        ROTATIONS,
+        { Symmetry.IDENTITY, Symmetry.ROTATE_90, Symmetry.ROTATE_180, Symmetry.ROTATE_270,
+          Symmetry.FLIP_VERTICAL, Symmetry.FLIP_HORIZONTAL, Symmetry.FLIP_DIAGONAL, Symmetry.FLIP_ANTI_DIAGONAL },
+        ROTATIONS, ROTATIONS, ROTATIONS, ROTATIONS,
+        { Symmetry.IDENTITY, Symmetry.ROTATE_90 },
+        ROTATIONS, ROTATIONS, ROTATIONS, ROTATIONS
+    };
+
+    public static final String WEIGHTS_PROPERTY = "othello.weights";
+    public static final int STAGES = 13;
+    public static final int MOBILITY = PATTERNS.length;
+    public static final int TABLES = PATTERNS.length + 1;
+
+    static final int INSTANCES = countInstances();
+    static final int[] INSTANCE_PATTERN = instancePatterns();
+    static final int[][] INSTANCE_SQUARES = instanceSquares();
+    static final int MOBILITY_OFFSET = 64;
+    static final int WEIGHTS_MAGIC = 0x50545731;
+    static final int WEIGHTS_VERSION = 1;
+    static final int WEIGHTS_HEADER_SIZE = 16;
+
+    private static final int[][] SQUARE_INSTANCES = squareLists(false);
+    private static final int[][] SQUARE_POWERS = squareLists(true);
+    private static final int STAGE_DISCS = 5;
+    private static final int MOBILITY_SIZE = 2 * MOBILITY_OFFSET + 1;
+
+    // Same square values as SimpleEvaluator, per square
+    private static final int MOBILITY_WEIGHT = 60;
+    private static final long X_AND_C_SQUARES = 0x42C300000000C342L;
+    private static final int[] SQUARE_VALUES = {
+        800, -150,  50,  50,  50,  50, -150, 800,
+       -150, -400,   0,   0,   0,   0, -400, -150,
+         50,    0,   0,   0,   0,   0,    0,   50,
+         50,    0,   0,   0,   0,   0,    0,   50,
+         50,    0,   0,   0,   0,   0,    0,   50,
+         50,    0,   0,   0,   0,   0,    0,   50,
+       -150, -400,   0,   0,   0,   0, -400, -150,
+        800, -150,  50,  50,  50,  50, -150, 800
+    };
+
+    private final short[][][] weights;
+    private final short[][][] lightWeights;
+    private final int[] indices;
+    private final int[] scratchIndices;
+    private long dark;
+    private long light;
+}
@@ -0,0 +1,448 @@
+package core.ai;
+
+import core.BitBoard;
+import core.Constants;
+import core.Position;
+import core.Transcript;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fits the weights of PatternEvaluator to the results of recorded games.
+ *
+ * Every position of a game is a sample whose target is the final disc
+ * difference for the side to move. The evaluation is a sum of weights, so
+ * this is a least-squares fit, solved by gradient descent over batches of
+ * games. Games are streamed from the file a batch at a time and never all
+ * held in memory. Each batch is replayed and its gradient summed on a
+ * fork/join pool, every running task into a buffer of its own; the buffers
+ * are then added up per stage, and each weight moves by the average error of
+ * the samples that used it, times the learning rate.
+ */
+public class PatternTrainer
+{
+    /**
+     * Start from the derived weights and train on the common pool
+     */
+    public PatternTrainer() {
+        this(PatternEvaluator.defaultWeights(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param initial the weights to start from, such as those of an earlier training run
+     * @param pool the pool that replays games and sums gradients
+     */
+    public PatternTrainer(short[][][] initial, ForkJoinPool pool) {
+        PatternEvaluator.checkWeights(initial);
+
+        this.weights = new float[PatternEvaluator.STAGES][PatternEvaluator.TABLES][];
+        for (int stage = 0; stage < PatternEvaluator.STAGES; stage++) {
+            for (int table = 0; table < PatternEvaluator.TABLES; table++) {
+                weights[stage][table] = new float[initial[stage][table].length];
+                for (int index = 0; index < initial[stage][table].length; index++) {
+                    weights[stage][table][index] = initial[stage][table][index];
+                }
+            }
+        }
+
+        this.pool = pool;
+        this.gradients = new ConcurrentLinkedQueue<>();
+        this.idleGradients = new ConcurrentLinkedQueue<>();
+        this.learningRate = DEFAULT_LEARNING_RATE;
+        this.batchSize = DEFAULT_BATCH_SIZE;
+    }
+
+    /**
+     * Make one pass over a file with one transcript per line. Blank lines and
+     * lines starting with '#' are skipped, and so are lines that are not a
+     * legal game played to the end, which getSkippedGames counts.
+     *
+     * @param games the file of transcripts
+     * @return the root mean square error over the pass, in discs
+     * @throws IOException if the file cannot be read
+     */
+    public double trainEpoch(Path games) throws IOException {
+        samples = 0;
+        squaredError = 0;
+        skippedGames = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(games)) {
+            ArrayList<int[]> batch = new ArrayList<>(batchSize);
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    try {
+                        batch.add(Transcript.parse(line));
+                    } catch (IllegalArgumentException e) {
+                        skippedGames++;
+                    }
+                }
+
+                if (batch.size() == batchSize) {
+                    trainBatch(batch);
+                    batch.clear();
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                trainBatch(batch);
+            }
+        }
+
+        return getError();
+    }
+
+    /**
+     * Take one gradient step on a batch of games. Games that are not legal,
+     * or stop before the end, are left out and counted in getSkippedGames.
+     *
+     * @param games the squares of the moves of each game, passes excluded
+     */
+    public void trainBatch(List<int[]> games) {
+        pool.invoke(new GradientTask(games, 0, games.size()));
+
+        Gradient[] summed = gradients.toArray(new Gradient[0]);
+        pool.invoke(new UpdateTask(summed, 0, PatternEvaluator.STAGES));
+
+        for (Gradient gradient : summed) {
+            samples += gradient.samples;
+            squaredError += gradient.squaredError;
+            skippedGames += gradient.skippedGames;
+            gradient.samples = 0;
+            gradient.squaredError = 0;
+            gradient.skippedGames = 0;
+        }
+    }
+
+    /**
+     * Add the error of every position of a game to a gradient
+     *
+     * @param gradient the gradient buffer of the current task
+     * @param moves the squares of the moves of the game, passes excluded
+     * @return false if the moves are not a legal game played to the end, in which case nothing is added
+     */
+    private boolean accumulate(Gradient gradient, int[] moves) {
+        Position position = Position.INITIAL;
+
+        for (int ply = 0; ply < moves.length; ply++) {
+            if (position.legalMoves() == 0) {
+                position = position.pass();
+            }
+            if ((position.legalMoves() & (1L << moves[ply])) == 0) {
+                return false;
+            }
+
+            gradient.players[ply] = position.getPlayer();
+            gradient.opponents[ply] = position.getOpponent();
+            gradient.sides[ply] = position.getSide();
+            position = position.play(moves[ply]);
+        }
+
+        // The disc count of a game that stopped early is not a result to learn from
+        if (!position.isGameOver()) {
+            return false;
+        }
+
+        int discDifference = Long.bitCount(position.getDark()) - Long.bitCount(position.getLight());
+        int[] indices = gradient.indices;
+
+        for (int ply = 0; ply < moves.length; ply++) {
+            long player = gradient.players[ply];
+            long opponent = gradient.opponents[ply];
+            int stage = PatternEvaluator.getStage(player, opponent);
+            float[][] tables = weights[stage];
+            float[][] sums = gradient.sums[stage];
+            int[][] counts = gradient.counts[stage];
+
+            PatternEvaluator.computeIndices(player, opponent, indices);
+            int mobility = PatternEvaluator.MOBILITY_OFFSET + Long.bitCount(BitBoard.legalMoves(player, opponent))
+                    - Long.bitCount(BitBoard.legalMoves(opponent, player));
+
+            float prediction = tables[PatternEvaluator.MOBILITY][mobility];
+            for (int instance = 0; instance < PatternEvaluator.INSTANCES; instance++) {
+                prediction += tables[PatternEvaluator.INSTANCE_PATTERN[instance]][indices[instance]];
+            }
+
+            int target = (gradient.sides[ply] == Constants.DARK_SIDE ? discDifference : -discDifference) * SearchEngine.DISC_VALUE;
+            float error = target - prediction;
+
+            sums[PatternEvaluator.MOBILITY][mobility] += error;
+            counts[PatternEvaluator.MOBILITY][mobility]++;
+            for (int instance = 0; instance < PatternEvaluator.INSTANCES; instance++) {
+                int table = PatternEvaluator.INSTANCE_PATTERN[instance];
+                sums[table][indices[instance]] += error;
+                counts[table][indices[instance]]++;
+            }
+
+            double discs = error / SearchEngine.DISC_VALUE;
+            gradient.squaredError += discs * discs;
+            gradient.samples++;
+        }
+
+        return true;
+    }
+
+    /**
+     * Move the weights of a stage by the summed gradients and clear them
+     *
+     * @param summed every gradient buffer
+     * @param stage the stage to update
+     */
+    private void update(Gradient[] summed, int stage) {
+        for (int table = 0; table < PatternEvaluator.TABLES; table++) {
+            float[] tableWeights = weights[stage][table];
+
+            for (int index = 0; index < tableWeights.length; index++) {
+                double sum = 0;
+                int count = 0;
+
+                for (Gradient gradient : summed) {
+                    if (gradient.counts[stage][table][index] != 0) {
+                        sum += gradient.sums[stage][table][index];
+                        count += gradient.counts[stage][table][index];
+                        gradient.sums[stage][table][index] = 0;
+                        gradient.counts[stage][table][index] = 0;
+                    }
+                }
+
+                if (count > 0) {
+                    tableWeights[index] += (float) (learningRate * sum / count);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the current weights, rounded, by stage, then pattern, then pattern index
+     */
+    public short[][][] getWeights() {
+        short[][][] rounded = new short[PatternEvaluator.STAGES][PatternEvaluator.TABLES][];
+
+        for (int stage = 0; stage < PatternEvaluator.STAGES; stage++) {
+            for (int table = 0; table < PatternEvaluator.TABLES; table++) {
+                float[] tableWeights = weights[stage][table];
+                rounded[stage][table] = new short[tableWeights.length];
+
+                for (int index = 0; index < tableWeights.length; index++) {
+                    rounded[stage][table][index] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(tableWeights[index])));
+                }
+            }
+        }
+
+        return rounded;
+    }
+
+    /**
+     * Write the current weights in the format PatternEvaluator.readWeights maps
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        short[][][] rounded = getWeights();
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            output.writeInt(PatternEvaluator.WEIGHTS_MAGIC);
+            output.writeInt(PatternEvaluator.WEIGHTS_VERSION);
+            output.writeInt(PatternEvaluator.STAGES);
+            output.writeInt(PatternEvaluator.TABLES);
+
+            for (short[][] stage : rounded) {
+                for (short[] table : stage) {
+                    for (short weight : table) {
+                        output.writeShort(weight);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the root mean square error since the start of the last epoch, in discs
+     */
+    public double getError() {
+        return samples == 0 ? 0 : Math.sqrt(squaredError / samples);
+    }
+
+    /**
+     * @return the number of positions trained on since the start of the last epoch
+     */
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return the number of games left out since the start of the last epoch because they were not legal or not finished
+     */
+    public long getSkippedGames() {
+        return skippedGames;
+    }
+
+    /**
+     * @return the learning rate
+     */
+    public double getLearningRate() {
+        return learningRate;
+    }
+
+    /**
+     * @param learningRate the fraction of the average error each weight moves by per batch
+     */
+    public void setLearningRate(double learningRate) {
+        this.learningRate = learningRate;
+    }
+
+    /**
+     * @return the number of games per gradient step
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize the number of games per gradient step
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sums the gradient of a range of games, splitting it until it is small
+     */
+    private class GradientTask extends RecursiveAction
+    {
+        /**
+         * @param games the games of the batch
+         * @param from the first game of the range
+         * @param to the end of the range, exclusive
+         */
+        GradientTask(List<int[]> games, int from, int to) {
+            this.games = games;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GAMES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new GradientTask(games, from, middle), new GradientTask(games, middle, to));
+                return;
+            }
+
+            // Borrow a buffer no other task is using, so there are only as many as tasks ever ran at once
+            Gradient gradient = idleGradients.poll();
+            if (gradient == null) {
+                gradient = new Gradient();
+                gradients.add(gradient);
+            }
+
+            try {
+                for (int game = from; game < to; game++) {
+                    if (!accumulate(gradient, games.get(game))) {
+                        gradient.skippedGames++;
+                    }
+                }
+            } finally {
+                idleGradients.add(gradient);
+            }
+        }
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<int[]> games;
+        private final int from;
+        private final int to;
+    }
+
+    /**
+     * Applies the gradient to a range of stages, one stage per task
+     */
+    private class UpdateTask extends RecursiveAction
+    {
+        /**
+         * @param summed every gradient buffer
+         * @param from the first stage of the range
+         * @param to the end of the range, exclusive
+         */
+        UpdateTask(Gradient[] summed, int from, int to) {
+            this.summed = summed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new UpdateTask(summed, from, middle), new UpdateTask(summed, middle, to));
+            } else {
+                update(summed, from);
+            }
+        }
+
+        private static final long serialVersionUID = 1L;
+
+        private final Gradient[] summed;
+        private final int from;
+        private final int to;
+    }
+
+    /**
+     * The error sums of the tasks that used the buffer, with replay space for one game
+     */
+    private static class Gradient
+    {
+        Gradient() {
+            sums = new float[PatternEvaluator.STAGES][PatternEvaluator.TABLES][];
+            counts = new int[PatternEvaluator.STAGES][PatternEvaluator.TABLES][];
+
+            for (int stage = 0; stage < PatternEvaluator.STAGES; stage++) {
+                for (int table = 0; table < PatternEvaluator.TABLES; table++) {
+                    sums[stage][table] = new float[PatternEvaluator.getTableSize(table)];
+                    counts[stage][table] = new int[PatternEvaluator.getTableSize(table)];
+                }
+            }
+        }
+
+        final float[][][] sums;
+        final int[][][] counts;
+        final int[] indices = new int[PatternEvaluator.INSTANCES];
+        final long[] players = new long[MAX_MOVES];
+        final long[] opponents = new long[MAX_MOVES];
+        final int[] sides = new int[MAX_MOVES];
+        double squaredError;
+        long samples;
+        long skippedGames;
+    }
+
+    public static final double DEFAULT_LEARNING_RATE = 0.01;
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+
+    private static final int GAMES_PER_TASK = 32;
+    private static final int MAX_MOVES = Constants.ROWS * Constants.COLUMNS - 4;
+
+    private final float[][][] weights;
+    private final ForkJoinPool pool;
+    private final ConcurrentLinkedQueue<Gradient> gradients;
+    private final ConcurrentLinkedQueue<Gradient> idleGradients;
+    private double learningRate;
+    private int batchSize;
+    private long samples;
+    private double squaredError;
+    private long skippedGames;
+}
@@ -0,0 +1,576 @@
+package core.ai;
+
+import core.BitBoard;
+import core.Constants;
+import core.Zobrist;
+import core.metrics.FlightEvents;
+import core.metrics.Metrics;
+
+/**
+ * Finds the best move for the side to move with a negamax alpha-beta search.
+ *
+ * The search deepens one ply at a time until the time budget or the depth
+ * limit runs out, and reports the last fully searched depth. Moves are tried
+ * best-first: the move stored in the transposition table, the previous
+ * principal variation, then moves that leave the opponent the fewest replies,
+ * then by square priority. Positions reached again through a different move
+ * order are looked up in the transposition table instead of being searched
+ * twice. An incremental evaluator is told about every move made and taken
+ * back. Every buffer is allocated up front, so searching does not create
+ * garbage. An engine is not thread-safe; use one per thread.
+ */
+public class SearchEngine implements Searcher
+{
+    public SearchEngine() {
+        this(new SimpleEvaluator());
+    }
+
+    /**
+     * @param evaluator the evaluation used at the leaves of the search
+     */
+    public SearchEngine(Evaluator evaluator) {
+        this(evaluator, new TranspositionTable(DEFAULT_HASH_MEGABYTES));
+    }
+
+    /**
+     * @param evaluator the evaluation used at the leaves of the search
+     * @param table the transposition table to use
+     */
+    public SearchEngine(Evaluator evaluator, TranspositionTable table) {
+        setEvaluator(evaluator);
+        this.table = table;
+        initObjects();
+    }
+
+    /**
+     * Allocate the per-ply buffers used during the search
+     */
+    private void initObjects() {
+        moveBuffers = new int[MAX_PLY][MAX_MOVES];
+        keyBuffers = new int[MAX_PLY][MAX_MOVES];
+        pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+        pvLength = new int[MAX_PLY + 1];
+        rootMoves = new int[MAX_MOVES];
+        rootScores = new int[MAX_MOVES];
+        timeLimitMillis = DEFAULT_TIME_LIMIT_MILLIS;
+        maxDepth = MAX_DEPTH;
+    }
+
+    /**
+     * Search a position
+     *
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @param side the side to move (Constants.DARK_SIDE or Constants.LIGHT_SIDE)
+     * @return the best move found and the details of the search
+     */
+    @Override
+    public SearchResult search(long player, long opponent, int side) {
+        table.newSearch();
+        prepare();
+        return iterate(player, opponent, side, 0, 0);
+    }
+
+    /**
+     * Clear a stop request left over from an earlier search. Parallel searches
+     * call this before starting the workers, so a stop that arrives before a
+     * worker gets going is not lost.
+     */
+    void prepare() {
+        stopped = false;
+    }
+
+    /**
+     * Vary the order of moves that look equally good, so parallel workers on
+     * the same position go down different lines first
+     *
+     * @param orderSeed a different number per worker, or 0 for the usual order
+     */
+    void setOrderSeed(int orderSeed) {
+        this.orderSeed = orderSeed;
+    }
+
+    /**
+     * Deepen the search one ply at a time until time or depth runs out.
+     * Parallel helpers leave out some depths, so they spread over the
+     * depths instead of all searching the same one: a depth is skipped when
+     * (depth + skipPhase) / skipSize is odd. The last depth the search can
+     * reach is never skipped.
+     *
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @param side the side to move
+     * @param skipSize the length of the runs of searched and skipped depths, or 0 to search every depth
+     * @param skipPhase the offset of the runs
+     * @return the best move found and the details of the search
+     */
+    SearchResult iterate(long player, long opponent, int side, int skipSize, int skipPhase) {
+        long start = System.nanoTime();
+        deadline = start + timeLimitMillis * 1000000L;
+        nodes = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        previousPvLength = 0;
+
+        long hash = side == Constants.DARK_SIDE ? Zobrist.hash(player, opponent, side) : Zobrist.hash(opponent, player, side);
+
+        if (incremental != null) {
+            if (side == Constants.DARK_SIDE) {
+                incremental.setPosition(player, opponent);
+            } else {
+                incremental.setPosition(opponent, player);
+            }
+        }
+
+        // Without a legal move the only choice is to pass
+        long moves = BitBoard.legalMoves(player, opponent);
+        if (moves == 0) {
+            return new SearchResult(PASS, 0, 0, 0, 0, new int[] { PASS });
+        }
+
+        rootCount = 0;
+        while (moves != 0) {
+            rootMoves[rootCount++] = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+        }
+
+        int empties = Long.bitCount(~(player | opponent));
+        int bestScore = 0;
+        int completedDepth = 0;
+        int[] principalVariation = new int[] { rootMoves[0] };
+
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            if (skipSize > 0 && ((depth + skipPhase) / skipSize) % 2 != 0 && depth < Math.min(maxDepth, empties)) {
+                continue;
+            }
+
+            Object iteration = FlightEvents.beginSearchIteration();
+            int score = searchRoot(player, opponent, hash, side, depth);
+
+            if (stopped) {
+                FlightEvents.endSearchIteration(iteration, depth, 0, principalVariation[0], nodes, false);
+                break;
+            }
+
+            bestScore = score;
+            completedDepth = depth;
+            principalVariation = new int[pvLength[0]];
+            System.arraycopy(pvTable[0], 0, principalVariation, 0, pvLength[0]);
+            FlightEvents.endSearchIteration(iteration, depth, score, principalVariation[0], nodes, true);
+
+            // Stop once the search reaches the end of the game, and don't start
+            // an iteration that is unlikely to finish in time
+            long elapsed = System.nanoTime() - start;
+            if (depth >= empties || elapsed * 2 > timeLimitMillis * 1000000L) {
+                break;
+            }
+        }
+
+        Metrics.searchFinished(nodes, tableProbes, tableHits, start);
+        long elapsedMillis = (System.nanoTime() - start) / 1000000L;
+        return new SearchResult(principalVariation[0], bestScore, completedDepth, nodes, elapsedMillis, principalVariation);
+    }
+
+    /**
+     * Search every root move to the given depth, keeping the root moves sorted
+     * best first for the next iteration
+     *
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @param hash the Zobrist hash of the position
+     * @param side the side to move
+     * @param depth the depth to search
+     * @return the score of the best move
+     */
+    private int searchRoot(long player, long opponent, long hash, int side, int depth) {
+        int alpha = -INFINITY;
+        int beta = INFINITY;
+
+        for (int index = 0; index < rootCount; index++) {
+            int move = rootMoves[index];
+            long flips = BitBoard.flips(move, player, opponent);
+            long newPlayer = opponent & ~flips;
+            long newOpponent = player | flips | (1L << move);
+            long newHash = Zobrist.play(hash, move, flips, side);
+            int score;
+
+            if (incremental != null) {
+                incremental.play(move, flips, side);
+            }
+
+            // Principal variation search: prove later moves are worse with a null window
+            if (index == 0) {
+                score = -negamax(newPlayer, newOpponent, newHash, 1 - side, depth - 1, -beta, -alpha, 1, false);
+            } else {
+                score = -negamax(newPlayer, newOpponent, newHash, 1 - side, depth - 1, -alpha - 1, -alpha, 1, false);
+                if (score > alpha && !stopped) {
+                    score = -negamax(newPlayer, newOpponent, newHash, 1 - side, depth - 1, -beta, -alpha, 1, false);
+                }
+            }
+
+            if (incremental != null) {
+                incremental.undo(move, flips, side);
+            }
+
+            if (stopped) {
+                return 0;
+            }
+
+            rootScores[index] = score;
+            if (score > alpha) {
+                alpha = score;
+                updatePrincipalVariation(0, move);
+            }
+        }
+
+        sortRootMoves();
+        table.store(hash, depth, alpha, TranspositionTable.EXACT, rootMoves[0]);
+        return alpha;
+    }
+
+    /**
+     * Search a position below the root
+     *
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @param hash the Zobrist hash of the position
+     * @param side the side to move
+     * @param depth the remaining depth
+     * @param alpha the lower bound of the window
+     * @param beta the upper bound of the window
+     * @param ply the distance from the root
+     * @param passed whether the previous move was a pass
+     * @return the score of the position for the player to move
+     */
+    private int negamax(long player, long opponent, long hash, int side, int depth, int alpha, int beta, int ply, boolean passed) {
+        nodes++;
+        pvLength[ply] = 0;
+
+        if ((nodes & TIME_CHECK_INTERVAL) == 0 && System.nanoTime() >= deadline) {
+            stopped = true;
+        }
+        if (stopped) {
+            return 0;
+        }
+
+        long moves = BitBoard.legalMoves(player, opponent);
+
+        if (moves == 0) {
+            // Two passes in a row end the game
+            if (passed) {
+                return finalScore(player, opponent);
+            }
+
+            int score = -negamax(opponent, player, Zobrist.pass(hash), 1 - side, depth, -beta, -alpha, ply + 1, true);
+            updatePrincipalVariation(ply, PASS);
+            return score;
+        }
+
+        if (depth == 0 || ply >= MAX_PLY - 1) {
+            return evaluator.evaluate(player, opponent);
+        }
+
+        // Reuse what an earlier visit of this position found. Cutoffs are only
+        // taken in null windows, so the principal variation stays complete.
+        int hashMove = PASS;
+        long entry = table.probe(hash);
+        tableProbes++;
+        if (entry != 0) {
+            tableHits++;
+            hashMove = TranspositionTable.move(entry);
+
+            if (TranspositionTable.depth(entry) >= depth && beta - alpha == 1) {
+                int stored = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+
+                if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && stored >= beta)
+                    || (bound == TranspositionTable.UPPER && stored <= alpha)) {
+                    return stored;
+                }
+            }
+        }
+
+        int count = orderMoves(moves, player, opponent, depth, ply, hashMove);
+        int[] moveList = moveBuffers[ply];
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = PASS;
+
+        for (int index = 0; index < count; index++) {
+            int move = moveList[index];
+            long flips = BitBoard.flips(move, player, opponent);
+            long newPlayer = opponent & ~flips;
+            long newOpponent = player | flips | (1L << move);
+            long newHash = Zobrist.play(hash, move, flips, side);
+            int score;
+
+            if (incremental != null) {
+                incremental.play(move, flips, side);
+            }
+
+            if (index == 0) {
+                score = -negamax(newPlayer, newOpponent, newHash, 1 - side, depth - 1, -beta, -alpha, ply + 1, false);
+            } else {
+                score = -negamax(newPlayer, newOpponent, newHash, 1 - side, depth - 1, -alpha - 1, -alpha, ply + 1, false);
+                if (score > alpha && score < beta && !stopped) {
+                    score = -negamax(newPlayer, newOpponent, newHash, 1 - side, depth - 1, -beta, -alpha, ply + 1, false);
+                }
+            }
+
+            if (incremental != null) {
+                incremental.undo(move, flips, side);
+            }
+
+            if (stopped) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+
+                if (score > alpha) {
+                    alpha = score;
+                    updatePrincipalVariation(ply, move);
+
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = bestScore <= originalAlpha ? TranspositionTable.UPPER
+            : bestScore >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        table.store(hash, depth, bestScore, bound, bestMove);
+        return bestScore;
+    }
+
+    /**
+     * Fill the move buffer of a ply with the legal moves, best guesses first
+     *
+     * @param moves the mask of legal moves
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @param depth the remaining depth
+     * @param ply the distance from the root
+     * @param hashMove the best move stored in the transposition table, or PASS
+     * @return the number of moves
+     */
+    private int orderMoves(long moves, long player, long opponent, int depth, int ply, int hashMove) {
+        int[] moveList = moveBuffers[ply];
+        int[] keys = keyBuffers[ply];
+        int pvMove = ply < previousPvLength ? previousPv[ply] : PASS;
+        int count = 0;
+
+        while (moves != 0) {
+            int move = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+
+            int key = -SQUARE_PRIORITY[move];
+            if (orderSeed != 0) {
+                // Up to three points reorders moves of similar priority, but never a corner behind an X square
+                key += (move + 1) * orderSeed * 0x9E3779B9 >>> 30;
+            }
+
+            // Near the root it pays to look at how many replies each move leaves
+            if (depth >= MOBILITY_ORDERING_DEPTH) {
+                long flips = BitBoard.flips(move, player, opponent);
+                long replies = BitBoard.legalMoves(opponent & ~flips, player | flips | (1L << move));
+                key += Long.bitCount(replies) * MOBILITY_ORDERING_WEIGHT;
+            }
+
+            if (move == hashMove) {
+                key = Integer.MIN_VALUE;
+            } else if (move == pvMove) {
+                key = Integer.MIN_VALUE + 1;
+            }
+
+            // Insertion sort, lowest key first
+            int index = count++;
+            while (index > 0 && keys[index - 1] > key) {
+                keys[index] = keys[index - 1];
+                moveList[index] = moveList[index - 1];
+                index--;
+            }
+            keys[index] = key;
+            moveList[index] = move;
+        }
+
+        return count;
+    }
+
+    /**
+     * Sort the root moves by the scores of the last iteration, best first, and
+     * remember the principal variation for ordering the next iteration
+     */
+    private void sortRootMoves() {
+        for (int index = 1; index < rootCount; index++) {
+            int move = rootMoves[index];
+            int score = rootScores[index];
+            int position = index;
+
+            while (position > 0 && rootScores[position - 1] < score) {
+                rootMoves[position] = rootMoves[position - 1];
+                rootScores[position] = rootScores[position - 1];
+                position--;
+            }
+            rootMoves[position] = move;
+            rootScores[position] = score;
+        }
+
+        previousPvLength = pvLength[0];
+        System.arraycopy(pvTable[0], 0, previousPv, 0, previousPvLength);
+    }
+
+    /**
+     * Make a move the head of the principal variation at a ply
+     *
+     * @param ply the distance from the root
+     * @param move the best move at that ply
+     */
+    private void updatePrincipalVariation(int ply, int move) {
+        pvTable[ply][0] = move;
+        System.arraycopy(pvTable[ply + 1], 0, pvTable[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+
+    /**
+     * Score a finished game by its disc difference
+     *
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @return the final score for the player to move
+     */
+    static int finalScore(long player, long opponent) {
+        int difference = Long.bitCount(player) - Long.bitCount(opponent);
+
+        // Push decided games beyond any evaluation so the search prefers them
+        if (difference > 0) {
+            return FINAL_SCORE_BASE + difference * DISC_VALUE;
+        } else if (difference < 0) {
+            return -FINAL_SCORE_BASE + difference * DISC_VALUE;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Stop a running search as soon as possible. The result of the last
+     * completed iteration is returned.
+     */
+    @Override
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * @return the evaluator
+     */
+    public Evaluator getEvaluator() {
+        return evaluator;
+    }
+
+    /**
+     * @param evaluator the evaluator to set
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+        this.incremental = evaluator instanceof IncrementalEvaluator ? (IncrementalEvaluator) evaluator : null;
+    }
+
+    /**
+     * @return the transposition table
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * @return the time budget of a search in milliseconds
+     */
+    @Override
+    public long getTimeLimitMillis() {
+        return timeLimitMillis;
+    }
+
+    /**
+     * @param timeLimitMillis the time budget of a search in milliseconds
+     */
+    @Override
+    public void setTimeLimitMillis(long timeLimitMillis) {
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    /**
+     * @return the maxDepth
+     */
+    @Override
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @param maxDepth the maxDepth to set
+     */
+    @Override
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = Math.min(maxDepth, MAX_DEPTH);
+    }
+
+    /**
+     * @return the number of nodes visited by the last search
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    public static final int PASS = 64;
+    public static final int DISC_VALUE = 100;
+    public static final int FINAL_SCORE_BASE = 1000000;
+    public static final int INFINITY = 2000000;
+    public static final int MAX_DEPTH = 60;
+    public static final long DEFAULT_TIME_LIMIT_MILLIS = 300;
+    public static final int DEFAULT_HASH_MEGABYTES = 16;
+
+    private static final int MAX_PLY = 128;
+    private static final int MAX_MOVES = 64;
+    private static final int TIME_CHECK_INTERVAL = 4095;
+    private static final int MOBILITY_ORDERING_DEPTH = 3;
+    private static final int MOBILITY_ORDERING_WEIGHT = 16;
+
+    // Higher is tried earlier: corners first, squares next to corners last
+    private static final int[] SQUARE_PRIORITY = {
+        9, 2, 8, 6, 6, 8, 2, 9,
+        2, 1, 3, 4, 4, 3, 1, 2,
+        8, 3, 7, 5, 5, 7, 3, 8,
+        6, 4, 5, 0, 0, 5, 4, 6,
+        6, 4, 5, 0, 0, 5, 4, 6,
+        8, 3, 7, 5, 5, 7, 3, 8,
+        2, 1, 3, 4, 4, 3, 1, 2,
+        9, 2, 8, 6, 6, 8, 2, 9
+    };
+
+    private Evaluator evaluator;
+    private IncrementalEvaluator incremental;
+    private final TranspositionTable table;
+    private long timeLimitMillis;
+    private int maxDepth;
+    private long deadline;
+    private long nodes;
+    private long tableProbes;
+    private long tableHits;
+    private volatile boolean stopped;
+    private int orderSeed;
+
+    private int[][] moveBuffers;
+    private int[][] keyBuffers;
+    private int[][] pvTable;
+    private int[] pvLength;
+    private int[] previousPv = new int[MAX_PLY + 1];
+    private int previousPvLength;
+    private int[] rootMoves;
+    private int[] rootScores;
+    private int rootCount;
+}
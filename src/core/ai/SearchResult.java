@@ -0,0 +1,105 @@
+package core.ai;
+
+import core.Transcript;
+
+/**
+ * The outcome of a search: the best move found, its score and how it was found
+ */
+public class SearchResult
+{
+    /**
+     * @param bestMove the square of the best move, or SearchEngine.PASS
+     * @param score the score of the best move for the side to move
+     * @param depth the depth of the last completed iteration
+     * @param nodes the number of positions visited
+     * @param elapsedMillis the time the search took
+     * @param principalVariation the expected line of play, starting with the best move
+     */
+    public SearchResult(int bestMove, int score, int depth, long nodes, long elapsedMillis, int[] principalVariation) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedMillis = elapsedMillis;
+        this.principalVariation = principalVariation;
+    }
+
+    /**
+     * @param move a square or SearchEngine.PASS
+     * @return the move in the usual notation, such as "f5", or "pass"
+     */
+    public static String toNotation(int move) {
+        if (move == SearchEngine.PASS) {
+            return "pass";
+        }
+
+        return Transcript.toNotation(move);
+    }
+
+    /**
+     * @return the number of nodes searched per second
+     */
+    public long getNodesPerSecond() {
+        return nodes * 1000 / Math.max(1, elapsedMillis);
+    }
+
+    /**
+     * @return the bestMove
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * @return the score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return the depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the elapsedMillis
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return the principalVariation
+     */
+    public int[] getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder line = new StringBuilder();
+
+        for (int move : principalVariation) {
+            line.append(' ').append(toNotation(move));
+        }
+
+        return "depth " + depth + " score " + score + " nodes " + nodes + " time " + elapsedMillis + " ms pv" + line;
+    }
+
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedMillis;
+    private final int[] principalVariation;
+}
@@ -0,0 +1,42 @@
+package core.ai;
+
+/**
+ * A search that picks the best move for a position, single-threaded or parallel
+ */
+public interface Searcher
+{
+    /**
+     * Search a position
+     *
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @param side the side to move (Constants.DARK_SIDE or Constants.LIGHT_SIDE)
+     * @return the best move found and the details of the search
+     */
+    SearchResult search(long player, long opponent, int side);
+
+    /**
+     * Stop a running search as soon as possible
+     */
+    void stop();
+
+    /**
+     * @return the time budget of a search in milliseconds
+     */
+    long getTimeLimitMillis();
+
+    /**
+     * @param timeLimitMillis the time budget of a search in milliseconds
+     */
+    void setTimeLimitMillis(long timeLimitMillis);
+
+    /**
+     * @return the deepest iteration a search may start
+     */
+    int getMaxDepth();
+
+    /**
+     * @param maxDepth the deepest iteration a search may start
+     */
+    void setMaxDepth(int maxDepth);
+}
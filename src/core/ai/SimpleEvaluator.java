@@ -0,0 +1,50 @@
+package core.ai;
+
+import core.BitBoard;
+
+/**
+ * Scores a position by weighted squares and mobility. Corners are worth a lot,
+ * the squares next to an empty corner are dangerous, and having more moves
+ * than the opponent is good.
+ */
+public class SimpleEvaluator implements Evaluator
+{
+    @Override
+    public int evaluate(long player, long opponent) {
+        int score = 0;
+
+        score += CORNER_WEIGHT * (Long.bitCount(player & CORNERS) - Long.bitCount(opponent & CORNERS));
+        score += EDGE_WEIGHT * (Long.bitCount(player & EDGES) - Long.bitCount(opponent & EDGES));
+
+        // X and C squares only hurt while the corner next to them is still empty
+        long empty = ~(player | opponent);
+        long dangerous = (X_SQUARES | C_SQUARES) & cornerNeighbours(empty & CORNERS);
+        score += X_WEIGHT * (Long.bitCount(player & dangerous & X_SQUARES) - Long.bitCount(opponent & dangerous & X_SQUARES));
+        score += C_WEIGHT * (Long.bitCount(player & dangerous & C_SQUARES) - Long.bitCount(opponent & dangerous & C_SQUARES));
+
+        int playerMobility = Long.bitCount(BitBoard.legalMoves(player, opponent));
+        int opponentMobility = Long.bitCount(BitBoard.legalMoves(opponent, player));
+        score += MOBILITY_WEIGHT * (playerMobility - opponentMobility);
+
+        return score;
+    }
+
+    /**
+     * @param corners a mask of corners
+     * @return the squares touching those corners
+     */
+    private static long cornerNeighbours(long corners) {
+        return BitBoard.neighbours(corners) & ~corners;
+    }
+
+    private static final long CORNERS = 0x8100000000000081L;
+    private static final long X_SQUARES = 0x0042000000004200L;
+    private static final long C_SQUARES = 0x4281000000008142L;
+    private static final long EDGES = 0x3C0081818181003CL;
+
+    private static final int CORNER_WEIGHT = 800;
+    private static final int EDGE_WEIGHT = 50;
+    private static final int X_WEIGHT = -400;
+    private static final int C_WEIGHT = -150;
+    private static final int MOBILITY_WEIGHT = 60;
+}
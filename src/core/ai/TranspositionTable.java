@@ -0,0 +1,160 @@
+package core.ai;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table of search results, shared by any number of threads
+ * without locks.
+ *
+ * Each entry is two longs in parallel arrays: the packed data, and the
+ * position hash XORed with that data. A reader only trusts an entry whose key
+ * XOR data gives back its hash, so an entry torn by two threads writing at
+ * once looks like a miss instead of a wrong result.
+ *
+ * Entries come in buckets of two. The first slot keeps the deepest result
+ * (or any result from an older search); the second slot always takes the
+ * newest result that did not fit in the first.
+ */
+public class TranspositionTable
+{
+    /**
+     * @param megabytes the memory to use, rounded down to a power of two entries
+     */
+    public TranspositionTable(int megabytes) {
+        long entries = Math.max(BUCKET_SIZE, (long) megabytes * 1024 * 1024 / BYTES_PER_ENTRY);
+        int size = (int) Math.min(Long.highestOneBit(entries), 1 << 30);
+
+        keys = new long[size];
+        data = new long[size];
+        bucketMask = (size - 1) & ~(BUCKET_SIZE - 1);
+    }
+
+    /**
+     * Look up a position
+     *
+     * @param hash the hash of the position
+     * @return the packed entry, or 0 if the position is not in the table
+     */
+    public long probe(long hash) {
+        int index = (int) hash & bucketMask;
+
+        for (int slot = index; slot < index + BUCKET_SIZE; slot++) {
+            long entry = data[slot];
+            if ((keys[slot] ^ entry) == hash && entry != 0) {
+                return entry;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Store the result of searching a position
+     *
+     * @param hash the hash of the position
+     * @param depth the depth that was searched
+     * @param score the score that was found
+     * @param bound EXACT, LOWER or UPPER
+     * @param move the best move, or SearchEngine.PASS if there is none
+     */
+    public void store(long hash, int depth, int score, int bound, int move) {
+        int index = (int) hash & bucketMask;
+        long entry = pack(depth, score, bound, move);
+        long stored = data[index];
+
+        // Depth-preferred slot: replace shallower results, results of this position and stale ones
+        if (depth >= depth(stored) || (keys[index] ^ stored) == hash || generation(stored) != generation) {
+            write(index, hash, entry);
+        } else {
+            write(index + 1, hash, entry);
+        }
+    }
+
+    private void write(int slot, long hash, long entry) {
+        data[slot] = entry;
+        keys[slot] = hash ^ entry;
+    }
+
+    private long pack(int depth, int score, int bound, int move) {
+        return (score & 0xFFFFFFFFL)
+            | ((long) depth << DEPTH_SHIFT)
+            | ((long) bound << BOUND_SHIFT)
+            | ((long) move << MOVE_SHIFT)
+            | ((long) generation << GENERATION_SHIFT);
+    }
+
+    /**
+     * Mark the start of a new search, so entries from earlier searches are
+     * replaced first
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Forget every stored position
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * @param entry a packed entry
+     * @return the stored score
+     */
+    public static int score(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * @param entry a packed entry
+     * @return the stored depth
+     */
+    public static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    /**
+     * @param entry a packed entry
+     * @return EXACT, LOWER or UPPER
+     */
+    public static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 0x3;
+    }
+
+    /**
+     * @param entry a packed entry
+     * @return the stored best move
+     */
+    public static int move(long entry) {
+        return (int) (entry >>> MOVE_SHIFT) & 0x7F;
+    }
+
+    private static int generation(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & 0xFF;
+    }
+
+    /**
+     * @return the number of entries in the table
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    private static final int BYTES_PER_ENTRY = 16;
+    private static final int BUCKET_SIZE = 2;
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int MOVE_SHIFT = 42;
+    private static final int GENERATION_SHIFT = 49;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+    private int generation;
+}
@@ -0,0 +1,57 @@
+package core.metrics;
+
+/**
+ * Sends the engine's Java Flight Recorder events. The events themselves
+ * extend jdk.jfr.Event, which is not part of the Java 8 platform the project
+ * builds for, so they live in a separate source tree (jfr/src) compiled only
+ * on JDKs that have it; FlightEvents picks the implementation at run time.
+ *
+ * The begin methods return an opaque handle for the matching end method, or
+ * null when the event is not being recorded.
+ */
+public interface FlightEventEmitter
+{
+    /**
+     * @param move the square of the move
+     * @param side Constants.DARK_SIDE or Constants.LIGHT_SIDE
+     * @param flips the mask of flipped discs
+     * @param darkCount the dark discs after the move
+     * @param lightCount the light discs after the move
+     */
+    void movePlayed(int move, int side, long flips, int darkCount, int lightCount);
+
+    /**
+     * @return the handle of an iteration of an iterative deepening search that is starting
+     */
+    Object beginSearchIteration();
+
+    /**
+     * @param iteration the handle from beginSearchIteration
+     * @param depth the depth of the iteration
+     * @param score the score it found, or 0 if it was stopped
+     * @param bestMove the best move it found
+     * @param nodes the nodes the search has visited so far
+     * @param completed whether the iteration finished rather than being stopped
+     */
+    void endSearchIteration(Object iteration, int depth, int score, int bestMove, long nodes, boolean completed);
+
+    /**
+     * @return the handle of an endgame solve that is starting
+     */
+    Object beginEndgameSolve();
+
+    /**
+     * @param solve the handle from beginEndgameSolve
+     * @param empties the empty squares of the position
+     * @param score the final disc difference for the side to move
+     * @param bestMove the best move
+     * @param nodes the nodes the solve visited
+     */
+    void endEndgameSolve(Object solve, int empties, int score, int bestMove, long nodes);
+
+    /**
+     * @param move the square of a move taken from the opening book
+     * @param empties the empty squares of the position
+     */
+    void bookHit(int move, int empties);
+}
@@ -0,0 +1,115 @@
+package core.metrics;
+
+/**
+ * The entry point for the engine's Java Flight Recorder events.
+ *
+ * On a JDK with jdk.jfr, and with the classes built from jfr/src on the
+ * class path, the events go to JFR, where each can be enabled or disabled in
+ * a recording's settings (othello.MovePlayed, othello.SearchIteration,
+ * othello.EndgameSolve, othello.BookHit) and costs nothing while no
+ * recording is running. Otherwise, as on Java 8, every method does nothing.
+ * Either way the emitter is a static final, so the JIT inlines the calls.
+ */
+public final class FlightEvents
+{
+    private FlightEvents() {
+    }
+
+    /**
+     * @return the JFR emitter if the JDK and the class path have one, or one that does nothing
+     */
+    private static FlightEventEmitter load() {
+        try {
+            Class.forName(JFR_EVENT);
+            return (FlightEventEmitter) Class.forName(JFR_EMITTER).getConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new NoEvents();
+        }
+    }
+
+    /**
+     * @return whether the events go to Java Flight Recorder
+     */
+    public static boolean isAvailable() {
+        return !(EMITTER instanceof NoEvents);
+    }
+
+    /**
+     * @see FlightEventEmitter#movePlayed
+     */
+    public static void movePlayed(int move, int side, long flips, int darkCount, int lightCount) {
+        EMITTER.movePlayed(move, side, flips, darkCount, lightCount);
+    }
+
+    /**
+     * @see FlightEventEmitter#beginSearchIteration
+     */
+    public static Object beginSearchIteration() {
+        return EMITTER.beginSearchIteration();
+    }
+
+    /**
+     * @see FlightEventEmitter#endSearchIteration
+     */
+    public static void endSearchIteration(Object iteration, int depth, int score, int bestMove, long nodes, boolean completed) {
+        EMITTER.endSearchIteration(iteration, depth, score, bestMove, nodes, completed);
+    }
+
+    /**
+     * @see FlightEventEmitter#beginEndgameSolve
+     */
+    public static Object beginEndgameSolve() {
+        return EMITTER.beginEndgameSolve();
+    }
+
+    /**
+     * @see FlightEventEmitter#endEndgameSolve
+     */
+    public static void endEndgameSolve(Object solve, int empties, int score, int bestMove, long nodes) {
+        EMITTER.endEndgameSolve(solve, empties, score, bestMove, nodes);
+    }
+
+    /**
+     * @see FlightEventEmitter#bookHit
+     */
+    public static void bookHit(int move, int empties) {
+        EMITTER.bookHit(move, empties);
+    }
+
+    /**
+     * The emitter used without Java Flight Recorder
+     */
+    private static class NoEvents implements FlightEventEmitter
+    {
+        @Override
+        public void movePlayed(int move, int side, long flips, int darkCount, int lightCount) {
+        }
+
+        @Override
+        public Object beginSearchIteration() {
+            return null;
+        }
+
+        @Override
+        public void endSearchIteration(Object iteration, int depth, int score, int bestMove, long nodes, boolean completed) {
+        }
+
+        @Override
+        public Object beginEndgameSolve() {
+            return null;
+        }
+
+        @Override
+        public void endEndgameSolve(Object solve, int empties, int score, int bestMove, long nodes) {
+        }
+
+        @Override
+        public void bookHit(int move, int empties) {
+        }
+    }
+
+    private static final String JFR_EVENT = "jdk.jfr.Event";
+    private static final String JFR_EMITTER = "core.metrics.jfr.JfrEventEmitter";
+
+    private static final FlightEventEmitter EMITTER = load();
+}
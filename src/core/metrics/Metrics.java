@@ -0,0 +1,289 @@
+package core.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms for the hot paths of the engine: move
+ * validation, move generation, score updates, searches, transposition table
+ * probes and game lengths.
+ *
+ * Recording is off unless the JVM is started with -Dothello.metrics=true.
+ * ENABLED is a static final, so when it is false the JIT drops every hook,
+ * including the calls to System.nanoTime, and the hot paths cost what they
+ * did before. When it is true, counters are LongAdders and histograms one
+ * atomic increment, so threads recording at once do not contend.
+ *
+ * The numbers can be read over JMX (see registerMBean), as a map of name to
+ * value (snapshot) or as text, one "name value" line each (dump).
+ */
+public final class Metrics implements MetricsMXBean
+{
+    private Metrics() {
+        this.movesValidated = new LongAdder();
+        this.invalidMoves = new LongAdder();
+        this.validationLatency = new Histogram();
+        this.moveGenerationLatency = new Histogram();
+        this.scoreCalculations = new LongAdder();
+        this.searches = new LongAdder();
+        this.searchNodes = new LongAdder();
+        this.searchNanos = new LongAdder();
+        this.tableProbes = new LongAdder();
+        this.tableHits = new LongAdder();
+        this.gameLength = new Histogram();
+    }
+
+    /**
+     * @return the metrics of this JVM
+     */
+    public static Metrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start timing an operation
+     *
+     * @return the time to pass to the matching hook, or 0 when disabled
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * @param valid whether the move was legal
+     * @param start the value of start() before the move was checked
+     */
+    public static void moveValidated(boolean valid, long start) {
+        if (ENABLED) {
+            INSTANCE.validationLatency.record(System.nanoTime() - start);
+            INSTANCE.movesValidated.increment();
+            if (!valid) {
+                INSTANCE.invalidMoves.increment();
+            }
+        }
+    }
+
+    /**
+     * @param start the value of start() before the legal moves were generated
+     */
+    public static void movesGenerated(long start) {
+        if (ENABLED) {
+            INSTANCE.moveGenerationLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Count a call to calculateScore
+     */
+    public static void scoreCalculated() {
+        if (ENABLED) {
+            INSTANCE.scoreCalculations.increment();
+        }
+    }
+
+    /**
+     * Count a finished search. Searches count their nodes and probes in plain
+     * fields and report them here once, so nothing is shared per node.
+     *
+     * @param nodes the nodes the search visited
+     * @param probes the transposition table probes it made
+     * @param hits the probes that found an entry
+     * @param start the value of start() when the search began
+     */
+    public static void searchFinished(long nodes, long probes, long hits, long start) {
+        if (ENABLED) {
+            INSTANCE.searchNanos.add(System.nanoTime() - start);
+            INSTANCE.searches.increment();
+            INSTANCE.searchNodes.add(nodes);
+            INSTANCE.tableProbes.add(probes);
+            INSTANCE.tableHits.add(hits);
+        }
+    }
+
+    /**
+     * @param moves the number of moves of a game that has ended, passes not included
+     */
+    public static void gameFinished(int moves) {
+        if (ENABLED) {
+            INSTANCE.gameLength.record(moves);
+        }
+    }
+
+    /**
+     * Make the metrics readable over JMX under OBJECT_NAME. Registering more
+     * than once does nothing.
+     *
+     * @throws IllegalStateException if the platform MBean server refuses the bean
+     */
+    public static void registerMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            server.registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Already registered
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register the metrics MBean", e);
+        }
+    }
+
+    /**
+     * @return every metric as a "name value" line
+     */
+    public static String dump() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Long> metric : INSTANCE.getSnapshot().entrySet()) {
+            text.append(metric.getKey()).append(' ').append(metric.getValue()).append('\n');
+        }
+        return text.toString();
+    }
+
+    @Override
+    public Map<String, Long> getSnapshot() {
+        LinkedHashMap<String, Long> snapshot = new LinkedHashMap<>();
+
+        snapshot.put("enabled", ENABLED ? 1L : 0L);
+        snapshot.put("moves.validated", getMovesValidated());
+        snapshot.put("moves.invalid", getInvalidMoves());
+        snapshot.put("moves.validation.p50.ns", getValidationLatencyMedian());
+        snapshot.put("moves.validation.p99.ns", getValidationLatency99());
+        snapshot.put("moves.validation.max.ns", validationLatency.getMax());
+        snapshot.put("movegen.count", getMoveGenerations());
+        snapshot.put("movegen.p50.ns", getMoveGenerationLatencyMedian());
+        snapshot.put("movegen.p99.ns", getMoveGenerationLatency99());
+        snapshot.put("movegen.max.ns", moveGenerationLatency.getMax());
+        snapshot.put("score.calculations", getScoreCalculations());
+        snapshot.put("search.count", getSearches());
+        snapshot.put("search.nodes", getSearchNodes());
+        snapshot.put("search.nodes_per_second", getNodesPerSecond());
+        snapshot.put("tt.probes", tableProbes.sum());
+        snapshot.put("tt.hits", tableHits.sum());
+        snapshot.put("tt.hit_rate.permille", Math.round(getTableHitRate() * 1000));
+        snapshot.put("games.played", getGamesPlayed());
+        snapshot.put("games.length.mean", Math.round(getMeanGameLength()));
+        snapshot.put("games.length.p50", gameLength.getValueAtPercentile(0.5));
+        snapshot.put("games.length.max", gameLength.getMax());
+
+        return snapshot;
+    }
+
+    @Override
+    public void reset() {
+        movesValidated.reset();
+        invalidMoves.reset();
+        validationLatency.reset();
+        moveGenerationLatency.reset();
+        scoreCalculations.reset();
+        searches.reset();
+        searchNodes.reset();
+        searchNanos.reset();
+        tableProbes.reset();
+        tableHits.reset();
+        gameLength.reset();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return ENABLED;
+    }
+
+    @Override
+    public long getMovesValidated() {
+        return movesValidated.sum();
+    }
+
+    @Override
+    public long getInvalidMoves() {
+        return invalidMoves.sum();
+    }
+
+    @Override
+    public long getValidationLatencyMedian() {
+        return validationLatency.getValueAtPercentile(0.5);
+    }
+
+    @Override
+    public long getValidationLatency99() {
+        return validationLatency.getValueAtPercentile(0.99);
+    }
+
+    @Override
+    public long getMoveGenerations() {
+        return moveGenerationLatency.getCount();
+    }
+
+    @Override
+    public long getMoveGenerationLatencyMedian() {
+        return moveGenerationLatency.getValueAtPercentile(0.5);
+    }
+
+    @Override
+    public long getMoveGenerationLatency99() {
+        return moveGenerationLatency.getValueAtPercentile(0.99);
+    }
+
+    @Override
+    public long getScoreCalculations() {
+        return scoreCalculations.sum();
+    }
+
+    @Override
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    @Override
+    public long getSearchNodes() {
+        return searchNodes.sum();
+    }
+
+    @Override
+    public long getNodesPerSecond() {
+        long nanos = searchNanos.sum();
+        // In floating point, as nodes times 10^9 outgrows a long after about 9.2e9 nodes
+        return nanos == 0 ? 0 : (long) (getSearchNodes() * 1e9 / nanos);
+    }
+
+    @Override
+    public double getTableHitRate() {
+        long probes = tableProbes.sum();
+        return probes == 0 ? 0 : (double) tableHits.sum() / probes;
+    }
+
+    @Override
+    public long getGamesPlayed() {
+        return gameLength.getCount();
+    }
+
+    @Override
+    public double getMeanGameLength() {
+        return gameLength.getMean();
+    }
+
+    /**
+     * The system property that turns recording on
+     */
+    public static final String ENABLED_PROPERTY = "othello.metrics";
+    public static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+    public static final String OBJECT_NAME = "othello:type=Metrics";
+
+    private static final Metrics INSTANCE = new Metrics();
+
+    private final LongAdder movesValidated;
+    private final LongAdder invalidMoves;
+    private final Histogram validationLatency;
+    private final Histogram moveGenerationLatency;
+    private final LongAdder scoreCalculations;
+    private final LongAdder searches;
+    private final LongAdder searchNodes;
+    private final LongAdder searchNanos;
+    private final LongAdder tableProbes;
+    private final LongAdder tableHits;
+    private final Histogram gameLength;
+}
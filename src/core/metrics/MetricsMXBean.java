@@ -0,0 +1,95 @@
+package core.metrics;
+
+import java.util.Map;
+
+/**
+ * The engine metrics as seen over JMX, registered by Metrics.registerMBean
+ * under Metrics.OBJECT_NAME. Latencies are in nanoseconds.
+ */
+public interface MetricsMXBean
+{
+    /**
+     * @return whether the hot paths record anything
+     */
+    boolean isEnabled();
+
+    /**
+     * @return the number of moves checked with Board.isValidMove
+     */
+    long getMovesValidated();
+
+    /**
+     * @return the number of those moves that were illegal
+     */
+    long getInvalidMoves();
+
+    /**
+     * @return the median time of Board.isValidMove
+     */
+    long getValidationLatencyMedian();
+
+    /**
+     * @return the 99th percentile time of Board.isValidMove
+     */
+    long getValidationLatency99();
+
+    /**
+     * @return the number of legal move generations, including hasMove
+     */
+    long getMoveGenerations();
+
+    /**
+     * @return the median time of a legal move generation
+     */
+    long getMoveGenerationLatencyMedian();
+
+    /**
+     * @return the 99th percentile time of a legal move generation
+     */
+    long getMoveGenerationLatency99();
+
+    /**
+     * @return the number of calls to calculateScore
+     */
+    long getScoreCalculations();
+
+    /**
+     * @return the number of finished searches and endgame solves
+     */
+    long getSearches();
+
+    /**
+     * @return the nodes visited by those searches
+     */
+    long getSearchNodes();
+
+    /**
+     * @return the nodes visited per second of search time
+     */
+    long getNodesPerSecond();
+
+    /**
+     * @return the fraction of transposition table probes that found an entry
+     */
+    double getTableHitRate();
+
+    /**
+     * @return the number of games played to the end
+     */
+    long getGamesPlayed();
+
+    /**
+     * @return the mean number of moves of those games
+     */
+    double getMeanGameLength();
+
+    /**
+     * @return every metric by name, as in the text dump
+     */
+    Map<String, Long> getSnapshot();
+
+    /**
+     * Start every counter and histogram over
+     */
+    void reset();
+}
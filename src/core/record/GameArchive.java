@@ -0,0 +1,320 @@
+package core.record;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An append-only file of game records with an index for random access.
+ *
+ * The data file is a plain record stream (see GameRecordWriter), so it can
+ * also be read from start to end with a GameRecordReader. Next to it, a file
+ * with the same name plus ".idx" holds a header and then the offset of every
+ * record in the data file, 8 bytes each, so record n is found with one read
+ * of the index and one of the data: the offsets of records n and n + 1 give
+ * both its position and its length. Records are only ever added at the end.
+ * Appends are buffered and written data first, index second; if the process
+ * dies between the two, opening the archive indexes the records the index
+ * missed and cuts off a record that was only partly written.
+ *
+ * Appends are serialised; reads may run on any number of threads.
+ */
+public class GameArchive implements Closeable
+{
+    /**
+     * Open an archive, creating it if the data file does not exist
+     *
+     * @param file the data file; the index is the same path plus ".idx"
+     * @throws IOException if the files cannot be opened or are not an archive
+     */
+    public GameArchive(Path file) throws IOException {
+        this.file = file;
+        this.data = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.index = FileChannel.open(Paths.get(file + INDEX_SUFFIX), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.dataBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.indexBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        try {
+            recover();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Check the headers, and bring the index up to date with the data file
+     *
+     * @throws IOException if the files cannot be read or are not an archive
+     */
+    private void recover() throws IOException {
+        if (data.size() == 0) {
+            writeHeader(data, GameRecordWriter.MAGIC);
+        }
+        if (index.size() == 0) {
+            writeHeader(index, INDEX_MAGIC);
+        }
+
+        checkHeader(data, GameRecordWriter.MAGIC);
+        checkHeader(index, INDEX_MAGIC);
+
+        // Drop a partly written offset, then any offsets of records the data file does not hold in full
+        count = (index.size() - GameRecordWriter.HEADER_SIZE) / OFFSET_SIZE;
+        while (count > 0 && recordEnd(readOffset(count - 1)) < 0) {
+            count--;
+        }
+        index.truncate(GameRecordWriter.HEADER_SIZE + count * OFFSET_SIZE);
+
+        // Index the records that made it into the data file but not the index
+        long offset = count == 0 ? GameRecordWriter.HEADER_SIZE : recordEnd(readOffset(count - 1));
+
+        while (true) {
+            long end = recordEnd(offset);
+            if (end < 0) {
+                break;
+            }
+
+            ByteBuffer offsetBytes = ByteBuffer.allocate(OFFSET_SIZE).putLong(0, offset);
+            writeFully(index, offsetBytes, GameRecordWriter.HEADER_SIZE + count * OFFSET_SIZE);
+            count++;
+            offset = end;
+        }
+
+        data.truncate(offset);
+        dataEnd = offset;
+        flushedCount = count;
+    }
+
+    /**
+     * Add a record at the end of the archive. It is buffered, and written out
+     * when the buffer fills, on flush, on close or when it is read.
+     *
+     * @param record the record to add
+     * @return the index of the record
+     * @throws IOException if the buffer cannot be written out
+     */
+    public synchronized long append(GameRecord record) throws IOException {
+        byte[] bytes = record.toBytes();
+
+        if (dataBuffer.remaining() < GameRecordWriter.LENGTH_SIZE + bytes.length || indexBuffer.remaining() < OFFSET_SIZE) {
+            flush();
+        }
+
+        indexBuffer.putLong(dataEnd + dataBuffer.position());
+        dataBuffer.putShort((short) bytes.length);
+        dataBuffer.put(bytes);
+        return count++;
+    }
+
+    /**
+     * Write out the buffered records, data first
+     *
+     * @throws IOException if the records cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        if (flushedCount == count) {
+            return;
+        }
+
+        dataBuffer.flip();
+        int written = dataBuffer.remaining();
+        writeFully(data, dataBuffer, dataEnd);
+        indexBuffer.flip();
+        writeFully(index, indexBuffer, GameRecordWriter.HEADER_SIZE + flushedCount * OFFSET_SIZE);
+
+        dataBuffer.clear();
+        indexBuffer.clear();
+        dataEnd += written;
+        flushedCount = count;
+    }
+
+    /**
+     * Write out the buffered records and force both files to the disk
+     *
+     * @throws IOException if the records cannot be written
+     */
+    public synchronized void sync() throws IOException {
+        flush();
+        data.force(false);
+        index.force(false);
+    }
+
+    /**
+     * @param number the index of a record
+     * @return the record
+     * @throws IOException if the record cannot be read
+     */
+    public GameRecord get(long number) throws IOException {
+        boolean last;
+        synchronized (this) {
+            if (number < 0 || number >= count) {
+                throw new IllegalArgumentException("No record " + number + " in an archive of " + count);
+            } else if (number >= flushedCount) {
+                flush();
+            }
+            last = number == flushedCount - 1;
+        }
+
+        // The next offset gives the length without a separate read of the data file
+        ByteBuffer offsets = ByteBuffer.allocate(last ? OFFSET_SIZE : 2 * OFFSET_SIZE);
+        readFully(index, offsets, GameRecordWriter.HEADER_SIZE + number * OFFSET_SIZE);
+        long offset = offsets.getLong(0);
+        int length = last ? readLength(offset) : (int) (offsets.getLong(OFFSET_SIZE) - offset - GameRecordWriter.LENGTH_SIZE);
+
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        readFully(data, bytes, offset + GameRecordWriter.LENGTH_SIZE);
+
+        try {
+            return GameRecord.fromBytes(bytes.array());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt game record " + number + " in " + file, e);
+        }
+    }
+
+    /**
+     * Read every record from the first, after writing out the buffered ones.
+     * Records appended while reading may or may not be seen.
+     *
+     * @return a reader over the data file, which the caller closes
+     * @throws IOException if the data file cannot be read
+     */
+    public GameRecordReader reader() throws IOException {
+        flush();
+        return new GameRecordReader(Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ)));
+    }
+
+    /**
+     * @return the number of records, including buffered ones
+     */
+    public synchronized long size() {
+        return count;
+    }
+
+    /**
+     * @return the data file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (data.isOpen() && index.isOpen()) {
+                flush();
+            }
+        } finally {
+            data.close();
+            index.close();
+        }
+    }
+
+    /**
+     * @param number the index of a record that is in the index file
+     * @return the offset of the record in the data file
+     */
+    private long readOffset(long number) throws IOException {
+        ByteBuffer offset = ByteBuffer.allocate(OFFSET_SIZE);
+        readFully(index, offset, GameRecordWriter.HEADER_SIZE + number * OFFSET_SIZE);
+        return offset.getLong(0);
+    }
+
+    /**
+     * @param offset the offset of a record in the data file
+     * @return the offset just past the record, or -1 if the data file ends before it does
+     */
+    private long recordEnd(long offset) throws IOException {
+        if (offset + GameRecordWriter.LENGTH_SIZE > data.size()) {
+            return -1;
+        }
+
+        long end = offset + GameRecordWriter.LENGTH_SIZE + readLength(offset);
+        return end <= data.size() ? end : -1;
+    }
+
+    /**
+     * @param offset the offset of a record in the data file
+     * @return the length of the record, not counting the length itself
+     */
+    private int readLength(long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(GameRecordWriter.LENGTH_SIZE);
+        readFully(data, length, offset);
+        return length.getShort(0) & 0xFFFF;
+    }
+
+    /**
+     * @param channel a new, empty file
+     * @param magic the magic number of the file
+     */
+    private static void writeHeader(FileChannel channel, int magic) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(GameRecordWriter.HEADER_SIZE);
+        header.putInt(magic).putInt(GameRecordWriter.VERSION).flip();
+        writeFully(channel, header, 0);
+    }
+
+    /**
+     * @param channel an existing file
+     * @param magic the magic number the file should start with
+     */
+    private void checkHeader(FileChannel channel, int magic) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(GameRecordWriter.HEADER_SIZE);
+
+        try {
+            readFully(channel, header, 0);
+        } catch (EOFException e) {
+            throw new IOException("Not a game archive: " + file, e);
+        }
+
+        if (header.getInt(0) != magic || header.getInt(4) != GameRecordWriter.VERSION) {
+            throw new IOException("Not a game archive: " + file);
+        }
+    }
+
+    /**
+     * @param channel the file to read
+     * @param buffer the buffer to fill
+     * @param position the position in the file to read from
+     * @throws EOFException if the file ends before the buffer is full
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of file at " + (position + buffer.position()));
+            }
+        }
+    }
+
+    /**
+     * @param channel the file to write
+     * @param buffer the bytes to write
+     * @param position the position in the file to write at
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long start = position - buffer.position();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, start + buffer.position());
+        }
+    }
+
+    public static final String INDEX_SUFFIX = ".idx";
+
+    private static final int INDEX_MAGIC = 0x4F474931;
+    private static final int OFFSET_SIZE = 8;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path file;
+    private final FileChannel data;
+    private final FileChannel index;
+    private final ByteBuffer dataBuffer;
+    private final ByteBuffer indexBuffer;
+    private long count;
+    private long flushedCount;
+    private long dataEnd;
+}
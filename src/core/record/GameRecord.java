@@ -0,0 +1,240 @@
+package core.record;
+
+import core.Constants;
+import core.GameResult;
+import core.Transcript;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A finished game as it is kept on disk: the players, the final disc counts,
+ * when it was played and its moves.
+ *
+ * The binary form is one byte per move plus a small header, about 80 bytes
+ * for a full game. Layout, big-endian: start time in epoch milliseconds (8
+ * bytes), duration in milliseconds (4, capped at about 24 days), dark and
+ * light disc counts (1 each), the dark and light player names as a length
+ * byte followed by UTF-8, then the number of moves (1) and one byte per move
+ * square, passes excluded.
+ */
+public final class GameRecord
+{
+    /**
+     * @param darkPlayer the name of the dark player
+     * @param lightPlayer the name of the light player
+     * @param darkCount the number of dark discs at the end of the game
+     * @param lightCount the number of light discs at the end of the game
+     * @param startTime when the game started, in epoch milliseconds
+     * @param endTime when the game ended, in epoch milliseconds
+     * @param moves the squares of the moves in the order they were played, passes excluded
+     */
+    public GameRecord(String darkPlayer, String lightPlayer, int darkCount, int lightCount, long startTime, long endTime, int[] moves) {
+        if (moves.length > MAX_MOVES) {
+            throw new IllegalArgumentException("A game has at most " + MAX_MOVES + " moves, got " + moves.length);
+        } else if (endTime < startTime) {
+            throw new IllegalArgumentException("A game cannot end before it starts");
+        } else if (darkCount < 0 || lightCount < 0 || darkCount + lightCount > SQUARES) {
+            throw new IllegalArgumentException("Impossible disc counts " + darkCount + " and " + lightCount);
+        }
+
+        this.darkPlayer = darkPlayer;
+        this.lightPlayer = lightPlayer;
+        this.darkCount = darkCount;
+        this.lightCount = lightCount;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.moves = moves.clone();
+    }
+
+    /**
+     * @param result the result of a game played from the initial position
+     * @param darkPlayer the name of the dark player
+     * @param lightPlayer the name of the light player
+     * @param startTime when the game started, in epoch milliseconds
+     * @param endTime when the game ended, in epoch milliseconds
+     * @return the record of the game
+     */
+    public static GameRecord of(GameResult result, String darkPlayer, String lightPlayer, long startTime, long endTime) {
+        return new GameRecord(darkPlayer, lightPlayer, result.getDarkCount(), result.getLightCount(), startTime, endTime, result.getMoves());
+    }
+
+    /**
+     * @return the record in its binary form
+     * @throws IllegalArgumentException if a player name is longer than 255 bytes in UTF-8
+     */
+    public byte[] toBytes() {
+        byte[] dark = encodeName(darkPlayer);
+        byte[] light = encodeName(lightPlayer);
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE + dark.length + light.length + moves.length);
+
+        buffer.putLong(startTime);
+        buffer.putInt((int) Math.min(Integer.MAX_VALUE, endTime - startTime));
+        buffer.put((byte) darkCount);
+        buffer.put((byte) lightCount);
+        buffer.put((byte) dark.length).put(dark);
+        buffer.put((byte) light.length).put(light);
+        buffer.put((byte) moves.length);
+        for (int move : moves) {
+            buffer.put((byte) move);
+        }
+
+        return buffer.array();
+    }
+
+    /**
+     * @param bytes a record in its binary form
+     * @return the record
+     * @throws IllegalArgumentException if the bytes are not a record
+     */
+    public static GameRecord fromBytes(byte[] bytes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long startTime = buffer.getLong();
+            long endTime = startTime + buffer.getInt();
+            int darkCount = buffer.get() & 0xFF;
+            int lightCount = buffer.get() & 0xFF;
+            String darkPlayer = decodeName(buffer);
+            String lightPlayer = decodeName(buffer);
+
+            int[] moves = new int[buffer.get() & 0xFF];
+            for (int index = 0; index < moves.length; index++) {
+                moves[index] = buffer.get();
+                if (moves[index] < 0 || moves[index] >= SQUARES) {
+                    throw new IllegalArgumentException("Not a move square: " + moves[index]);
+                }
+            }
+
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException("Game record has " + buffer.remaining() + " bytes left over");
+            }
+
+            return new GameRecord(darkPlayer, lightPlayer, darkCount, lightCount, startTime, endTime, moves);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Game record is truncated", e);
+        }
+    }
+
+    /**
+     * @param name a player name
+     * @return the name in UTF-8
+     */
+    private static byte[] encodeName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Player name is longer than " + MAX_NAME_BYTES + " bytes: " + name);
+        }
+        return bytes;
+    }
+
+    /**
+     * @param buffer a buffer at the length byte of a name
+     * @return the name
+     */
+    private static String decodeName(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.get() & 0xFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the moves in transcript notation
+     */
+    public String toTranscript() {
+        return Transcript.toString(moves);
+    }
+
+    /**
+     * @return the number of dark discs minus the number of light discs
+     */
+    public int getDiscDifference() {
+        return darkCount - lightCount;
+    }
+
+    /**
+     * @return the darkPlayer
+     */
+    public String getDarkPlayer() {
+        return darkPlayer;
+    }
+
+    /**
+     * @return the lightPlayer
+     */
+    public String getLightPlayer() {
+        return lightPlayer;
+    }
+
+    /**
+     * @return the darkCount
+     */
+    public int getDarkCount() {
+        return darkCount;
+    }
+
+    /**
+     * @return the lightCount
+     */
+    public int getLightCount() {
+        return lightCount;
+    }
+
+    /**
+     * @return the startTime
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return the endTime
+     */
+    public long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * @return the moves
+     */
+    public int[] getMoves() {
+        return moves.clone();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof GameRecord)) {
+            return false;
+        }
+
+        GameRecord record = (GameRecord) other;
+        return darkPlayer.equals(record.darkPlayer) && lightPlayer.equals(record.lightPlayer)
+                && darkCount == record.darkCount && lightCount == record.lightCount
+                && startTime == record.startTime && endTime == record.endTime && Arrays.equals(moves, record.moves);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(moves) * 31 + Long.hashCode(startTime);
+    }
+
+    @Override
+    public String toString() {
+        return darkPlayer + " " + darkCount + " - " + lightCount + " " + lightPlayer + ": " + toTranscript();
+    }
+
+    public static final int MAX_NAME_BYTES = 255;
+
+    // Start time, duration, both disc counts, both name lengths and the move count
+    private static final int FIXED_SIZE = 8 + 4 + 1 + 1 + 1 + 1 + 1;
+    private static final int SQUARES = Constants.ROWS * Constants.COLUMNS;
+    private static final int MAX_MOVES = SQUARES - 4;
+
+    private final String darkPlayer;
+    private final String lightPlayer;
+    private final int darkCount;
+    private final int lightCount;
+    private final long startTime;
+    private final long endTime;
+    private final int[] moves;
+}
@@ -0,0 +1,58 @@
+package core.record;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the game records of a stream written by GameRecordWriter, one at a
+ * time, so a file of any size can be read in constant memory.
+ */
+public class GameRecordReader implements Closeable
+{
+    /**
+     * @param input the stream to read, which the reader buffers and closes
+     * @throws IOException if the stream does not start with a record header
+     */
+    public GameRecordReader(InputStream input) throws IOException {
+        this.input = new DataInputStream(new BufferedInputStream(input, 1 << 16));
+
+        try {
+            if (this.input.readInt() != GameRecordWriter.MAGIC || this.input.readInt() != GameRecordWriter.VERSION) {
+                throw new IOException("Not a game record stream");
+            }
+        } catch (EOFException e) {
+            throw new IOException("Not a game record stream", e);
+        }
+    }
+
+    /**
+     * @return the next record, or null at the end of the stream
+     * @throws IOException if the stream cannot be read or ends inside a record
+     */
+    public GameRecord read() throws IOException {
+        int high = input.read();
+        if (high < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[(high << 8) | input.readUnsignedByte()];
+        input.readFully(bytes);
+
+        try {
+            return GameRecord.fromBytes(bytes);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt game record", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private final DataInputStream input;
+}
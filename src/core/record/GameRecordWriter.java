@@ -0,0 +1,63 @@
+package core.record;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes game records one after another to a stream. The stream starts with
+ * a magic number and version (4 bytes each); every record is then its length
+ * (2 bytes) followed by its binary form (see GameRecord).
+ */
+public class GameRecordWriter implements Closeable
+{
+    /**
+     * @param output the stream to write to, which the writer buffers and closes
+     * @throws IOException if the header cannot be written
+     */
+    public GameRecordWriter(OutputStream output) throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+        this.output.writeInt(MAGIC);
+        this.output.writeInt(VERSION);
+    }
+
+    /**
+     * @param record the record to write
+     * @throws IOException if the record cannot be written
+     */
+    public void write(GameRecord record) throws IOException {
+        byte[] bytes = record.toBytes();
+        output.writeShort(bytes.length);
+        output.write(bytes);
+        count++;
+    }
+
+    /**
+     * @throws IOException if the buffered records cannot be written
+     */
+    public void flush() throws IOException {
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+
+    /**
+     * @return the number of records written
+     */
+    public long getCount() {
+        return count;
+    }
+
+    static final int MAGIC = 0x4F475231;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int LENGTH_SIZE = 2;
+
+    private final DataOutputStream output;
+    private long count;
+}
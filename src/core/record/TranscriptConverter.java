@@ -0,0 +1,108 @@
+package core.record;
+
+import core.Position;
+import core.Transcript;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Converts between game records and text files with one transcript per line,
+ * the format the opening book builder and the pattern trainer read. Text
+ * holds only the moves, so imported games get their result by replaying
+ * them, unknown players and no times.
+ */
+public class TranscriptConverter
+{
+    /**
+     * @param transcript the moves of a game from the initial position, such as "f5d6c3"
+     * @return a record of the game with the final disc counts of the moves played
+     * @throws IllegalArgumentException if the transcript is not a legal game
+     */
+    public static GameRecord fromTranscript(String transcript) {
+        int[] moves = Transcript.parse(transcript);
+        Position position = Position.INITIAL;
+
+        for (int move : moves) {
+            if (position.legalMoves() == 0) {
+                position = position.pass();
+            }
+            position = position.play(move);
+        }
+
+        return new GameRecord(UNKNOWN_PLAYER, UNKNOWN_PLAYER, Long.bitCount(position.getDark()),
+                Long.bitCount(position.getLight()), 0, 0, moves);
+    }
+
+    /**
+     * Add every game of a transcript file to an archive. Blank lines and
+     * lines starting with '#' are skipped, and so are lines that are not a
+     * legal game, which getSkippedGames counts.
+     *
+     * @param transcripts the file of transcripts
+     * @param archive the archive to add the games to
+     * @return the number of games added
+     * @throws IOException if the file cannot be read or the archive written
+     */
+    public long importTranscripts(Path transcripts, GameArchive archive) throws IOException {
+        long imported = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(transcripts)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                GameRecord record;
+                try {
+                    record = fromTranscript(line);
+                } catch (IllegalArgumentException e) {
+                    skippedGames++;
+                    continue;
+                }
+                archive.append(record);
+                imported++;
+            }
+        }
+
+        archive.flush();
+        return imported;
+    }
+
+    /**
+     * @return the number of lines importTranscripts skipped because they were not a legal game
+     */
+    public long getSkippedGames() {
+        return skippedGames;
+    }
+
+    /**
+     * Write the moves of every record of a stream as a transcript file
+     *
+     * @param reader the records to write
+     * @param transcripts the file to write
+     * @return the number of games written
+     * @throws IOException if the records cannot be read or the file written
+     */
+    public static long exportTranscripts(GameRecordReader reader, Path transcripts) throws IOException {
+        long exported = 0;
+
+        try (BufferedWriter writer = Files.newBufferedWriter(transcripts)) {
+            for (GameRecord record = reader.read(); record != null; record = reader.read()) {
+                writer.write(record.toTranscript());
+                writer.newLine();
+                exported++;
+            }
+        }
+
+        return exported;
+    }
+
+    public static final String UNKNOWN_PLAYER = "?";
+
+    private long skippedGames;
+}
@@ -0,0 +1,61 @@
+package core.tournament;
+
+/**
+ * Elo estimates from match results. A score is the fraction of points won,
+ * counting a draw as half a point.
+ */
+public class Elo
+{
+    /**
+     * @param score the score, between 0 and 1
+     * @return the Elo difference that predicts the score
+     */
+    public static double difference(double score) {
+        if (score <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        } else if (score >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    /**
+     * @param wins the number of games won
+     * @param draws the number of games drawn
+     * @param losses the number of games lost
+     * @return the Elo difference shown by the results
+     */
+    public static double difference(int wins, int draws, int losses) {
+        int games = wins + draws + losses;
+        return games == 0 ? 0 : difference((wins + draws / 2.0) / games);
+    }
+
+    /**
+     * The half-width of the 95% confidence interval of the Elo difference,
+     * from the standard error of the mean score per game
+     *
+     * @param wins the number of games won
+     * @param draws the number of games drawn
+     * @param losses the number of games lost
+     * @return the margin, so the difference lies within difference +- margin
+     */
+    public static double errorMargin(int wins, int draws, int losses) {
+        int games = wins + draws + losses;
+        if (games == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double score = (wins + draws / 2.0) / games;
+        double variance = (wins * (1 - score) * (1 - score) + draws * (0.5 - score) * (0.5 - score)
+                + losses * score * score) / games;
+        double error = Math.sqrt(variance / games);
+
+        double lower = difference(score - Z_95 * error);
+        double upper = difference(score + Z_95 * error);
+        return (upper - lower) / 2;
+    }
+
+    // Standard normal quantile for a two-sided 95% interval
+    private static final double Z_95 = 1.959964;
+}
@@ -0,0 +1,43 @@
+package core.tournament;
+
+import core.MoveSource;
+import java.util.function.Supplier;
+
+/**
+ * A named engine configuration taking part in a tournament. Move sources
+ * keep search state and are not thread-safe, so each worker thread makes
+ * its own from the factory.
+ */
+public class Engine
+{
+    /**
+     * @param name the name shown in the standings
+     * @param factory makes a new move source for this configuration
+     */
+    public Engine(String name, Supplier<MoveSource> factory) {
+        this.name = name;
+        this.factory = factory;
+    }
+
+    /**
+     * @return a new move source for this configuration
+     */
+    public MoveSource createMoveSource() {
+        return factory.get();
+    }
+
+    /**
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private final String name;
+    private final Supplier<MoveSource> factory;
+}
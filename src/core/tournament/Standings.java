@@ -0,0 +1,125 @@
+package core.tournament;
+
+import java.util.List;
+
+/**
+ * The results of a tournament so far: wins, draws and losses of every
+ * engine against every other. Workers record games concurrently.
+ */
+public class Standings
+{
+    /**
+     * @param engines the engines taking part
+     */
+    public Standings(List<Engine> engines) {
+        this.engines = engines;
+        this.wins = new int[engines.size()][engines.size()];
+        this.draws = new int[engines.size()][engines.size()];
+    }
+
+    /**
+     * @param first the index of one engine
+     * @param second the index of the other engine
+     * @param discDifference the first engine's discs minus the second engine's discs
+     * @return the number of games recorded, including this one
+     */
+    public synchronized int record(int first, int second, int discDifference) {
+        if (discDifference > 0) {
+            wins[first][second]++;
+        } else if (discDifference < 0) {
+            wins[second][first]++;
+        } else {
+            draws[first][second]++;
+            draws[second][first]++;
+        }
+        return ++games;
+    }
+
+    /**
+     * @param engine the index of an engine
+     * @param opponent the index of the opponent, or -1 for all opponents together
+     * @return the wins, draws and losses of the engine
+     */
+    public synchronized int[] getRecord(int engine, int opponent) {
+        int[] record = new int[3];
+
+        for (int other = 0; other < engines.size(); other++) {
+            if (other == opponent || (opponent < 0 && other != engine)) {
+                record[WINS] += wins[engine][other];
+                record[DRAWS] += draws[engine][other];
+                record[LOSSES] += wins[other][engine];
+            }
+        }
+
+        return record;
+    }
+
+    /**
+     * @return the number of games recorded
+     */
+    public synchronized int getGames() {
+        return games;
+    }
+
+    /**
+     * @return the engines
+     */
+    public List<Engine> getEngines() {
+        return engines;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%-24s %7s %7s %7s %7s %16s%n", "Engine", "Games", "Wins", "Draws", "Losses", "Elo"));
+
+        for (int engine = 0; engine < engines.size(); engine++) {
+            appendRow(table, engines.get(engine).getName(), getRecord(engine, -1));
+
+            for (int opponent = 0; opponent < engines.size(); opponent++) {
+                int[] record = getRecord(engine, opponent);
+
+                if (opponent != engine && record[WINS] + record[DRAWS] + record[LOSSES] > 0) {
+                    appendRow(table, "  vs " + engines.get(opponent).getName(), record);
+                }
+            }
+        }
+
+        return table.toString();
+    }
+
+    /**
+     * @param table the table to append to
+     * @param name the name of the row
+     * @param record the wins, draws and losses
+     */
+    private static void appendRow(StringBuilder table, String name, int[] record) {
+        int games = record[WINS] + record[DRAWS] + record[LOSSES];
+        double elo = Elo.difference(record[WINS], record[DRAWS], record[LOSSES]);
+        double margin = Elo.errorMargin(record[WINS], record[DRAWS], record[LOSSES]);
+
+        table.append(String.format("%-24s %7d %7d %7d %7d %7s +- %5s%n",
+                name, games, record[WINS], record[DRAWS], record[LOSSES], format(elo), format(margin)));
+    }
+
+    /**
+     * @param value an Elo value
+     * @return the value with one decimal, or "inf" when a sweep makes it unbounded
+     */
+    private static String format(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return value < 0 ? "-inf" : "inf";
+        }
+
+        return String.format("%.1f", value);
+    }
+
+    public static final int WINS = 0;
+    public static final int DRAWS = 1;
+    public static final int LOSSES = 2;
+
+    private final List<Engine> engines;
+    private final int[][] wins;
+    private final int[][] draws;
+    private int games;
+}
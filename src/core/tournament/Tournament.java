@@ -0,0 +1,207 @@
+package core.tournament;
+
+import core.GameResult;
+import core.GameRunner;
+import core.MoveSource;
+import core.Transcript;
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Plays matches between engine configurations on a pool of worker threads.
+ *
+ * Each pairing plays every opening twice, once with each engine as dark, so
+ * neither colour nor opening choice favours an engine. Every worker keeps
+ * one game runner (and so one board) and one move source per engine for
+ * all the games it plays.
+ */
+public class Tournament
+{
+    /**
+     * @param engines the engines taking part
+     * @param openings the transcripts of the opening positions to start games from
+     * @param threads the number of games played at the same time
+     */
+    public Tournament(List<Engine> engines, List<int[]> openings, int threads) {
+        if (engines.size() < 2) {
+            throw new IllegalArgumentException("A tournament needs at least two engines");
+        } else if (openings.isEmpty()) {
+            throw new IllegalArgumentException("A tournament needs at least one opening");
+        }
+
+        this.engines = engines;
+        this.openings = openings;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Play every engine against every other engine
+     *
+     * @param gamesPerPairing the number of games each pair of engines plays
+     * @return the final standings
+     */
+    public Standings playRoundRobin(int gamesPerPairing) {
+        ArrayList<int[]> pairings = new ArrayList<>();
+
+        for (int first = 0; first < engines.size(); first++) {
+            for (int second = first + 1; second < engines.size(); second++) {
+                pairings.add(new int[] { first, second });
+            }
+        }
+
+        return play(pairings, gamesPerPairing);
+    }
+
+    /**
+     * Play the first engine against each of the others, as when testing a
+     * new version against a set of references
+     *
+     * @param gamesPerPairing the number of games the first engine plays against each other engine
+     * @return the final standings
+     */
+    public Standings playGauntlet(int gamesPerPairing) {
+        ArrayList<int[]> pairings = new ArrayList<>();
+
+        for (int opponent = 1; opponent < engines.size(); opponent++) {
+            pairings.add(new int[] { 0, opponent });
+        }
+
+        return play(pairings, gamesPerPairing);
+    }
+
+    /**
+     * @param pairings the pairs of engine indices that play each other
+     * @param gamesPerPairing the number of games each pair plays
+     * @return the final standings
+     */
+    private Standings play(List<int[]> pairings, int gamesPerPairing) {
+        // Interleave the pairings so the standings stay balanced while games are still running
+        ArrayList<int[]> games = new ArrayList<>();
+        for (int game = 0; game < gamesPerPairing; game++) {
+            for (int[] pairing : pairings) {
+                boolean swap = game % 2 == 1;
+                int opening = (game / 2) % openings.size();
+                games.add(new int[] { pairing[swap ? 1 : 0], pairing[swap ? 0 : 1], opening });
+            }
+        }
+
+        Standings standings = new Standings(engines);
+        AtomicInteger nextGame = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "tournament-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            ArrayList<Future<?>> futures = new ArrayList<>();
+            for (int worker = 0; worker < threads; worker++) {
+                futures.add(workers.submit(() -> runWorker(games, nextGame, standings)));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the tournament", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("A tournament game failed", ex.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+
+        return standings;
+    }
+
+    /**
+     * Take games from the shared list until none are left
+     *
+     * @param games the games to play, as dark engine, light engine and opening
+     * @param nextGame the index of the next game nobody has taken yet
+     * @param standings the standings to record the results in
+     */
+    private void runWorker(List<int[]> games, AtomicInteger nextGame, Standings standings) {
+        GameRunner runner = new GameRunner(null, null);
+        MoveSource[] sources = new MoveSource[engines.size()];
+
+        for (int index = nextGame.getAndIncrement(); index < games.size(); index = nextGame.getAndIncrement()) {
+            int[] game = games.get(index);
+            int dark = game[0];
+            int light = game[1];
+
+            if (sources[dark] == null) {
+                sources[dark] = engines.get(dark).createMoveSource();
+            }
+            if (sources[light] == null) {
+                sources[light] = engines.get(light).createMoveSource();
+            }
+
+            runner.setDarkSource(sources[dark]);
+            runner.setLightSource(sources[light]);
+
+            Color color = Transcript.replay(openings.get(game[2]), runner.getBoard());
+            GameResult result = runner.play(color);
+            int played = standings.record(dark, light, result.getDiscDifference());
+
+            if (progressListener != null && progressInterval > 0 && played % progressInterval == 0) {
+                progressListener.accept(standings);
+            }
+        }
+    }
+
+    /**
+     * @return a small set of well-known balanced openings, as transcripts
+     */
+    public static List<int[]> getDefaultOpenings() {
+        ArrayList<int[]> openings = new ArrayList<>();
+
+        for (String transcript : DEFAULT_OPENINGS) {
+            openings.add(Transcript.parse(transcript));
+        }
+
+        return openings;
+    }
+
+    /**
+     * @param progressListener called with the standings every progressInterval games, from a worker thread
+     * @param progressInterval the number of games between calls
+     */
+    public void setProgressListener(Consumer<Standings> progressListener, int progressInterval) {
+        this.progressListener = progressListener;
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * @return the engines
+     */
+    public List<Engine> getEngines() {
+        return engines;
+    }
+
+    /**
+     * @return the number of worker threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    // Common lines from the main opening families, several moves deep
+    private static final String[] DEFAULT_OPENINGS = {
+        "f5d6c3d3c4", "f5f6e6f4c3", "f5d6c5f4e3", "f5d6c3d3c4f4f6f3e6e7",
+        "f5d6c3d3c4f4c5b3c2", "f5f4e3f6d3", "f5d6c4d3c3", "f5f6e6f4e3c5c4", "f5d6c5"
+    };
+
+    private final List<Engine> engines;
+    private final List<int[]> openings;
+    private final int threads;
+    private Consumer<Standings> progressListener;
+    private int progressInterval;
+}
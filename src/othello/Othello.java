@@ -1,10 +1,486 @@
 package othello;
 
+import core.Board;
+import core.Constants;
 import core.Game;
+import core.GameResult;
+import core.GameRunner;
+import core.MoveSource;
+import core.Perft;
+import core.RandomMoveSource;
+import core.Transcript;
+import core.ai.AiMoveSource;
+import core.ai.LazySmpSearch;
+import core.ai.MctsSearch;
+import core.ai.OpeningBook;
+import core.ai.OpeningBookBuilder;
+import core.ai.PatternEvaluator;
+import core.ai.PatternTrainer;
+import core.ai.SearchEngine;
+import core.metrics.Metrics;
+import core.record.GameArchive;
+import core.record.GameRecord;
+import core.record.GameRecordReader;
+import core.record.TranscriptConverter;
+import core.tournament.Engine;
+import core.tournament.Standings;
+import core.tournament.Tournament;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.JOptionPane;
+import server.GameServer;
+import server.LoadTestClient;
+import server.VirtualThreads;
+import service.AnalysisService;
 import userInterface.OthelloUi;
 
 public class Othello {
     public static void main(String[] args){
-        new OthelloUi(new Game());
+        if (Metrics.ENABLED) {
+            reportMetrics();
+        }
+
+        // Only a plain start opens the window; a command with missing arguments must not fall through to it
+        String command = args.length > 0 ? args[0] : "";
+        switch (command) {
+            case "":
+                new OthelloUi(new Game(askPlayerName(), askPlayerName()));
+                break;
+            case "--cli":
+                runHeadless(args);
+                break;
+            case "--perft":
+                runPerft(args);
+                break;
+            case "--tournament":
+                requireArguments(args, 6, "--tournament round-robin|gauntlet games-per-pairing threads source source [source...]");
+                runTournament(args);
+                break;
+            case "--book":
+                requireArguments(args, 3, "--book games-file book-file [plies] [min count]");
+                buildBook(args);
+                break;
+            case "--train":
+                requireArguments(args, 3, "--train games-file weights-file [epochs] [initial weights file]");
+                trainWeights(args);
+                break;
+            case "--import":
+                requireArguments(args, 3, "--import transcripts-file archive-file");
+                importGames(args[1], args[2]);
+                break;
+            case "--export":
+                requireArguments(args, 3, "--export archive-file transcripts-file");
+                exportGames(args[1], args[2]);
+                break;
+            case "--serve":
+                runService(args);
+                break;
+            case "--server":
+                runGameServer(args);
+                break;
+            case "--loadtest":
+                requireArguments(args, 5, "--loadtest host port connections games-per-connection");
+                runLoadTest(args);
+                break;
+            case "--ai":
+                requireArguments(args, 2, "--ai dark|light [book file]");
+                runAgainstComputer(args[1], args.length > 2 ? openBook(args[2]) : null);
+                break;
+            default:
+                System.err.println("Unknown command: " + command);
+                System.err.println("Commands: --ai, --cli, --perft, --tournament, --book, --train, --import, --export, "
+                        + "--serve, --server, --loadtest");
+                System.exit(1);
+        }
+    }
+
+    /**
+     * Print the usage of a command and exit if it was given too few arguments
+     *
+     * @param args the command line arguments
+     * @param count the number of arguments the command needs, itself included
+     * @param usage the usage of the command
+     */
+    private static void requireArguments(String[] args, int count, String usage) {
+        if (args.length < count) {
+            System.err.println("Usage: " + usage);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Open the game window with the computer playing one of the colors.
+     * Usage: --ai dark|light [book file]
+     *
+     * @param computerColor the color the computer plays, "dark" or "light"
+     * @param book the opening book of the computer, or null
+     */
+    private static void runAgainstComputer(String computerColor, OpeningBook book) {
+        boolean computerIsDark = computerColor.equals("dark");
+        String playerName = askPlayerName();
+
+        Game game = computerIsDark ? new Game(COMPUTER_NAME, playerName) : new Game(playerName, COMPUTER_NAME);
+        AiMoveSource computer = new AiMoveSource();
+        computer.setBook(book);
+        game.setMoveSource(computerIsDark ? Constants.PLAYER_ONE : Constants.PLAYER_TWO, computer);
+        new OthelloUi(game);
+    }
+
+    /**
+     * Ask a player for their name
+     *
+     * @return the name that was entered
+     */
+    private static String askPlayerName() {
+        return JOptionPane.showInputDialog(null, "Enter player's name");
+    }
+
+    /**
+     * Play games between two move sources without opening any windows.
+     * Usage: --cli [games] [seed] [dark source] [light source] [book file] [archive file], where
+     * a source is "random" (the default), "ai", "pattern" (the AI with the
+     * pattern evaluator), "smp" (the AI searching on
+     * every core) or "mcts" (Monte Carlo tree search), the book is used
+     * by all AI sources ("-" for none), and every game is added to the archive
+     *
+     * @param args the command line arguments
+     */
+    private static void runHeadless(String[] args) {
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        OpeningBook book = args.length > 5 && !args[5].equals("-") ? openBook(args[5]) : null;
+        MoveSource darkSource = createMoveSource(args.length > 3 ? args[3] : "random", seed, book);
+        MoveSource lightSource = createMoveSource(args.length > 4 ? args[4] : "random", seed + 1, book);
+
+        GameRunner runner = new GameRunner(darkSource, lightSource);
+        int darkWins = 0;
+        int lightWins = 0;
+        int draws = 0;
+        long start = System.nanoTime();
+
+        try (GameArchive archive = args.length > 6 ? new GameArchive(Paths.get(args[6])) : null) {
+            for (int game = 0; game < games; game++) {
+                long startTime = System.currentTimeMillis();
+                GameResult result = runner.play();
+
+                if (archive != null) {
+                    archive.append(GameRecord.of(result, args[3], args[4], startTime, System.currentTimeMillis()));
+                }
+
+                if (result.getWinner() == Constants.DARK) {
+                    darkWins++;
+                } else if (result.getWinner() == Constants.LIGHT) {
+                    lightWins++;
+                } else {
+                    draws++;
+                }
+
+                if (games == 1) {
+                    System.out.println(result);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not record the games: " + e.getMessage());
+            System.exit(1);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println("Played " + games + " games in " + String.format("%.3f", seconds) + " s");
+        System.out.println("Dark wins: " + darkWins + ", light wins: " + lightWins + ", draws: " + draws);
+    }
+
+    /**
+     * Count the leaves of the move tree from the initial position for every
+     * depth up to the given one, and check them against the known counts.
+     * Usage: --perft [depth] [divide], where divide breaks the last depth
+     * down per root move
+     *
+     * @param args the command line arguments
+     */
+    private static void runPerft(String[] args) {
+        int maxDepth = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PERFT_DEPTH;
+        boolean divide = args.length > 2 && args[2].equals("divide");
+        Board board = new Board();
+        long dark = board.getBitBoard().getDark();
+        long light = board.getBitBoard().getLight();
+        boolean correct = true;
+
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            long start = System.nanoTime();
+            long nodes = Perft.count(board, Constants.DARK, depth);
+            long nanos = Math.max(1, System.nanoTime() - start);
+            long reference = Perft.getReferenceCount(depth);
+
+            String check = reference < 0 ? "no reference" : nodes == reference ? "ok" : "expected " + reference;
+            correct &= reference < 0 || nodes == reference;
+            System.out.println(String.format("perft %2d: %,16d nodes %10.3f s %,14d nodes/s  %s",
+                    depth, nodes, nanos / 1e9, (long) (nodes * 1e9 / nanos), check));
+        }
+
+        if (divide && maxDepth > 0) {
+            long[] counts = Perft.divide(dark, light, maxDepth);
+
+            for (int move = 0; move < counts.length; move++) {
+                if (counts[move] != 0) {
+                    String name = move == Perft.PASS ? "pass" : Transcript.toNotation(move);
+                    System.out.println(name + ": " + counts[move]);
+                }
+            }
+        }
+
+        if (!correct) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Play a tournament between move sources from the default openings, with
+     * each pair playing both colours of every opening.
+     * Usage: --tournament round-robin|gauntlet games-per-pairing threads source source [source...],
+     * where a gauntlet plays the first source against each of the others
+     *
+     * @param args the command line arguments
+     */
+    private static void runTournament(String[] args) {
+        boolean gauntlet = args[1].equals("gauntlet");
+        int gamesPerPairing = Integer.parseInt(args[2]);
+        int threads = Integer.parseInt(args[3]);
+        AtomicLong seeds = new AtomicLong(System.nanoTime());
+
+        ArrayList<Engine> engines = new ArrayList<>();
+        for (int arg = 4; arg < args.length; arg++) {
+            String name = args[arg];
+            engines.add(new Engine(name + "#" + (arg - 3), () -> createMoveSource(name, seeds.incrementAndGet(), null)));
+        }
+
+        Tournament tournament = new Tournament(engines, Tournament.getDefaultOpenings(), threads);
+        tournament.setProgressListener(standings -> System.out.println(standings.getGames() + " games played"),
+                TOURNAMENT_PROGRESS_INTERVAL);
+
+        long start = System.nanoTime();
+        Standings standings = gauntlet ? tournament.playGauntlet(gamesPerPairing) : tournament.playRoundRobin(gamesPerPairing);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.print(standings);
+        System.out.println("Played " + standings.getGames() + " games in " + String.format("%.3f", seconds) + " s");
+    }
+
+    /**
+     * Build an opening book from a file of game transcripts, one per line.
+     * Usage: --book games-file book-file [plies] [min count]
+     *
+     * @param args the command line arguments
+     */
+    private static void buildBook(String[] args) {
+        int plies = args.length > 3 ? Integer.parseInt(args[3]) : OpeningBookBuilder.DEFAULT_MAX_PLIES;
+        int minCount = args.length > 4 ? Integer.parseInt(args[4]) : OpeningBookBuilder.DEFAULT_MIN_COUNT;
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies, minCount);
+
+        try {
+            int games = builder.addGames(Paths.get(args[1]));
+            long positions = builder.write(Paths.get(args[2]));
+            System.out.println("Read " + games + " games, wrote " + positions + " of "
+                    + builder.getPositionCount() + " positions to " + args[2]);
+            if (builder.getSkippedGames() > 0) {
+                System.out.println("Skipped " + builder.getSkippedGames() + " lines that are not legal games");
+            }
+        } catch (IOException e) {
+            System.err.println("Could not build the book: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Run the engine as a local HTTP service until the process is stopped.
+     * Usage: --serve [port] [workers] [queue capacity]
+     *
+     * @param args the command line arguments
+     */
+    private static void runService(String[] args) {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SERVICE_PORT;
+        int workers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int capacity = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_SERVICE_QUEUE_CAPACITY;
+
+        try {
+            AnalysisService service = new AnalysisService(port, workers, capacity, SearchEngine::new);
+            service.start();
+            System.out.println("Analysing positions at http://127.0.0.1:" + service.getPort() + "/analyze with "
+                    + workers + " workers");
+        } catch (IOException e) {
+            System.err.println("Could not start the service: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Publish the metrics over JMX while the program runs, and print them
+     * when it exits
+     */
+    private static void reportMetrics() {
+        Metrics.registerMBean();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> System.err.print(Metrics.dump()), "metrics-dump"));
+    }
+
+    /**
+     * Host online matches over the line-based game server protocol until the
+     * process is stopped.
+     * Usage: --server [port]
+     *
+     * @param args the command line arguments
+     */
+    private static void runGameServer(String[] args) {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_GAME_SERVER_PORT;
+
+        try {
+            GameServer server = new GameServer(port);
+            server.start();
+            System.out.println("Hosting matches on port " + server.getPort()
+                    + (VirtualThreads.isAvailable() ? " with virtual threads" : " with platform threads"));
+        } catch (IOException e) {
+            System.err.println("Could not start the game server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Load a running game server with clients playing random moves.
+     * Usage: --loadtest host port connections games-per-connection
+     *
+     * @param args the command line arguments
+     */
+    private static void runLoadTest(String[] args) {
+        LoadTestClient client = new LoadTestClient(args[1], Integer.parseInt(args[2]),
+                Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+
+        try {
+            System.out.println(client.run());
+        } catch (IOException e) {
+            System.err.println("The load test failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Add the games of a file of transcripts, one per line, to a game archive.
+     * Usage: --import transcripts-file archive-file
+     *
+     * @param transcripts the file of transcripts
+     * @param archiveFile the archive, created if it does not exist
+     */
+    private static void importGames(String transcripts, String archiveFile) {
+        try (GameArchive archive = new GameArchive(Paths.get(archiveFile))) {
+            TranscriptConverter converter = new TranscriptConverter();
+            long games = converter.importTranscripts(Paths.get(transcripts), archive);
+            System.out.println("Imported " + games + " games, " + archive.size() + " in " + archiveFile);
+            if (converter.getSkippedGames() > 0) {
+                System.out.println("Skipped " + converter.getSkippedGames() + " lines that are not legal games");
+            }
+        } catch (IOException e) {
+            System.err.println("Could not import the games: " + e.getMessage());
+            System.exit(1);
+        }
     }
-}
\ No newline at end of file
+
+    /**
+     * Write the games of an archive as a file of transcripts, one per line.
+     * Usage: --export archive-file transcripts-file
+     *
+     * @param archiveFile the archive
+     * @param transcripts the file of transcripts to write
+     */
+    private static void exportGames(String archiveFile, String transcripts) {
+        try (GameArchive archive = new GameArchive(Paths.get(archiveFile));
+                GameRecordReader reader = archive.reader()) {
+            long games = TranscriptConverter.exportTranscripts(reader, Paths.get(transcripts));
+            System.out.println("Exported " + games + " games to " + transcripts);
+        } catch (IOException e) {
+            System.err.println("Could not export the games: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Fit the pattern evaluator to a file of game transcripts, one per line,
+     * and write the weights file, which the "pattern" source reads when the
+     * system property othello.weights names it.
+     * Usage: --train games-file weights-file [epochs] [initial weights file]
+     *
+     * @param args the command line arguments
+     */
+    private static void trainWeights(String[] args) {
+        int epochs = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_TRAINING_EPOCHS;
+
+        try {
+            short[][][] initial = args.length > 4 ? PatternEvaluator.readWeights(Paths.get(args[4])) : PatternEvaluator.defaultWeights();
+            PatternTrainer trainer = new PatternTrainer(initial, ForkJoinPool.commonPool());
+
+            for (int epoch = 1; epoch <= epochs; epoch++) {
+                long start = System.nanoTime();
+                double error = trainer.trainEpoch(Paths.get(args[1]));
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                System.out.println("Epoch " + epoch + ": error " + String.format("%.3f", error) + " discs over "
+                        + trainer.getSamples() + " positions in " + String.format("%.3f", seconds) + " s");
+                if (trainer.getSkippedGames() > 0) {
+                    System.out.println("Skipped " + trainer.getSkippedGames() + " lines that are not legal, finished games");
+                }
+            }
+
+            trainer.write(Paths.get(args[2]));
+        } catch (IOException e) {
+            System.err.println("Could not train the weights: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @param file the path of an opening book
+     * @return the book
+     */
+    private static OpeningBook openBook(String file) {
+        try {
+            return new OpeningBook(Paths.get(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the book " + file, e);
+        }
+    }
+
+    /**
+     * @param name the name of the move source, "random", "ai", "pattern", "smp" or "mcts"; the AI
+     *        sources take a time limit per move, such as "ai@50" for 50 ms
+     * @param seed the seed for random move sources
+     * @param book the opening book for AI move sources, or null
+     * @return the move source
+     */
+    private static MoveSource createMoveSource(String name, long seed, OpeningBook book) {
+        String[] parts = name.split("@", 2);
+
+        if (parts[0].equals("ai") || parts[0].equals("pattern") || parts[0].equals("smp") || parts[0].equals("mcts")) {
+            AiMoveSource source = parts[0].equals("ai") ? new AiMoveSource()
+                    : parts[0].equals("pattern") ? new AiMoveSource(new SearchEngine(new PatternEvaluator()))
+                    : parts[0].equals("mcts") ? new AiMoveSource(new MctsSearch())
+                    : new AiMoveSource(new LazySmpSearch(Runtime.getRuntime().availableProcessors()));
+            if (parts.length > 1) {
+                source.getEngine().setTimeLimitMillis(Long.parseLong(parts[1]));
+            }
+            source.setBook(book);
+            return source;
+        } else if (name.equals("random")) {
+            return new RandomMoveSource(seed);
+        }
+
+        throw new IllegalArgumentException("Unknown move source: " + name);
+    }
+
+    private static final String COMPUTER_NAME = "Computer";
+    private static final int DEFAULT_PERFT_DEPTH = 9;
+    private static final int DEFAULT_TRAINING_EPOCHS = 10;
+    private static final int DEFAULT_SERVICE_PORT = 8642;
+    private static final int DEFAULT_SERVICE_QUEUE_CAPACITY = 256;
+    private static final int DEFAULT_GAME_SERVER_PORT = 8643;
+    private static final int TOURNAMENT_PROGRESS_INTERVAL = 1000;
+}
@@ -0,0 +1,187 @@
+package server;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hosts matches between clients over the line-based protocol described in
+ * Protocol. Every connection gets a thread of its own, virtual where the
+ * JDK has them, that simply blocks on reading the socket, and a second one
+ * that writes the lines queued for it; every match has its own position, so
+ * any number of games run side by side in one JVM.
+ *
+ * Clients that send JOIN are paired in the order they arrive, the one that
+ * waited playing dark.
+ */
+public class GameServer
+{
+    /**
+     * @param port the port to listen on; 0 picks a free one
+     * @throws IOException if the port cannot be bound
+     */
+    public GameServer(int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, BACKLOG);
+        this.executor = VirtualThreads.newPerTaskExecutor("game-session");
+        this.sessions = ConcurrentHashMap.newKeySet();
+        this.waitingLock = new ReentrantLock();
+        this.activeMatches = new AtomicInteger();
+        this.finishedMatches = new AtomicLong();
+        this.nextMatchId = new AtomicLong();
+    }
+
+    /**
+     * Start accepting connections
+     */
+    public void start() {
+        Thread acceptor = new Thread(this::acceptConnections, "game-server-acceptor");
+        acceptor.start();
+    }
+
+    /**
+     * Stop accepting connections and close every open one
+     *
+     * @throws IOException if the server socket cannot be closed
+     */
+    public void stop() throws IOException {
+        serverSocket.close();
+        for (Session session : sessions) {
+            session.close();
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Hand every new connection to a session thread until the server stops
+     */
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+
+                Session session = new Session(socket, this);
+                sessions.add(session);
+                executor.execute(session);
+                executor.execute(session::writeLines);
+            } catch (IOException e) {
+                // Either the server was stopped, which ends the loop, or one connection failed
+            }
+        }
+    }
+
+    /**
+     * Pair a session with the one waiting for an opponent, or make it wait
+     *
+     * @param session a session that is not in a match
+     */
+    void join(Session session) {
+        Session opponent;
+
+        waitingLock.lock();
+        try {
+            opponent = waiting;
+            if (opponent == null || opponent == session) {
+                waiting = session;
+            } else {
+                waiting = null;
+            }
+        } finally {
+            waitingLock.unlock();
+        }
+
+        if (opponent == null || opponent == session) {
+            session.send(Protocol.WAITING);
+            return;
+        }
+
+        Match match = new Match(nextMatchId.incrementAndGet(), opponent, session, this);
+        opponent.matchStarted(match);
+        session.matchStarted(match);
+        activeMatches.incrementAndGet();
+        match.start();
+
+        // A player that left while the match was being set up did not see it to forfeit it
+        if (opponent.isClosed()) {
+            match.forfeit(opponent, Protocol.DISCONNECTED);
+        } else if (session.isClosed()) {
+            match.forfeit(session, Protocol.DISCONNECTED);
+        }
+    }
+
+    /**
+     * Called by a match once it is over
+     */
+    void matchEnded() {
+        activeMatches.decrementAndGet();
+        finishedMatches.incrementAndGet();
+    }
+
+    /**
+     * @param session a session whose connection has closed
+     */
+    void sessionClosed(Session session) {
+        waitingLock.lock();
+        try {
+            if (waiting == session) {
+                waiting = null;
+            }
+        } finally {
+            waitingLock.unlock();
+        }
+        sessions.remove(session);
+    }
+
+    /**
+     * @return the counts of the server as a STATS line
+     */
+    String describe() {
+        return Protocol.STATS + " sessions=" + getSessionCount() + " matches=" + getActiveMatches()
+                + " finished=" + getFinishedMatches() + " virtual=" + VirtualThreads.isAvailable();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return the number of open connections
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * @return the number of matches being played
+     */
+    public int getActiveMatches() {
+        return activeMatches.get();
+    }
+
+    /**
+     * @return the number of matches that have ended
+     */
+    public long getFinishedMatches() {
+        return finishedMatches.get();
+    }
+
+    private static final int BACKLOG = 1024;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor;
+    private final Set<Session> sessions;
+    private final ReentrantLock waitingLock;
+    private final AtomicInteger activeMatches;
+    private final AtomicLong finishedMatches;
+    private final AtomicLong nextMatchId;
+    private Session waiting;
+}
@@ -0,0 +1,230 @@
+package server;
+
+import core.Position;
+import core.Transcript;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Loads a game server with many connections at once, each joining games
+ * and playing random legal moves as fast as the server answers. It tracks
+ * every game locally from the server's lines, measures the time from
+ * sending a move to seeing it played, and reports games and moves per
+ * second with the latency distribution.
+ *
+ * The server pairs whoever joins first, so near the end of a run a client
+ * may be left waiting for an opponent that has already played all its
+ * games. Reads time out so such a client gives up, counted as an error,
+ * instead of holding the run open forever.
+ */
+public class LoadTestClient
+{
+    /**
+     * @param host the host of the server
+     * @param port the port of the server
+     * @param connections the number of clients connected at the same time, an even number so all can be paired
+     * @param gamesPerConnection the number of games each client plays
+     */
+    public LoadTestClient(String host, int port, int connections, int gamesPerConnection) {
+        if (connections < 2 || connections % 2 != 0) {
+            throw new IllegalArgumentException("The clients play each other, so there must be an even number of them");
+        }
+
+        this.host = host;
+        this.port = port;
+        this.connections = connections;
+        this.gamesPerConnection = gamesPerConnection;
+        this.games = new AtomicLong();
+        this.lastGameEnd = new AtomicLong();
+        this.moves = new AtomicLong();
+        this.errors = new AtomicLong();
+        this.latencyBuckets = new AtomicLongArray(LATENCY_BUCKETS);
+    }
+
+    /**
+     * Connect every client, play all the games and wait for the last one
+     *
+     * @return a summary of the run
+     * @throws IOException if a client fails
+     */
+    public String run() throws IOException {
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor("load-test");
+        ArrayList<Future<?>> clients = new ArrayList<>();
+        long start = System.nanoTime();
+        lastGameEnd.set(start);
+
+        try {
+            for (int client = 0; client < connections; client++) {
+                long seed = client;
+                String name = "load-" + client;
+                clients.add(executor.submit(() -> {
+                    playGames(name, seed);
+                    return null;
+                }));
+            }
+
+            for (Future<?> client : clients) {
+                client.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the clients", e);
+        } catch (ExecutionException e) {
+            throw new IOException("A client failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Up to the end of the last game, so a client that waited out its timeout does not count
+        long end = games.get() > 0 ? lastGameEnd.get() : System.nanoTime();
+        double seconds = (end - start) / 1e9;
+        // Both players count each game
+        long played = games.get() / 2;
+        return String.format("%d connections played %d games, %d moves in %.3f s: %.1f games/s, %.0f moves/s, %d errors%n"
+                + "Move latency: median %s, 90%% %s, 99%% %s, max %s",
+                connections, played, moves.get(), seconds, played / seconds, moves.get() / seconds, errors.get(),
+                latencyPercentile(0.5), latencyPercentile(0.9), latencyPercentile(0.99), latencyPercentile(1.0));
+    }
+
+    /**
+     * Play the games of one client
+     *
+     * @param name the name the client gives itself
+     * @param seed the seed of its random moves
+     */
+    private void playGames(String name, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+
+            send(writer, Protocol.HELLO + " " + name);
+            try {
+                for (int game = 0; game < gamesPerConnection; game++) {
+                    send(writer, Protocol.JOIN);
+                    playGame(reader, writer, random);
+                }
+            } catch (SocketTimeoutException e) {
+                errors.incrementAndGet();
+            }
+            send(writer, Protocol.QUIT);
+        }
+    }
+
+    /**
+     * Follow one game from JOIN to END, moving whenever it is this client's turn
+     *
+     * @param reader the lines from the server
+     * @param writer the lines to the server
+     * @param random the source of the random moves
+     */
+    private void playGame(BufferedReader reader, Writer writer, SplittableRandom random) throws IOException {
+        Position position = Position.INITIAL;
+        int side = -1;
+        long sentAt = 0;
+
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            String[] words = line.split(" ");
+
+            if (words[0].equals(Protocol.START)) {
+                side = Protocol.parseSide(words[2]);
+            } else if (words[0].equals(Protocol.TURN) && Protocol.parseSide(words[1]) == side) {
+                long legalMoves = position.legalMoves();
+                for (int skip = random.nextInt(Long.bitCount(legalMoves)); skip > 0; skip--) {
+                    legalMoves &= legalMoves - 1;
+                }
+
+                sentAt = System.nanoTime();
+                send(writer, Protocol.MOVE + " " + Transcript.toNotation(Long.numberOfTrailingZeros(legalMoves)));
+            } else if (words[0].equals(Protocol.MOVED)) {
+                if (Protocol.parseSide(words[1]) == side) {
+                    recordLatency(System.nanoTime() - sentAt);
+                    moves.incrementAndGet();
+                }
+                position = position.play(Transcript.parseMove(words[2]));
+            } else if (words[0].equals(Protocol.PASSED)) {
+                position = position.pass();
+            } else if (words[0].equals(Protocol.END)) {
+                games.incrementAndGet();
+                lastGameEnd.accumulateAndGet(System.nanoTime(), Math::max);
+                return;
+            } else if (words[0].equals(Protocol.ERROR)) {
+                errors.incrementAndGet();
+                throw new IOException("The server refused a move: " + line);
+            }
+        }
+
+        throw new IOException("The server closed the connection during a game");
+    }
+
+    /**
+     * @param writer the lines to the server
+     * @param line the line to send
+     */
+    private static void send(Writer writer, String line) throws IOException {
+        writer.write(line);
+        writer.write('\n');
+        writer.flush();
+    }
+
+    /**
+     * @param nanos the time from sending a move to seeing it played
+     */
+    private void recordLatency(long nanos) {
+        // Bucket b holds latencies from 2^b to 2^(b+1) microseconds
+        long micros = Math.max(1, nanos / 1000);
+        int bucket = Math.min(LATENCY_BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+        latencyBuckets.incrementAndGet(bucket);
+    }
+
+    /**
+     * @param fraction the fraction of moves that were at least as fast
+     * @return the upper end of the latency bucket holding that fraction of moves
+     */
+    private String latencyPercentile(double fraction) {
+        long total = 0;
+        for (int bucket = 0; bucket < LATENCY_BUCKETS; bucket++) {
+            total += latencyBuckets.get(bucket);
+        }
+
+        long seen = 0;
+        for (int bucket = 0; bucket < LATENCY_BUCKETS; bucket++) {
+            seen += latencyBuckets.get(bucket);
+            if (total > 0 && seen >= Math.ceil(fraction * total)) {
+                long micros = 2L << bucket;
+                return micros < 1000 ? "< " + micros + " us" : "< " + (micros / 1000) + " ms";
+            }
+        }
+        return "n/a";
+    }
+
+    private static final int LATENCY_BUCKETS = 32;
+    private static final int READ_TIMEOUT_MILLIS = 10000;
+
+    private final String host;
+    private final int port;
+    private final int connections;
+    private final int gamesPerConnection;
+    private final AtomicLong games;
+    private final AtomicLong lastGameEnd;
+    private final AtomicLong moves;
+    private final AtomicLong errors;
+    private final AtomicLongArray latencyBuckets;
+}
@@ -0,0 +1,169 @@
+package server;
+
+import core.Constants;
+import core.Position;
+import core.Transcript;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One game between two sessions, with its own position. Moves are checked
+ * and played under the match lock, and the resulting lines are sent to both
+ * players before it is released, so both see the same order of events.
+ * Sending only queues a line for the session's writer thread, so a client
+ * that stops reading cannot hold up the lock, its opponent's moves or its
+ * own forfeit.
+ */
+class Match
+{
+    /**
+     * @param id the number of the match
+     * @param dark the session playing dark
+     * @param light the session playing light
+     * @param server the server to tell when the match ends
+     */
+    Match(long id, Session dark, Session light, GameServer server) {
+        this.id = id;
+        this.dark = dark;
+        this.light = light;
+        this.server = server;
+        this.position = Position.INITIAL;
+        this.lock = new ReentrantLock();
+    }
+
+    /**
+     * Tell both players the match has started and whose turn it is
+     */
+    void start() {
+        lock.lock();
+        try {
+            dark.send(Protocol.START + " " + id + " " + Protocol.DARK + " " + light.getName());
+            light.send(Protocol.START + " " + id + " " + Protocol.LIGHT + " " + dark.getName());
+            sendBoth(Protocol.TURN + " " + Protocol.sideName(position.getSide()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param player the session making the move
+     * @param square the square of the move
+     */
+    void play(Session player, int square) {
+        lock.lock();
+        try {
+            if (over) {
+                player.send(Protocol.ERROR + " The match is over");
+                return;
+            } else if (player != getSession(position.getSide())) {
+                player.send(Protocol.ERROR + " Not your turn");
+                return;
+            } else if ((position.legalMoves() & (1L << square)) == 0) {
+                player.send(Protocol.ERROR + " Illegal move " + Transcript.toNotation(square));
+                return;
+            }
+
+            sendBoth(Protocol.MOVED + " " + Protocol.sideName(position.getSide()) + " " + Transcript.toNotation(square));
+            position = position.play(square);
+
+            if (position.legalMoves() == 0 && !position.isGameOver()) {
+                sendBoth(Protocol.PASSED + " " + Protocol.sideName(position.getSide()));
+                position = position.pass();
+            }
+
+            if (position.isGameOver()) {
+                end(Protocol.FINISHED);
+            } else {
+                sendBoth(Protocol.TURN + " " + Protocol.sideName(position.getSide()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * End the match early; the remaining empty squares go to the winner
+     *
+     * @param loser the session that resigned or went away
+     * @param reason RESIGNED or DISCONNECTED
+     */
+    void forfeit(Session loser, String reason) {
+        lock.lock();
+        try {
+            if (!over) {
+                position = loser == dark ? new Position(position.getDark(), ~position.getDark(), position.getSide())
+                        : new Position(~position.getLight(), position.getLight(), position.getSide());
+                end(reason);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param reason why the match ended
+     */
+    private void end(String reason) {
+        // Leave the sessions first, so a player can JOIN again as soon as it reads END
+        over = true;
+        dark.matchEnded(this);
+        light.matchEnded(this);
+        server.matchEnded();
+        sendBoth(Protocol.END + " " + Long.bitCount(position.getDark()) + " " + Long.bitCount(position.getLight()) + " " + reason);
+    }
+
+    /**
+     * @return the board, as BOARD dark-hex light-hex side
+     */
+    String describe() {
+        lock.lock();
+        try {
+            return Protocol.BOARD + " " + String.format("%016x %016x ", position.getDark(), position.getLight())
+                    + Protocol.sideName(position.getSide());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param line a line for both players
+     */
+    private void sendBoth(String line) {
+        dark.send(line);
+        light.send(line);
+    }
+
+    /**
+     * @param side a side
+     * @return the session playing it
+     */
+    private Session getSession(int side) {
+        return side == Constants.DARK_SIDE ? dark : light;
+    }
+
+    /**
+     * @return the id
+     */
+    long getId() {
+        return id;
+    }
+
+    /**
+     * @return the position of the match
+     */
+    Position getPosition() {
+        lock.lock();
+        try {
+            return position;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private final long id;
+    private final Session dark;
+    private final Session light;
+    private final GameServer server;
+    private final ReentrantLock lock;
+    private Position position;
+    private boolean over;
+}
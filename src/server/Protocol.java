@@ -0,0 +1,71 @@
+package server;
+
+import core.Constants;
+
+/**
+ * The line-based text protocol of the game server. Every message is one line
+ * of words separated by single spaces; moves are squares in transcript
+ * notation ("f5").
+ *
+ * Client to server:
+ * HELLO name, JOIN (wait for an opponent), MOVE square, BOARD, RESIGN,
+ * STATS, QUIT.
+ *
+ * Server to client:
+ * WELCOME name, WAITING, START match-id DARK|LIGHT opponent,
+ * MOVED DARK|LIGHT square, PASSED DARK|LIGHT, TURN DARK|LIGHT,
+ * END dark-count light-count FINISHED|RESIGNED|DISCONNECTED,
+ * BOARD dark-hex light-hex DARK|LIGHT, STATS key=value..., ERROR message, BYE.
+ *
+ * After START, and after every move, both players get the MOVED line, a
+ * PASSED line for every side that has to pass, and then either TURN or END.
+ */
+public class Protocol
+{
+    /**
+     * @param side a side
+     * @return the word for the side
+     */
+    public static String sideName(int side) {
+        return side == Constants.DARK_SIDE ? DARK : LIGHT;
+    }
+
+    /**
+     * @param name the word for a side
+     * @return the side
+     * @throws IllegalArgumentException if the word is not a side
+     */
+    public static int parseSide(String name) {
+        if (name.equals(DARK)) {
+            return Constants.DARK_SIDE;
+        } else if (name.equals(LIGHT)) {
+            return Constants.LIGHT_SIDE;
+        }
+        throw new IllegalArgumentException("Not a side: " + name);
+    }
+
+    public static final String HELLO = "HELLO";
+    public static final String JOIN = "JOIN";
+    public static final String MOVE = "MOVE";
+    public static final String BOARD = "BOARD";
+    public static final String RESIGN = "RESIGN";
+    public static final String STATS = "STATS";
+    public static final String QUIT = "QUIT";
+
+    public static final String WELCOME = "WELCOME";
+    public static final String WAITING = "WAITING";
+    public static final String START = "START";
+    public static final String MOVED = "MOVED";
+    public static final String PASSED = "PASSED";
+    public static final String TURN = "TURN";
+    public static final String END = "END";
+    public static final String ERROR = "ERROR";
+    public static final String BYE = "BYE";
+
+    public static final String DARK = "DARK";
+    public static final String LIGHT = "LIGHT";
+
+    public static final String FINISHED = "FINISHED";
+    public static final String RESIGNED = "RESIGNED";
+    public static final String DISCONNECTED = "DISCONNECTED";
+}
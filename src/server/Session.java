@@ -0,0 +1,211 @@
+package server;
+
+import core.Transcript;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * One client connection. Its thread reads and answers the client's lines.
+ * Lines for the client, some of them sent from the opponent's thread under
+ * the match lock, only go into a bounded queue that a second thread writes
+ * out, so no sender ever waits on the network. A client that stops reading
+ * until MAX_QUEUED_LINES pile up is disconnected, which forfeits its match.
+ */
+class Session implements Runnable
+{
+    /**
+     * @param socket the connection of the client
+     * @param server the server the session belongs to
+     * @throws IOException if the streams of the socket cannot be opened
+     */
+    Session(Socket socket, GameServer server) throws IOException {
+        this.socket = socket;
+        this.server = server;
+        this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        this.outbound = new ArrayBlockingQueue<>(MAX_QUEUED_LINES);
+        this.name = "anonymous";
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (!handle(line.trim())) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // The connection dropped; the match, if any, is forfeited below
+        } finally {
+            // Set before reading the match, so a match started at the same time sees one or the other
+            closed = true;
+            Match current = match;
+            if (current != null) {
+                current.forfeit(this, Protocol.DISCONNECTED);
+            }
+            server.sessionClosed(this);
+
+            // Let the writer send what is still queued, such as the answer to QUIT, then close
+            if (!outbound.offer(END_OF_OUTPUT)) {
+                close();
+            }
+        }
+    }
+
+    /**
+     * Write the queued lines to the client until the session ends, then
+     * close the connection. Runs on a thread of its own.
+     */
+    void writeLines() {
+        try {
+            for (String line = outbound.take(); line != END_OF_OUTPUT; line = outbound.take()) {
+                writer.write(line);
+                writer.write('\n');
+
+                // Lines queued in the meantime go out in the same packet
+                if (outbound.isEmpty()) {
+                    writer.flush();
+                }
+            }
+            writer.flush();
+        } catch (IOException e) {
+            // The client has gone; the reading thread notices and ends the session
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * @param line a line from the client
+     * @return whether to keep reading
+     */
+    private boolean handle(String line) {
+        String[] words = line.split(" ", 2);
+        String command = words[0];
+        String argument = words.length > 1 ? words[1].trim() : "";
+        Match current = match;
+
+        if (command.equals(Protocol.HELLO) && !argument.isEmpty()) {
+            name = argument.replaceAll("\\s", "_");
+            send(Protocol.WELCOME + " " + name);
+        } else if (command.equals(Protocol.JOIN)) {
+            if (current != null) {
+                send(Protocol.ERROR + " Already in match " + current.getId());
+            } else {
+                server.join(this);
+            }
+        } else if (command.equals(Protocol.MOVE)) {
+            if (current == null) {
+                send(Protocol.ERROR + " Not in a match");
+            } else {
+                try {
+                    current.play(this, Transcript.parseMove(argument));
+                } catch (IllegalArgumentException e) {
+                    send(Protocol.ERROR + " " + e.getMessage());
+                }
+            }
+        } else if (command.equals(Protocol.BOARD)) {
+            send(current == null ? Protocol.ERROR + " Not in a match" : current.describe());
+        } else if (command.equals(Protocol.RESIGN)) {
+            if (current == null) {
+                send(Protocol.ERROR + " Not in a match");
+            } else {
+                current.forfeit(this, Protocol.RESIGNED);
+            }
+        } else if (command.equals(Protocol.STATS)) {
+            send(server.describe());
+        } else if (command.equals(Protocol.QUIT)) {
+            send(Protocol.BYE);
+            return false;
+        } else if (!command.isEmpty()) {
+            send(Protocol.ERROR + " Unknown command " + command);
+        }
+
+        return true;
+    }
+
+    /**
+     * Queue a line for the client without waiting. If the queue is full the
+     * client is not keeping up, and the connection is closed; the reading
+     * thread then ends the session.
+     *
+     * @param line the line to send
+     */
+    void send(String line) {
+        if (!socket.isClosed() && !outbound.offer(line)) {
+            close();
+        }
+    }
+
+    /**
+     * @param started the match the session now plays in
+     */
+    void matchStarted(Match started) {
+        match = started;
+    }
+
+    /**
+     * @param ended a match that is over
+     */
+    void matchEnded(Match ended) {
+        if (match == ended) {
+            match = null;
+        }
+    }
+
+    /**
+     * Close the connection, which also ends the reading and writing threads
+     */
+    void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Closing is all that is left to do
+        }
+
+        // Wake the writer if it is waiting for a line; if the queue is full it is not waiting
+        outbound.offer(END_OF_OUTPUT);
+    }
+
+    /**
+     * @return whether the client has gone and the session thread has finished
+     */
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return the name the client gave, or "anonymous"
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * The number of lines a client may leave unread before it is disconnected
+     */
+    static final int MAX_QUEUED_LINES = 1024;
+
+    // Compared by identity, so no line the server sends can be mistaken for it
+    private static final String END_OF_OUTPUT = new String();
+
+    private final Socket socket;
+    private final GameServer server;
+    private final BufferedReader reader;
+    private final Writer writer;
+    private final BlockingQueue<String> outbound;
+    private volatile String name;
+    private volatile Match match;
+    private volatile boolean closed;
+}
@@ -0,0 +1,67 @@
+package server;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates an executor that starts a thread per task, using virtual threads
+ * when the JDK has them. The project builds for Java 8, so the Java 21 API
+ * is looked up reflectively; on older JDKs a cached pool of daemon platform
+ * threads takes its place, which serves the same protocol with fewer
+ * concurrent connections.
+ */
+public class VirtualThreads
+{
+    /**
+     * @param name the name prefix of the platform threads, if virtual threads are not available
+     * @return an executor running every task on a new virtual thread, or on a cached pool thread
+     */
+    public static ExecutorService newPerTaskExecutor(String name) {
+        if (AVAILABLE) {
+            try {
+                return newVirtualThreadExecutor();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Virtual threads worked once and then failed", e);
+            }
+        }
+
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return whether newPerTaskExecutor runs tasks on virtual threads
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * @return an executor running every task on a new virtual thread
+     * @throws ReflectiveOperationException if the JDK has no virtual threads, or, on
+     *         Java 19 and 20, only as a preview feature that is not enabled
+     */
+    private static ExecutorService newVirtualThreadExecutor() throws ReflectiveOperationException {
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    }
+
+    /**
+     * @return whether a virtual thread executor can be created
+     */
+    private static boolean probe() {
+        try {
+            newVirtualThreadExecutor().shutdown();
+            return true;
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    // Decided once by creating an executor, as the method exists but throws on Java 19 and 20 without --enable-preview
+    private static final boolean AVAILABLE = probe();
+}
@@ -0,0 +1,205 @@
+package service;
+
+import core.BitBoard;
+import core.Constants;
+import java.util.Map;
+
+/**
+ * A position to analyse and the budget for it, as sent to the analysis
+ * service: {"dark": "0000000810000000", "light": "0000001008000000",
+ * "side": "dark", "timeMillis": 100, "depth": 12, "deadlineMillis": 500}.
+ *
+ * The masks are hexadecimal, bit 0 being a1. Time and depth are limits on
+ * the search and either may be left out. The deadline counts from when the
+ * request arrives, waiting in the queue included; a request still waiting at
+ * its deadline is answered with an error instead of a late result.
+ */
+public class AnalysisRequest
+{
+    /**
+     * @param dark the mask of the dark discs
+     * @param light the mask of the light discs
+     * @param side the side to move
+     * @param timeLimitMillis the longest the search may take
+     * @param maxDepth the deepest the search may go
+     * @param deadline the System.nanoTime by which the answer is due
+     */
+    public AnalysisRequest(long dark, long light, int side, long timeLimitMillis, int maxDepth, long deadline) {
+        if ((dark & light) != 0) {
+            throw new IllegalArgumentException("The dark and light masks overlap");
+        } else if (side != Constants.DARK_SIDE && side != Constants.LIGHT_SIDE) {
+            throw new IllegalArgumentException("Not a side: " + side);
+        } else if (timeLimitMillis <= 0 || maxDepth <= 0) {
+            throw new IllegalArgumentException("The time and depth limits must be positive");
+        }
+
+        this.dark = dark;
+        this.light = light;
+        this.side = side;
+        this.timeLimitMillis = timeLimitMillis;
+        this.maxDepth = maxDepth;
+        this.deadline = deadline;
+    }
+
+    /**
+     * @param values the fields of a request body
+     * @param receivedAt the System.nanoTime at which the request arrived
+     * @param defaultTimeLimitMillis the time limit when the request gives none
+     * @param maxDepth the depth limit when the request gives none, and the most it may ask for
+     * @return the request
+     * @throws IllegalArgumentException if a field is missing or malformed
+     */
+    public static AnalysisRequest parse(Map<String, String> values, long receivedAt, long defaultTimeLimitMillis, int maxDepth) {
+        long dark = parseMask(values, "dark");
+        long light = parseMask(values, "light");
+        int side = parseSide(values.get("side"));
+        long timeLimitMillis = parseNumber(values, "timeMillis", defaultTimeLimitMillis);
+        int depth = (int) Math.min(maxDepth, parseNumber(values, "depth", maxDepth));
+        long deadlineMillis = parseNumber(values, "deadlineMillis", timeLimitMillis + DEFAULT_DEADLINE_SLACK_MILLIS);
+
+        return new AnalysisRequest(dark, light, side, timeLimitMillis, depth, receivedAt + deadlineMillis * 1000000L);
+    }
+
+    /**
+     * @param values the fields of a request body
+     * @param name the name of a mask field
+     * @return the mask
+     */
+    private static long parseMask(Map<String, String> values, String name) {
+        String value = values.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing field: " + name);
+        }
+
+        if (value.startsWith("0x") || value.startsWith("0X")) {
+            value = value.substring(2);
+        }
+        try {
+            return Long.parseUnsignedLong(value, 16);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a hexadecimal mask: " + name);
+        }
+    }
+
+    /**
+     * @param value the side field, "dark" or "light", or 0 or 1
+     * @return the side
+     */
+    private static int parseSide(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing field: side");
+        } else if (value.equals("dark") || value.equals(String.valueOf(Constants.DARK_SIDE))) {
+            return Constants.DARK_SIDE;
+        } else if (value.equals("light") || value.equals(String.valueOf(Constants.LIGHT_SIDE))) {
+            return Constants.LIGHT_SIDE;
+        }
+        throw new IllegalArgumentException("Not a side: " + value);
+    }
+
+    /**
+     * @param values the fields of a request body
+     * @param name the name of a whole number field
+     * @param defaultValue the value when the field is missing
+     * @return the value
+     */
+    private static long parseNumber(Map<String, String> values, String name, long defaultValue) {
+        String value = values.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a whole number: " + name);
+        }
+    }
+
+    /**
+     * @return a key that two requests share exactly when they ask for the same
+     *         search, so one answer serves both
+     */
+    public String getSearchKey() {
+        return Long.toHexString(dark) + ":" + Long.toHexString(light) + ":" + side + ":" + timeLimitMillis + ":" + maxDepth;
+    }
+
+    /**
+     * @return the discs of the player to move
+     */
+    public long getPlayer() {
+        return side == Constants.DARK_SIDE ? dark : light;
+    }
+
+    /**
+     * @return the discs of the opponent
+     */
+    public long getOpponent() {
+        return side == Constants.DARK_SIDE ? light : dark;
+    }
+
+    /**
+     * @return the number of empty squares
+     */
+    public int getEmptyCount() {
+        return Long.bitCount(~(dark | light));
+    }
+
+    /**
+     * @return whether the player to move has a legal move
+     */
+    public boolean hasMove() {
+        return BitBoard.legalMoves(getPlayer(), getOpponent()) != 0;
+    }
+
+    /**
+     * @return the dark
+     */
+    public long getDark() {
+        return dark;
+    }
+
+    /**
+     * @return the light
+     */
+    public long getLight() {
+        return light;
+    }
+
+    /**
+     * @return the side
+     */
+    public int getSide() {
+        return side;
+    }
+
+    /**
+     * @return the timeLimitMillis
+     */
+    public long getTimeLimitMillis() {
+        return timeLimitMillis;
+    }
+
+    /**
+     * @return the maxDepth
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return the deadline, as a System.nanoTime
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    // How long a request may wait for a worker when it gives no deadline
+    public static final long DEFAULT_DEADLINE_SLACK_MILLIS = 5000;
+
+    private final long dark;
+    private final long light;
+    private final int side;
+    private final long timeLimitMillis;
+    private final int maxDepth;
+    private final long deadline;
+}
@@ -0,0 +1,456 @@
+package service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import core.ai.AiMoveSource;
+import core.ai.EndgameSolver;
+import core.ai.SearchEngine;
+import core.ai.SearchResult;
+import core.ai.Searcher;
+import core.metrics.Metrics;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Runs the engine as a local HTTP service, so a client can analyse positions
+ * without starting a JVM and warming up the search each time.
+ *
+ * POST /analyze takes an AnalysisRequest as JSON and answers with the best
+ * move, score, depth and principal variation. GET /status reports the queue
+ * and request counts.
+ *
+ * Searches wait in a bounded queue, earliest deadline first, for a pool of
+ * workers, each with its own search engine and transposition table that stay
+ * warm between requests. A worker takes one search at a time, so concurrent
+ * requests spread over every free worker. When the queue is full a request
+ * is refused at once with 503 rather than left to wait.
+ *
+ * Searches waiting or running are kept in an in-flight map by search key, and
+ * a request asking for one of them joins it instead of queueing a search of
+ * its own; every request of a search gets the same answer. A request whose
+ * deadline passes while it waits gets 504 without a search, and the time
+ * limit of a search is cut short so it ends by the earliest deadline of its
+ * requests.
+ */
+public class AnalysisService
+{
+    /**
+     * @param port the port to listen on, on the loopback address; 0 picks a free one
+     * @param workers the number of searches run at the same time
+     * @param queueCapacity the number of requests that may wait for a worker
+     * @param searchers creates the search of each worker
+     * @throws IOException if the port cannot be bound
+     */
+    public AnalysisService(int port, int workers, int queueCapacity, Supplier<Searcher> searchers) throws IOException {
+        if (workers < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("The service needs at least one worker and room for one request");
+        }
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.queue = new PriorityBlockingQueue<>(queueCapacity, Comparator.comparingLong(Search::getDeadline));
+        this.queueCapacity = queueCapacity;
+        this.inFlight = new HashMap<>();
+        this.inFlightLock = new ReentrantLock();
+        this.workers = new Thread[workers];
+        this.searchers = searchers;
+        this.served = new AtomicLong();
+        this.rejected = new AtomicLong();
+        this.expired = new AtomicLong();
+        this.defaultTimeLimitMillis = SearchEngine.DEFAULT_TIME_LIMIT_MILLIS;
+        this.solverEmpties = AiMoveSource.DEFAULT_SOLVER_EMPTIES;
+
+        server.createContext("/analyze", this::handleAnalyze);
+        server.createContext("/status", this::handleStatus);
+        server.createContext("/metrics", this::handleMetrics);
+    }
+
+    /**
+     * Start the workers and begin accepting requests
+     */
+    public void start() {
+        for (int worker = 0; worker < workers.length; worker++) {
+            workers[worker] = new Thread(this::runWorker, "analysis-worker-" + worker);
+            workers[worker].start();
+        }
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests, refuse the waiting ones and stop the workers
+     * once their current search is answered
+     */
+    public void stop() {
+        server.stop(0);
+        for (Thread worker : workers) {
+            if (worker != null) {
+                worker.interrupt();
+            }
+        }
+
+        for (Search search = queue.poll(); search != null; search = queue.poll()) {
+            for (Job job : finish(search)) {
+                sendError(job.exchange, 503, "The service is shutting down");
+            }
+        }
+    }
+
+    /**
+     * Parse a request and join it to the same search in flight, or queue a
+     * new search for it
+     *
+     * @param exchange the request
+     */
+    private void handleAnalyze(HttpExchange exchange) {
+        long receivedAt = System.nanoTime();
+
+        if (!exchange.getRequestMethod().equals("POST")) {
+            sendError(exchange, 405, "Use POST");
+            return;
+        }
+
+        AnalysisRequest request;
+        try {
+            request = AnalysisRequest.parse(Json.parseObject(readBody(exchange)), receivedAt, defaultTimeLimitMillis, SearchEngine.MAX_DEPTH);
+        } catch (IllegalArgumentException | IOException e) {
+            sendError(exchange, 400, e.getMessage());
+            return;
+        }
+
+        Job job = new Job(request, exchange, receivedAt);
+        String key = request.getSearchKey();
+        boolean full = false;
+
+        inFlightLock.lock();
+        try {
+            Search search = inFlight.get(key);
+            if (search != null) {
+                search.jobs.add(job);
+            } else if (queue.size() >= queueCapacity) {
+                full = true;
+            } else {
+                search = new Search(key, job);
+                inFlight.put(key, search);
+                queue.add(search);
+            }
+        } finally {
+            inFlightLock.unlock();
+        }
+
+        if (full) {
+            rejected.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 503, "Too many requests waiting");
+        }
+    }
+
+    /**
+     * @param exchange a status request
+     */
+    private void handleStatus(HttpExchange exchange) {
+        send(exchange, 200, "{\"queued\":" + queue.size() + ",\"capacity\":" + queueCapacity
+                + ",\"workers\":" + workers.length + ",\"served\":" + served.get() + ",\"rejected\":" + rejected.get()
+                + ",\"expired\":" + expired.get() + "}");
+    }
+
+    /**
+     * @param exchange a request for the engine metrics, answered as plain text
+     */
+    private void handleMetrics(HttpExchange exchange) {
+        send(exchange, 200, "text/plain; charset=utf-8", Metrics.dump());
+    }
+
+    /**
+     * Answer queued searches one at a time until interrupted
+     */
+    private void runWorker() {
+        Searcher searcher = searchers.get();
+        EndgameSolver solver = new EndgameSolver();
+
+        while (!Thread.currentThread().isInterrupted()) {
+            Search search;
+            try {
+                search = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            answer(search, searcher, solver);
+        }
+    }
+
+    /**
+     * Run a search and send its answer to every request that asked for it
+     *
+     * @param search a queued search
+     * @param searcher the search of the worker
+     * @param solver the endgame solver of the worker
+     */
+    private void answer(Search search, Searcher searcher, EndgameSolver solver) {
+        long startedAt = System.nanoTime();
+        ArrayList<Job> late = new ArrayList<>();
+        long deadline = Long.MAX_VALUE;
+
+        // Requests that waited past their deadline leave the search
+        inFlightLock.lock();
+        try {
+            for (Iterator<Job> jobs = search.jobs.iterator(); jobs.hasNext();) {
+                Job job = jobs.next();
+                if (job.request.getDeadline() <= startedAt) {
+                    late.add(job);
+                    jobs.remove();
+                } else {
+                    deadline = Math.min(deadline, job.request.getDeadline());
+                }
+            }
+            if (search.jobs.isEmpty()) {
+                inFlight.remove(search.key);
+            }
+        } finally {
+            inFlightLock.unlock();
+        }
+
+        for (Job job : late) {
+            expired.incrementAndGet();
+            sendError(job.exchange, 504, "The deadline passed before a worker was free");
+        }
+        if (deadline == Long.MAX_VALUE) {
+            return;
+        }
+
+        String response = analyse(search.request, deadline, searcher, solver);
+
+        // Requests that joined while the search ran get the answer too
+        for (Job job : finish(search)) {
+            long queuedMillis = Math.max(0, (startedAt - job.receivedAt) / 1000000L);
+            send(job.exchange, 200, response.substring(0, response.length() - 1) + ",\"queuedMillis\":" + queuedMillis + "}");
+            served.incrementAndGet();
+        }
+    }
+
+    /**
+     * Take a search out of the in-flight map, so later requests start a new one
+     *
+     * @param search a search that has been answered or abandoned
+     * @return the requests of the search
+     */
+    private ArrayList<Job> finish(Search search) {
+        inFlightLock.lock();
+        try {
+            inFlight.remove(search.key, search);
+            return new ArrayList<>(search.jobs);
+        } finally {
+            inFlightLock.unlock();
+        }
+    }
+
+    /**
+     * @param request the request of a search
+     * @param deadline the System.nanoTime by which the answer is due
+     * @param searcher the search of the worker
+     * @param solver the endgame solver of the worker
+     * @return the response body
+     */
+    private String analyse(AnalysisRequest request, long deadline, Searcher searcher, EndgameSolver solver) {
+        if (!request.hasMove()) {
+            return "{\"move\":\"pass\",\"square\":-1}";
+        }
+
+        long endsAt = Math.min(deadline, System.nanoTime() + request.getTimeLimitMillis() * 1000000L);
+
+        // An exact solve gets half of the time; if it cannot finish, the timed search gets the rest
+        SearchResult result = null;
+        if (request.getEmptyCount() <= solverEmpties) {
+            solver.setTimeLimitMillis(Math.max(1, (endsAt - System.nanoTime()) / 2000000L));
+            result = solver.solve(request.getPlayer(), request.getOpponent());
+        }
+
+        if (result == null) {
+            searcher.setTimeLimitMillis(Math.max(1, (endsAt - System.nanoTime()) / 1000000L));
+            searcher.setMaxDepth(request.getMaxDepth());
+            result = searcher.search(request.getPlayer(), request.getOpponent(), request.getSide());
+        }
+
+        StringBuilder pv = new StringBuilder();
+        for (int move : result.getPrincipalVariation()) {
+            pv.append(pv.length() == 0 ? "" : ",").append(Json.quote(SearchResult.toNotation(move)));
+        }
+
+        return "{\"move\":" + Json.quote(SearchResult.toNotation(result.getBestMove())) + ",\"square\":" + result.getBestMove()
+                + ",\"score\":" + result.getScore() + ",\"depth\":" + result.getDepth() + ",\"nodes\":" + result.getNodes()
+                + ",\"elapsedMillis\":" + result.getElapsedMillis() + ",\"pv\":[" + pv + "]}";
+    }
+
+    /**
+     * @param exchange a request
+     * @return the request body
+     * @throws IOException if the body cannot be read or is too long
+     */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+
+        try (InputStream input = exchange.getRequestBody()) {
+            for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+                body.write(buffer, 0, read);
+                if (body.size() > MAX_BODY_BYTES) {
+                    throw new IOException("Request body is too long");
+                }
+            }
+        }
+
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param exchange a request
+     * @param status the HTTP status
+     * @param message what went wrong
+     */
+    private static void sendError(HttpExchange exchange, int status, String message) {
+        send(exchange, status, "{\"error\":" + Json.quote(String.valueOf(message)) + "}");
+    }
+
+    /**
+     * @param exchange a request
+     * @param status the HTTP status
+     * @param body the JSON response body
+     */
+    private static void send(HttpExchange exchange, int status, String body) {
+        send(exchange, status, "application/json", body);
+    }
+
+    /**
+     * @param exchange a request
+     * @param status the HTTP status
+     * @param contentType the media type of the body
+     * @param body the response body
+     */
+    private static void send(HttpExchange exchange, int status, String contentType, String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        try (OutputStream output = exchange.getResponseBody()) {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(status, bytes.length);
+            output.write(bytes);
+        } catch (IOException e) {
+            // The client has gone; there is nobody left to tell
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return the port the service listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return the time limit of requests that give none
+     */
+    public long getDefaultTimeLimitMillis() {
+        return defaultTimeLimitMillis;
+    }
+
+    /**
+     * @param defaultTimeLimitMillis the time limit of requests that give none
+     */
+    public void setDefaultTimeLimitMillis(long defaultTimeLimitMillis) {
+        this.defaultTimeLimitMillis = defaultTimeLimitMillis;
+    }
+
+    /**
+     * @return the number of empty squares at which the endgame solver answers instead of the search
+     */
+    public int getSolverEmpties() {
+        return solverEmpties;
+    }
+
+    /**
+     * @param solverEmpties the number of empty squares at which the endgame solver answers instead of the search
+     */
+    public void setSolverEmpties(int solverEmpties) {
+        this.solverEmpties = solverEmpties;
+    }
+
+    /**
+     * A request waiting for the answer of its search
+     */
+    private static class Job
+    {
+        /**
+         * @param request the parsed request
+         * @param exchange the exchange to answer
+         * @param receivedAt the System.nanoTime at which the request arrived
+         */
+        Job(AnalysisRequest request, HttpExchange exchange, long receivedAt) {
+            this.request = request;
+            this.exchange = exchange;
+            this.receivedAt = receivedAt;
+        }
+
+        final AnalysisRequest request;
+        final HttpExchange exchange;
+        final long receivedAt;
+    }
+
+    /**
+     * A search waiting for or running on a worker, with the requests that
+     * asked for it; the list of requests is guarded by the in-flight lock
+     */
+    private static class Search
+    {
+        /**
+         * @param key the search key of its requests
+         * @param first the request that started the search
+         */
+        Search(String key, Job first) {
+            this.key = key;
+            this.request = first.request;
+            this.jobs = new ArrayList<>();
+            this.deadline = first.request.getDeadline();
+            jobs.add(first);
+        }
+
+        /**
+         * @return the deadline of the request that started the search, which orders the queue
+         */
+        long getDeadline() {
+            return deadline;
+        }
+
+        final String key;
+        final AnalysisRequest request;
+        final ArrayList<Job> jobs;
+        final long deadline;
+    }
+
+    private static final int MAX_BODY_BYTES = 4096;
+
+    private final HttpServer server;
+    private final PriorityBlockingQueue<Search> queue;
+    private final int queueCapacity;
+    private final HashMap<String, Search> inFlight;
+    private final ReentrantLock inFlightLock;
+    private final Thread[] workers;
+    private final Supplier<Searcher> searchers;
+    private final AtomicLong served;
+    private final AtomicLong rejected;
+    private final AtomicLong expired;
+    private volatile long defaultTimeLimitMillis;
+    private volatile int solverEmpties;
+}
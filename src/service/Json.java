@@ -0,0 +1,185 @@
+package service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Just enough JSON for the analysis service: reading a flat object of
+ * strings, numbers and booleans, and quoting strings for responses.
+ */
+public class Json
+{
+    /**
+     * @param text a JSON object whose values are not objects or arrays
+     * @return the values by name; strings unquoted, anything else as written
+     * @throws IllegalArgumentException if the text is not such an object
+     */
+    public static Map<String, String> parseObject(String text) {
+        Json parser = new Json(text);
+        LinkedHashMap<String, String> values = new LinkedHashMap<>();
+
+        parser.expect('{');
+        if (!parser.accept('}')) {
+            do {
+                String name = parser.readString();
+                parser.expect(':');
+                values.put(name, parser.peek() == '"' ? parser.readString() : parser.readLiteral());
+            } while (parser.accept(','));
+            parser.expect('}');
+        }
+
+        if (parser.peek() != END) {
+            throw parser.error("Unexpected text after the object");
+        }
+        return values;
+    }
+
+    /**
+     * @param value a string
+     * @return the string as a JSON string literal, quotes included
+     */
+    public static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+
+        for (int index = 0; index < value.length(); index++) {
+            char c = value.charAt(index);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < ' ') {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * @param text the text to parse
+     */
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @return the next character that is not white space, without consuming it, or END
+     */
+    private char peek() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+        return position < text.length() ? text.charAt(position) : END;
+    }
+
+    /**
+     * @param c a character
+     * @return whether the next character was c, which is then consumed
+     */
+    private boolean accept(char c) {
+        if (peek() == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param c the character that has to come next
+     */
+    private void expect(char c) {
+        if (!accept(c)) {
+            throw error("Expected '" + c + "'");
+        }
+    }
+
+    /**
+     * @return the string literal at the current position, unescaped
+     */
+    private String readString() {
+        expect('"');
+        StringBuilder value = new StringBuilder();
+
+        while (position < text.length()) {
+            char c = text.charAt(position++);
+            if (c == '"') {
+                return value.toString();
+            } else if (c != '\\') {
+                value.append(c);
+            } else if (position < text.length()) {
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'u':
+                        value.append(readUnicodeEscape());
+                        break;
+                    default:
+                        value.append(escaped);
+                }
+            }
+        }
+
+        throw error("Unterminated string");
+    }
+
+    /**
+     * @return the character of the four hex digits at the current position
+     */
+    private char readUnicodeEscape() {
+        if (position + 4 > text.length()) {
+            throw error("Truncated escape");
+        }
+
+        try {
+            char c = (char) Integer.parseInt(text.substring(position, position + 4), 16);
+            position += 4;
+            return c;
+        } catch (NumberFormatException e) {
+            throw error("Bad escape");
+        }
+    }
+
+    /**
+     * @return the number, boolean or null at the current position, as written
+     */
+    private String readLiteral() {
+        peek();
+        int start = position;
+
+        while (position < text.length() && (Character.isLetterOrDigit(text.charAt(position)) || "+-.".indexOf(text.charAt(position)) >= 0)) {
+            position++;
+        }
+
+        if (start == position) {
+            throw error("Expected a value");
+        }
+        return text.substring(start, position);
+    }
+
+    /**
+     * @param message what went wrong
+     * @return an exception saying where
+     */
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at character " + position);
+    }
+
+    private static final char END = '\0';
+
+    private final String text;
+    private int position;
+}
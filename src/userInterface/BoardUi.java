@@ -1,18 +1,22 @@
 package userInterface;
 
+import core.BitBoard;
+import core.Board;
 import core.Constants;
-import core.Disc;
 import core.Game;
+import core.MoveSource;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.GridLayout;
-import java.awt.Image;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import javax.swing.ImageIcon;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.concurrent.ExecutionException;
 import javax.swing.JButton;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.SwingWorker;
 
 
 public class BoardUi extends JPanel {
@@ -22,6 +26,8 @@ public class BoardUi extends JPanel {
         this.gameUi = gameUi;
         initComponents();
         listener.updateUi();
+        listener.showHints();
+        listener.playAutomaticMove();
     }
     
     /**
@@ -56,6 +62,14 @@ public class BoardUi extends JPanel {
                 this.add(board[row][col]);
             }
         }
+
+        // Scale the discs to the tiles whenever the window changes size
+        this.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                listener.resizeIcons();
+            }
+        });
     }
     
     /**
@@ -71,6 +85,11 @@ public class BoardUi extends JPanel {
          */
         public void actionPerformed(ActionEvent ae) {
             
+            // Ignore clicks while the computer is choosing a move
+            if (game.isCurrentPlayerAutomatic()) {
+                return;
+            }
+            
             if (ae.getSource() instanceof JButton) {
                 JButton button = (JButton) ae.getSource();
                 
@@ -80,8 +99,7 @@ public class BoardUi extends JPanel {
                     
                 // If the move is valid, update the UI, change the player, and determine if the game is over after the move
                 if(isValidMove(row, col, game.getCurrentPlayer().getDiscColor())) {
-                    updateUi();
-                    changePlayer();
+                    finishTurn();
                 }
                 
                 // Else if the move is not valid, then inform the player
@@ -102,11 +120,13 @@ public class BoardUi extends JPanel {
         private boolean isValidMove(int selectedRow, int selectedCol, Color currentPlayerColor) {
             boolean valid = false;
             
-            // If the selected tile is not empty, then the move is automatically invalid
-            if (board[selectedRow][selectedCol].getClientProperty("color") != Constants.EMPTY)
+            long legalMoves = game.getBoard().getLegalMoves(currentPlayerColor);
+            
+            // If the selected tile is not one of the legal moves, then the move is automatically invalid
+            if ((legalMoves & BitBoard.mask(selectedRow, selectedCol)) == 0)
                 valid = false;
             
-            // Otherwise see if the selected tile is valid
+            // Otherwise play the move on the board
             else if (game.getBoard().isValidMove(selectedRow, selectedCol, currentPlayerColor)) {
                 valid = true;
             }
@@ -114,6 +134,79 @@ public class BoardUi extends JPanel {
             return valid;
         }
         
+        /**
+         * Show the move that was just played and hand the turn to the other player
+         */
+        private void finishTurn() {
+            updateUi();
+            changePlayer();
+            showHints();
+            
+            if (!isGameOver(game.getCurrentPlayer().getDiscColor())) {
+                playAutomaticMove();
+            }
+        }
+        
+        /**
+         * Let the move source of the current player choose a move in the background,
+         * so the window stays responsive while the computer thinks
+         */
+        private void playAutomaticMove() {
+            if (!game.isCurrentPlayerAutomatic()) {
+                return;
+            }
+            
+            final MoveSource moveSource = game.getCurrentPlayer().getMoveSource();
+            final Color color = game.getCurrentPlayer().getDiscColor();
+            final long legalMoves = game.getBoard().getLegalMoves(color);
+            
+            new SwingWorker<Integer, Void>() {
+                @Override
+                protected Integer doInBackground() {
+                    return moveSource.selectMove(game.getBoard(), color, legalMoves);
+                }
+                
+                @Override
+                protected void done() {
+                    try {
+                        int move = get();
+                        if (isValidMove(move / Constants.COLUMNS, move % Constants.COLUMNS, color)) {
+                            finishTurn();
+                        }
+                    } catch (InterruptedException | ExecutionException ex) {
+                        JOptionPane.showMessageDialog(null, "The computer could not choose a move: " + ex.getMessage());
+                    }
+                }
+            }.execute();
+        }
+        
+        /**
+         * Tell the players when the game is over
+         * 
+         * @param nextColor the color of the player whose turn it is now
+         * @return whether the game is over
+         */
+        private boolean isGameOver(Color nextColor) {
+            Board gameBoard = game.getBoard();
+            int darkCount = gameBoard.getDarkCount();
+            int lightCount = gameBoard.getLightCount();
+            
+            // Determine if the game is over from the next player's perspective.
+            if (gameBoard.gameOver(nextColor, darkCount, lightCount)) {
+                JOptionPane.showMessageDialog(null, "The game is over!");
+                if (darkCount > lightCount) {
+                    JOptionPane.showMessageDialog(null, "Player " + game.getPlayerList().get(Constants.PLAYER_ONE).getName() + " wins!");
+                } else if (darkCount < lightCount) {
+                    JOptionPane.showMessageDialog(null, "Player " + game.getPlayerList().get(Constants.PLAYER_TWO).getName() + " wins!");
+                } else {
+                    JOptionPane.showMessageDialog(null, "The game has ended in a draw!");
+                }
+                return true;
+            }
+            
+            return false;
+        }
+        
         /**
          * Change the player's turn
          */
@@ -128,55 +221,75 @@ public class BoardUi extends JPanel {
         }
         
         /**
-         * Update the user interface
+         * Highlight the tiles where the current player can place a disc
+         */
+        private void showHints() {
+            long legalMoves = game.getBoard().getLegalMoves(game.getCurrentPlayer().getDiscColor());
+            
+            for (int row = 0; row < Constants.ROWS; row++) {
+                for (int col = 0; col < Constants.COLUMNS; col++) {
+                    boolean legal = (legalMoves & BitBoard.mask(row, col)) != 0;
+                    board[row][col].setBackground(legal ? HINT_COLOR : Color.GREEN);
+                }
+            }
+        }
+        
+        /**
+         * Update the user interface. Only the tiles whose disc changed get a
+         * new icon, so a move repaints the placed disc and the flipped ones.
          */
         private void updateUi() {
-            Disc[][] discs = game.getBoard().getBoard();
-            ImageIcon disc = null;
+            Board gameBoard = game.getBoard();
             
             // Loop through the board
             for (int row = 0; row < Constants.ROWS; row++) {
                 for (int col = 0; col < Constants.COLUMNS; col++) {
+                    Color color = gameBoard.getDiscColor(row, col);
                     
-                    // If tile is marked as dark player's tile, then update the tile UI to reflect that
-                    if (discs[row][col].getDiscColor() == Constants.DARK) {
-                        disc = new ImageIcon(getClass().getResource("BlackPuckFinalized.png"));
-                        disc = imageResize(disc);
-                        board[row][col].setIcon(disc);
-                        board[row][col].putClientProperty("color", Constants.DARK);
-                    }
-                    
-                    // If tile is marked as light player's tile, then update the tile UI to reflect that
-                    else if (discs[row][col].getDiscColor() == Constants.LIGHT) {
-                        disc = new ImageIcon(getClass().getResource("WhitePillFinalized.png"));
-                        disc = imageResize(disc);
-                        board[row][col].setIcon(disc);
-                        board[row][col].putClientProperty("color", Constants.LIGHT);
+                    if (color != board[row][col].getClientProperty("color")) {
+                        showDisc(board[row][col], color);
                     }
                 }
             }
             
             // Show updated scores
-            gameUi.getScoreOne().setText(String.valueOf(game.getPlayerList().get(Constants.PLAYER_ONE).getScore()));
-            gameUi.getScoreTwo().setText(String.valueOf(game.getPlayerList().get(Constants.PLAYER_TWO).getScore()));
+            gameUi.updateScores();
         }
         
         /**
-         * Resize image
-         * 
-         * @param icon the original image
-         * @return the resized image
+         * Scale the discs to the size of the tiles, if that has changed
          */
-        private ImageIcon imageResize(ImageIcon icon) {
-            Image image = icon.getImage();
-            Image newImage = image.getScaledInstance(60, 60, java.awt.Image.SCALE_SMOOTH);
-            icon = new ImageIcon(newImage);
-            return icon;
+        private void resizeIcons() {
+            int size = Math.min(board[0][0].getWidth(), board[0][0].getHeight());
+            
+            if (size <= 0 || size == iconSize) {
+                return;
+            }
+            
+            iconSize = size;
+            for (int row = 0; row < Constants.ROWS; row++) {
+                for (int col = 0; col < Constants.COLUMNS; col++) {
+                    showDisc(board[row][col], (Color) board[row][col].getClientProperty("color"));
+                }
+            }
+        }
+        
+        /**
+         * @param tile a tile of the board
+         * @param color the color of the disc on it, or Constants.EMPTY
+         */
+        private void showDisc(JButton tile, Color color) {
+            tile.setIcon(color == Constants.EMPTY ? null : DiscIcons.get(color, iconSize));
+            tile.putClientProperty("color", color);
         }
     }
     
+    private static final Color HINT_COLOR = new Color(96, 200, 96);
+    private static final int DEFAULT_ICON_SIZE = 60;
+    
     private JButton[][] board;
     private BoardListener listener;
     private Game game;
     private GameUi gameUi;
+    private int iconSize = DEFAULT_ICON_SIZE;
 }
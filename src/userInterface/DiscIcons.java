@@ -0,0 +1,67 @@
+package userInterface;
+
+import core.Constants;
+import java.awt.Color;
+import java.awt.Image;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.swing.ImageIcon;
+
+/**
+ * The disc images, decoded once and scaled once per size. Icons are cached
+ * by color and size; a resized board asks for a new size, and the sizes no
+ * longer in use drop out of the cache as new ones come in.
+ *
+ * Only use this on the event dispatch thread.
+ */
+final class DiscIcons
+{
+    private DiscIcons() {
+    }
+
+    /**
+     * @param color Constants.DARK or Constants.LIGHT
+     * @param size the width and height of the icon in pixels
+     * @return the disc of that color scaled to the size
+     */
+    static ImageIcon get(Color color, int size) {
+        boolean dark = color == Constants.DARK;
+        Integer key = size * 2 + (dark ? 0 : 1);
+
+        ImageIcon icon = CACHE.get(key);
+        if (icon == null) {
+            ImageIcon source = dark ? getSource(DARK_IMAGE) : getSource(LIGHT_IMAGE);
+            icon = new ImageIcon(source.getImage().getScaledInstance(size, size, Image.SCALE_SMOOTH));
+            CACHE.put(key, icon);
+        }
+
+        return icon;
+    }
+
+    /**
+     * @param name the file name of a disc image next to this class
+     * @return the decoded image at its original size
+     */
+    private static ImageIcon getSource(String name) {
+        ImageIcon source = SOURCES.get(name);
+        if (source == null) {
+            source = new ImageIcon(DiscIcons.class.getResource(name));
+            SOURCES.put(name, source);
+        }
+        return source;
+    }
+
+    private static final String DARK_IMAGE = "BlackPuckFinalized.png";
+    private static final String LIGHT_IMAGE = "WhitePillFinalized.png";
+    // Enough for both colors at the board's size, the score bar's size and a resize in progress
+    private static final int MAX_CACHED_ICONS = 8;
+
+    private static final Map<String, ImageIcon> SOURCES = new HashMap<>();
+    private static final Map<Integer, ImageIcon> CACHE = new LinkedHashMap<Integer, ImageIcon>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ImageIcon> eldest) {
+            return size() > MAX_CACHED_ICONS;
+        }
+    };
+}
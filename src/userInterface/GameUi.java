@@ -6,8 +6,6 @@ import core.Player;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
-import java.awt.Image;
-import javax.swing.ImageIcon;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 
@@ -33,15 +31,9 @@ public class GameUi extends JPanel {
         this.setMinimumSize(new Dimension(800, 80));
         this.setBackground(Color.ORANGE);
         
-        // discOne is the dark color, and discTwo is the light color.
-        ImageIcon discOne = new ImageIcon(getClass().getResource("BlackPuckFinalized.png"));
-        ImageIcon discTwo = new ImageIcon(getClass().getResource("WhitePillFinalized.png"));
-        discOne = imageResize(discOne);
-        discTwo = imageResize(discTwo);
-        
         // Show player one's information (to be displayed at the top)
         nameOne = new JLabel();
-        nameOne.setIcon(discOne);
+        nameOne.setIcon(DiscIcons.get(Constants.DARK, ICON_SIZE));
         nameOne.setText(getGame().getPlayerList().get(Constants.PLAYER_ONE).getName());
         nameOne.setMinimumSize(new Dimension(200, 50));
         nameOne.setPreferredSize(new Dimension(200, 50));
@@ -52,7 +44,7 @@ public class GameUi extends JPanel {
         
         // Show player two's information (to be displayed at the top)
         nameTwo = new JLabel();
-        nameTwo.setIcon(discTwo);
+        nameTwo.setIcon(DiscIcons.get(Constants.LIGHT, ICON_SIZE));
         nameTwo.setText(getGame().getPlayerList().get(Constants.PLAYER_TWO).getName());
         nameTwo.setMinimumSize(new Dimension(200, 50));
         nameTwo.setPreferredSize(new Dimension(200, 50));
@@ -69,16 +61,11 @@ public class GameUi extends JPanel {
     }
 
     /**
-     * Resize the images used for the player discs
-     * 
-     * @param icon the original image
-     * @return the resized image
+     * Show the disc counts the board keeps for both players
      */
-    private ImageIcon imageResize(ImageIcon icon) {
-        Image image = icon.getImage();
-        Image newImage = image.getScaledInstance(60, 60, java.awt.Image.SCALE_SMOOTH);
-        icon = new ImageIcon(newImage);
-        return icon;
+    public void updateScores() {
+        scoreOne.setText(String.valueOf(game.getBoard().getDarkCount()));
+        scoreTwo.setText(String.valueOf(game.getBoard().getLightCount()));
     }
 
     /**
@@ -127,6 +114,8 @@ public class GameUi extends JPanel {
         this.scoreTwo = scoreTwo;
     }
     
+    private static final int ICON_SIZE = 60;
+    
     private Game game;
     private JLabel nameOne;
     private JLabel nameTwo;
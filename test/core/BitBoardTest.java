@@ -0,0 +1,189 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Checks move generation and flipping against the known perft counts and
+ * against a plain square-by-square walk of the eight directions.
+ */
+public class BitBoardTest
+{
+    @Test
+    public void perftMatchesReferenceCounts() {
+        for (int depth = 0; depth <= PERFT_DEPTH; depth++) {
+            assertEquals("depth " + depth, Perft.getReferenceCount(depth),
+                    Perft.count(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT, depth));
+        }
+    }
+
+    @Test
+    public void divideAddsUpToCount() {
+        long total = 0;
+        for (long leaves : Perft.divide(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT, 6)) {
+            total += leaves;
+        }
+
+        assertEquals(Perft.getReferenceCount(6), total);
+    }
+
+    @Test
+    public void openingMoves() {
+        long expected = BitBoard.mask(2, 3) | BitBoard.mask(3, 2) | BitBoard.mask(4, 5) | BitBoard.mask(5, 4);
+        assertEquals(expected, BitBoard.legalMoves(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT));
+    }
+
+    @Test
+    public void legalMovesAndFlipsMatchReference() {
+        Random random = new Random(1);
+
+        for (int game = 0; game < GAMES; game++) {
+            long player = BitBoard.INITIAL_DARK;
+            long opponent = BitBoard.INITIAL_LIGHT;
+
+            while (true) {
+                long moves = BitBoard.legalMoves(player, opponent);
+                assertEquals(referenceLegalMoves(player, opponent), moves);
+
+                for (int square = 0; square < SQUARES; square++) {
+                    if (((player | opponent) & (1L << square)) == 0) {
+                        assertEquals("square " + square, referenceFlips(square, player, opponent),
+                                BitBoard.flips(square, player, opponent));
+                    }
+                }
+
+                if (moves == 0) {
+                    if (BitBoard.legalMoves(opponent, player) == 0) {
+                        break;
+                    }
+                    long swap = player;
+                    player = opponent;
+                    opponent = swap;
+                    continue;
+                }
+
+                int move = RandomGames.pick(moves, random);
+                long flips = BitBoard.flips(move, player, opponent);
+                long newPlayer = opponent & ~flips;
+                opponent = player | flips | (1L << move);
+                player = newPlayer;
+            }
+        }
+    }
+
+    @Test
+    public void playAndUndoRestoreThePosition() {
+        Random random = new Random(2);
+
+        for (int game = 0; game < GAMES; game++) {
+            BitBoard board = new BitBoard();
+            int side = Constants.DARK_SIDE;
+
+            for (int passes = 0; passes < 2; side = 1 - side) {
+                long moves = board.legalMoves(side);
+                if (moves == 0) {
+                    passes++;
+                    continue;
+                }
+                passes = 0;
+
+                int move = RandomGames.pick(moves, random);
+                assertTrue(board.isLegal(move, side));
+
+                long dark = board.getDark();
+                long light = board.getLight();
+                long flipped = board.play(move, side);
+                assertEquals(Long.bitCount(dark | light) + 1, Long.bitCount(board.getDark() | board.getLight()));
+                assertEquals(0, board.getDark() & board.getLight());
+                assertFalse(board.isLegal(move, side));
+
+                board.undo(move, flipped);
+                assertEquals(dark, board.getDark());
+                assertEquals(light, board.getLight());
+
+                board.apply(move, side, flipped);
+            }
+        }
+    }
+
+    @Test
+    public void neighboursStayOnTheBoard() {
+        Random random = new Random(3);
+
+        for (int sample = 0; sample < GAMES * 10; sample++) {
+            long discs = random.nextLong() & random.nextLong();
+            long expected = 0;
+
+            for (int square = 0; square < SQUARES; square++) {
+                if ((discs & (1L << square)) == 0) {
+                    continue;
+                }
+                for (int[] direction : DIRECTIONS) {
+                    int row = square / 8 + direction[0];
+                    int col = square % 8 + direction[1];
+                    if (row >= 0 && row < 8 && col >= 0 && col < 8) {
+                        expected |= BitBoard.mask(row, col);
+                    }
+                }
+            }
+
+            assertEquals(expected, BitBoard.neighbours(discs));
+        }
+    }
+
+    /**
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @return the empty squares where referenceFlips finds something to flip
+     */
+    private static long referenceLegalMoves(long player, long opponent) {
+        long moves = 0;
+
+        for (int square = 0; square < SQUARES; square++) {
+            if (((player | opponent) & (1L << square)) == 0 && referenceFlips(square, player, opponent) != 0) {
+                moves |= 1L << square;
+            }
+        }
+
+        return moves;
+    }
+
+    /**
+     * @param square an empty square
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @return the discs a move on the square flips, found by walking every direction
+     */
+    private static long referenceFlips(int square, long player, long opponent) {
+        long flips = 0;
+
+        for (int[] direction : DIRECTIONS) {
+            long line = 0;
+            int row = square / 8 + direction[0];
+            int col = square % 8 + direction[1];
+
+            while (row >= 0 && row < 8 && col >= 0 && col < 8 && (opponent & BitBoard.mask(row, col)) != 0) {
+                line |= BitBoard.mask(row, col);
+                row += direction[0];
+                col += direction[1];
+            }
+
+            if (row >= 0 && row < 8 && col >= 0 && col < 8 && (player & BitBoard.mask(row, col)) != 0) {
+                flips |= line;
+            }
+        }
+
+        return flips;
+    }
+
+    private static final int PERFT_DEPTH = 9;
+    private static final int GAMES = 200;
+    private static final int SQUARES = 64;
+    private static final int[][] DIRECTIONS = {
+        { -1, -1 }, { -1, 0 }, { -1, 1 }, { 0, -1 }, { 0, 1 }, { 1, -1 }, { 1, 0 }, { 1, 1 }
+    };
+}
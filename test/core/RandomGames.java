@@ -0,0 +1,73 @@
+package core;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Games of random legal moves for the tests, played on Position
+ */
+public class RandomGames
+{
+    /**
+     * @param random the source of randomness
+     * @return the moves of a game of random moves played to the end, passes excluded
+     */
+    public static int[] play(Random random) {
+        int[] moves = new int[MAX_MOVES];
+        int length = 0;
+
+        for (Position position = Position.INITIAL; !position.isGameOver(); ) {
+            long legalMoves = position.legalMoves();
+            if (legalMoves == 0) {
+                position = position.pass();
+                continue;
+            }
+
+            moves[length] = pick(legalMoves, random);
+            position = position.play(moves[length++]);
+        }
+
+        return Arrays.copyOf(moves, length);
+    }
+
+    /**
+     * @param random the source of randomness
+     * @param plies the number of moves to play, passes not counted
+     * @return the position after that many random moves, or null if the game ended sooner
+     */
+    public static Position play(Random random, int plies) {
+        int[] moves = play(random);
+        return moves.length < plies ? null : replay(Arrays.copyOf(moves, plies));
+    }
+
+    /**
+     * @param moves the moves of a game from the initial position, passes excluded
+     * @return the position after the moves, a side without a legal move passing
+     */
+    public static Position replay(int[] moves) {
+        Position position = Position.INITIAL;
+
+        for (int move : moves) {
+            if (position.legalMoves() == 0) {
+                position = position.pass();
+            }
+            position = position.play(move);
+        }
+
+        return position;
+    }
+
+    /**
+     * @param moves a non-empty mask of moves
+     * @param random the source of randomness
+     * @return one of the moves
+     */
+    public static int pick(long moves, Random random) {
+        for (int skip = random.nextInt(Long.bitCount(moves)); skip > 0; skip--) {
+            moves &= moves - 1;
+        }
+        return Long.numberOfTrailingZeros(moves);
+    }
+
+    private static final int MAX_MOVES = Constants.ROWS * Constants.COLUMNS - 4;
+}
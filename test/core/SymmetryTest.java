@@ -0,0 +1,118 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Checks that the eight symmetries are distinct, undo each other, move
+ * squares and moves consistently and give every image one canonical form.
+ */
+public class SymmetryTest
+{
+    @Test
+    public void inverseUndoesEverySymmetry() {
+        Random random = new Random(1);
+
+        for (int sample = 0; sample < SAMPLES; sample++) {
+            long discs = random.nextLong();
+            for (int symmetry = 0; symmetry < Symmetry.SYMMETRIES; symmetry++) {
+                long image = Symmetry.transform(discs, symmetry);
+                assertEquals(discs, Symmetry.transform(image, Symmetry.inverse(symmetry)));
+                assertEquals(Long.bitCount(discs), Long.bitCount(image));
+            }
+        }
+    }
+
+    @Test
+    public void squaresMoveLikeMasks() {
+        for (int symmetry = 0; symmetry < Symmetry.SYMMETRIES; symmetry++) {
+            for (int square = 0; square < SQUARES; square++) {
+                int image = Symmetry.transformSquare(square, symmetry);
+                assertEquals(1L << image, Symmetry.transform(1L << square, symmetry));
+                assertEquals(square, Symmetry.transformSquare(image, Symmetry.inverse(symmetry)));
+            }
+        }
+    }
+
+    @Test
+    public void symmetriesAreDistinct() {
+        // a1, b1 and b2 have a different image under each of the eight symmetries
+        long corner = BitBoard.mask(0, 0) | BitBoard.mask(0, 1) | BitBoard.mask(1, 1);
+        long seen = 0;
+
+        for (int symmetry = 0; symmetry < Symmetry.SYMMETRIES; symmetry++) {
+            long image = Symmetry.transform(corner, symmetry);
+            for (int other = 0; other < symmetry; other++) {
+                assertTrue(image != Symmetry.transform(corner, other));
+            }
+            seen |= image;
+        }
+
+        long corners = BitBoard.mask(0, 0) | BitBoard.mask(0, 7) | BitBoard.mask(7, 0) | BitBoard.mask(7, 7);
+        assertEquals(corners, seen & corners);
+    }
+
+    @Test
+    public void legalMovesFollowTheSymmetry() {
+        Random random = new Random(2);
+
+        for (int sample = 0; sample < SAMPLES; sample++) {
+            long dark = random.nextLong() & random.nextLong();
+            long light = random.nextLong() & ~dark;
+
+            for (int symmetry = 0; symmetry < Symmetry.SYMMETRIES; symmetry++) {
+                assertEquals(Symmetry.transform(BitBoard.legalMoves(dark, light), symmetry),
+                        BitBoard.legalMoves(Symmetry.transform(dark, symmetry), Symmetry.transform(light, symmetry)));
+            }
+        }
+    }
+
+    @Test
+    public void allImagesShareOneCanonicalPosition() {
+        Random random = new Random(3);
+
+        for (int sample = 0; sample < SAMPLES; sample++) {
+            long dark = random.nextLong() & random.nextLong();
+            long light = random.nextLong() & ~dark;
+            if (sample % 4 == 0) {
+                // Symmetric dark masks make the light mask break the tie
+                dark |= Symmetry.transform(dark, Symmetry.ROTATE_180);
+                light &= ~dark;
+            }
+
+            Position canonical = Symmetry.canonical(new Position(dark, light, Constants.DARK_SIDE));
+            for (int symmetry = 0; symmetry < Symmetry.SYMMETRIES; symmetry++) {
+                Position image = new Position(Symmetry.transform(dark, symmetry), Symmetry.transform(light, symmetry),
+                        Constants.DARK_SIDE);
+                Position imageCanonical = Symmetry.canonical(image);
+
+                assertEquals(canonical.getDark(), imageCanonical.getDark());
+                assertEquals(canonical.getLight(), imageCanonical.getLight());
+                assertTrue(canonical.getDark() <= image.getDark());
+            }
+        }
+    }
+
+    @Test
+    public void canonicalSquareMergesSymmetricMoves() {
+        int first = Symmetry.getCanonicalSquare(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT, BitBoard.square(2, 3));
+
+        // The four first moves of the game are one move up to symmetry
+        for (long moves = BitBoard.legalMoves(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT); moves != 0; moves &= moves - 1) {
+            int move = Long.numberOfTrailingZeros(moves);
+            assertEquals(first, Symmetry.getCanonicalSquare(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT, move));
+        }
+
+        // Without a symmetry that keeps the position, every square stands for itself
+        long dark = BitBoard.INITIAL_DARK | BitBoard.mask(0, 1);
+        for (int square = 0; square < SQUARES; square++) {
+            assertEquals(square, Symmetry.getCanonicalSquare(dark, BitBoard.INITIAL_LIGHT, square));
+        }
+    }
+
+    private static final int SAMPLES = 2000;
+    private static final int SQUARES = 64;
+}
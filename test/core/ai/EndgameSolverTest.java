@@ -0,0 +1,119 @@
+package core.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import core.BitBoard;
+import core.Position;
+import core.RandomGames;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Checks the solver against a plain negamax over every move on positions
+ * small enough to search completely, which covers the dedicated routines
+ * for the last empties as well as the deeper search with its table.
+ */
+public class EndgameSolverTest
+{
+    @Test
+    public void scoresMatchPlainNegamax() {
+        Random random = new Random(1);
+        EndgameSolver solver = new EndgameSolver(1);
+
+        for (int empties = 1; empties <= MAX_EMPTIES; empties++) {
+            for (int sample = 0; sample < SAMPLES; sample++) {
+                Position position = randomPosition(random, empties);
+                long player = position.getPlayer();
+                long opponent = position.getOpponent();
+
+                SearchResult result = solver.solve(player, opponent);
+                int expected = negamax(player, opponent, false);
+                assertEquals(empties + " empties", expected, result.getScore());
+                assertEquals(empties, result.getDepth());
+
+                // The move must be legal and reach the score
+                long moves = BitBoard.legalMoves(player, opponent);
+                int move = result.getBestMove();
+                if (moves == 0) {
+                    assertEquals(SearchEngine.PASS, move);
+                } else {
+                    assertTrue((moves & (1L << move)) != 0);
+                    long flips = BitBoard.flips(move, player, opponent);
+                    assertEquals(expected, -negamax(opponent & ~flips, player | flips | (1L << move), false));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void fullBoardScoresTheDiscs() {
+        long player = 0x00FF00FF00FF00FFL;
+        long opponent = ~player;
+
+        assertEquals(0, new EndgameSolver(1).solve(player, opponent).getScore());
+    }
+
+    @Test
+    public void timeLimitGivesUp() {
+        EndgameSolver solver = new EndgameSolver(1);
+        solver.setTimeLimitMillis(1);
+
+        // Twenty-six empties cannot be solved in a millisecond
+        Position position = randomPosition(new Random(2), 26);
+        assertNull(solver.solve(position.getPlayer(), position.getOpponent()));
+
+        // Without a limit the same solver still solves small positions
+        solver.setTimeLimitMillis(0);
+        Position small = randomPosition(new Random(3), 6);
+        assertEquals(negamax(small.getPlayer(), small.getOpponent(), false),
+                solver.solve(small.getPlayer(), small.getOpponent()).getScore());
+    }
+
+    /**
+     * @param player the discs of the player to move
+     * @param opponent the discs of the opponent
+     * @param passed whether the previous move was a pass
+     * @return the final disc difference with best play, trying every move
+     */
+    private static int negamax(long player, long opponent, boolean passed) {
+        long moves = BitBoard.legalMoves(player, opponent);
+
+        if (moves == 0) {
+            if (passed) {
+                return Long.bitCount(player) - Long.bitCount(opponent);
+            }
+            return -negamax(opponent, player, true);
+        }
+
+        int best = Integer.MIN_VALUE;
+        for (; moves != 0; moves &= moves - 1) {
+            int move = Long.numberOfTrailingZeros(moves);
+            long flips = BitBoard.flips(move, player, opponent);
+            best = Math.max(best, -negamax(opponent & ~flips, player | flips | (1L << move), false));
+        }
+
+        return best;
+    }
+
+    /**
+     * Play random moves from the start until a number of empties is left
+     *
+     * @param random the source of randomness
+     * @param empties the number of empties wanted
+     * @return the position
+     */
+    private static Position randomPosition(Random random, int empties) {
+        while (true) {
+            // A game that ended early is no use; try another
+            Position position = RandomGames.play(random, Long.bitCount(Position.INITIAL.getEmpty()) - empties);
+            if (position != null) {
+                return position;
+            }
+        }
+    }
+
+    private static final int MAX_EMPTIES = 10;
+    private static final int SAMPLES = 30;
+}
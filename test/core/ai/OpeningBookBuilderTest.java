@@ -0,0 +1,101 @@
+package core.ai;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import core.BitBoard;
+import core.Constants;
+import core.RandomGames;
+import core.Symmetry;
+import core.Transcript;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that a book built through many small run files is the same as one
+ * built in memory, and that the book reads back the most played moves.
+ */
+public class OpeningBookBuilderTest
+{
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("opening-book");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void spilledRunsGiveTheSameBook() throws IOException {
+        Random random = new Random(1);
+        List<int[]> games = new ArrayList<>();
+        for (int game = 0; game < GAMES; game++) {
+            games.add(RandomGames.play(random));
+        }
+
+        OpeningBookBuilder inMemory = new OpeningBookBuilder(10, 2);
+        OpeningBookBuilder spilled = new OpeningBookBuilder(10, 2);
+        spilled.setMaxPositionsInMemory(50);
+        for (int[] game : games) {
+            inMemory.addGame(game);
+            spilled.addGame(game);
+        }
+
+        Path inMemoryFile = directory.resolve("memory.book");
+        Path spilledFile = directory.resolve("spilled.book");
+        long written = inMemory.write(inMemoryFile);
+        assertEquals(written, spilled.write(spilledFile));
+        assertEquals(inMemory.getPositionCount(), spilled.getPositionCount());
+        assertTrue(written > 0 && written < inMemory.getPositionCount());
+        assertArrayEquals(Files.readAllBytes(inMemoryFile), Files.readAllBytes(spilledFile));
+
+        OpeningBook book = new OpeningBook(spilledFile);
+        assertEquals(written, book.size());
+        for (long index = 1; index < book.size(); index++) {
+            assertTrue(book.getKey(index - 1) < book.getKey(index));
+        }
+    }
+
+    @Test
+    public void mostPlayedMoveIsKept() throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder(2, 2);
+        builder.setMaxPositionsInMemory(1);
+        builder.addGame(Transcript.parse("f5d6"));
+        builder.addGame(Transcript.parse("f5f6"));
+        builder.addGame(Transcript.parse("f5d6"));
+
+        Path file = directory.resolve("small.book");
+        assertEquals(2, builder.write(file));
+        assertEquals(2, builder.getPositionCount());
+
+        // The four first moves are one move up to symmetry, so the book may give any of them
+        OpeningBook book = new OpeningBook(file);
+        int move = book.lookup(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT, Constants.DARK_SIDE);
+        assertTrue((BitBoard.legalMoves(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT) & (1L << move)) != 0);
+
+        int symmetry = Symmetry.getCanonicalSymmetry(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT);
+        long key = OpeningBook.key(Symmetry.transform(BitBoard.INITIAL_DARK, symmetry),
+                Symmetry.transform(BitBoard.INITIAL_LIGHT, symmetry), Constants.DARK_SIDE);
+        assertEquals(3, book.getCount(book.find(key)));
+    }
+
+    private static final int GAMES = 500;
+
+    private Path directory;
+}
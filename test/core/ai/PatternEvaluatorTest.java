@@ -0,0 +1,169 @@
+package core.ai;
+
+import static org.junit.Assert.assertEquals;
+
+import core.BitBoard;
+import core.Constants;
+import core.Position;
+import core.RandomGames;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Checks that the pattern indices kept up to date by play and undo give the
+ * same scores as reading the position from scratch. Random weights make
+ * almost any wrong index show up as a different score.
+ */
+public class PatternEvaluatorTest
+{
+    @Test
+    public void playMatchesFullRecompute() {
+        Random random = new Random(1);
+        short[][][] weights = randomWeights(random);
+        PatternEvaluator incremental = new PatternEvaluator(weights);
+        PatternEvaluator fresh = new PatternEvaluator(weights);
+
+        for (int game = 0; game < GAMES; game++) {
+            Position position = Position.INITIAL;
+            incremental.setPosition(position.getDark(), position.getLight());
+
+            for (int move : RandomGames.play(random)) {
+                if (position.legalMoves() == 0) {
+                    position = position.pass();
+                }
+                incremental.play(move, BitBoard.flips(move, position.getPlayer(), position.getOpponent()), position.getSide());
+                position = position.play(move);
+
+                long dark = position.getDark();
+                long light = position.getLight();
+                fresh.setPosition(dark, light);
+                assertEquals(fresh.evaluate(dark, light), incremental.evaluate(dark, light));
+                assertEquals(fresh.evaluate(light, dark), incremental.evaluate(light, dark));
+            }
+        }
+    }
+
+    @Test
+    public void undoRestoresEveryScore() {
+        Random random = new Random(2);
+        short[][][] weights = randomWeights(random);
+        PatternEvaluator evaluator = new PatternEvaluator(weights);
+
+        for (int sample = 0; sample < GAMES; sample++) {
+            Position position = randomPosition(random);
+            long dark = position.getPlayer();
+            long light = position.getOpponent();
+            evaluator.setPosition(dark, light);
+            int before = evaluator.evaluate(dark, light);
+
+            // Play every legal move of dark and take it back again
+            for (long moves = BitBoard.legalMoves(dark, light); moves != 0; moves &= moves - 1) {
+                int move = Long.numberOfTrailingZeros(moves);
+                long flips = BitBoard.flips(move, dark, light);
+                evaluator.play(move, flips, Constants.DARK_SIDE);
+                evaluator.undo(move, flips, Constants.DARK_SIDE);
+                assertEquals(before, evaluator.evaluate(dark, light));
+            }
+        }
+    }
+
+    @Test
+    public void untrackedPositionLeavesTrackingAlone() {
+        Random random = new Random(3);
+        short[][][] weights = randomWeights(random);
+        PatternEvaluator evaluator = new PatternEvaluator(weights);
+        PatternEvaluator fresh = new PatternEvaluator(weights);
+
+        for (int sample = 0; sample < GAMES; sample++) {
+            Position tracked = randomPosition(random);
+            Position other = randomPosition(random);
+            evaluator.setPosition(tracked.getPlayer(), tracked.getOpponent());
+
+            // The position nobody told the evaluator about is scored with its player as dark
+            fresh.setPosition(other.getOpponent(), other.getPlayer());
+            assertEquals(fresh.evaluate(other.getOpponent(), other.getPlayer()),
+                    evaluator.evaluate(other.getOpponent(), other.getPlayer()));
+
+            long moves = tracked.legalMoves();
+            if (moves == 0) {
+                continue;
+            }
+            int move = RandomGames.pick(moves, random);
+            long flips = BitBoard.flips(move, tracked.getPlayer(), tracked.getOpponent());
+            evaluator.play(move, flips, Constants.DARK_SIDE);
+            long dark = tracked.getPlayer() | flips | (1L << move);
+            long light = tracked.getOpponent() & ~flips;
+
+            fresh.setPosition(dark, light);
+            assertEquals(fresh.evaluate(light, dark), evaluator.evaluate(light, dark));
+        }
+    }
+
+    @Test
+    public void computeIndicesReadsBaseThreeDigits() {
+        int[] indices = new int[PatternEvaluator.INSTANCES];
+        PatternEvaluator.computeIndices(0, 0, indices);
+        for (int index : indices) {
+            assertEquals(0, index);
+        }
+
+        // A full board of digit 1 is 11...1 in base 3, and of digit 2 twice that
+        PatternEvaluator.computeIndices(-1L, 0, indices);
+        int[] twos = new int[PatternEvaluator.INSTANCES];
+        PatternEvaluator.computeIndices(0, -1L, twos);
+        for (int instance = 0; instance < PatternEvaluator.INSTANCES; instance++) {
+            int length = PatternEvaluator.INSTANCE_SQUARES[instance].length;
+            assertEquals((pow3(length) - 1) / 2, indices[instance]);
+            assertEquals(pow3(length) - 1, twos[instance]);
+            assertEquals(twos[instance], PatternEvaluator.swapDigits(indices[instance], length));
+        }
+    }
+
+    /**
+     * @param random the source of randomness
+     * @return weight tables of the right sizes filled with random values
+     */
+    private static short[][][] randomWeights(Random random) {
+        short[][][] weights = new short[PatternEvaluator.STAGES][PatternEvaluator.TABLES][];
+
+        for (int stage = 0; stage < PatternEvaluator.STAGES; stage++) {
+            for (int table = 0; table < PatternEvaluator.TABLES; table++) {
+                weights[stage][table] = new short[PatternEvaluator.getTableSize(table)];
+                for (int index = 0; index < weights[stage][table].length; index++) {
+                    weights[stage][table][index] = (short) (random.nextInt(2001) - 1000);
+                }
+            }
+        }
+
+        return weights;
+    }
+
+    /**
+     * The tests treat the side to move as dark, whichever color it is
+     *
+     * @param random the source of randomness
+     * @return the position after 10 to 49 random moves
+     */
+    private static Position randomPosition(Random random) {
+        while (true) {
+            Position position = RandomGames.play(random, 10 + random.nextInt(40));
+            if (position != null) {
+                return position;
+            }
+        }
+    }
+
+    /**
+     * @param exponent a small exponent
+     * @return 3 to the power of the exponent
+     */
+    private static int pow3(int exponent) {
+        int power = 1;
+        for (int digit = 0; digit < exponent; digit++) {
+            power *= 3;
+        }
+        return power;
+    }
+
+    private static final int GAMES = 100;
+}
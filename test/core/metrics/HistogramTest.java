@@ -0,0 +1,106 @@
+package core.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Checks that the buckets cover every non-negative value exactly once
+ * within the promised precision, and that percentiles read them back.
+ */
+public class HistogramTest
+{
+    @Test
+    public void bucketsAreContiguous() {
+        assertEquals(0, Histogram.lowestValue(0));
+
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            long lowest = Histogram.lowestValue(bucket);
+            long highest = Histogram.highestValue(bucket);
+
+            assertTrue("bucket " + bucket, lowest <= highest);
+            assertEquals(bucket, Histogram.bucket(lowest));
+            assertEquals(bucket, Histogram.bucket(highest));
+            if (bucket > 0) {
+                assertEquals(Histogram.highestValue(bucket - 1) + 1, lowest);
+            }
+        }
+
+        assertEquals(Long.MAX_VALUE, Histogram.highestValue(BUCKETS - 1));
+        assertEquals(BUCKETS - 1, Histogram.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        for (int value = 0; value < 16; value++) {
+            assertEquals(value, Histogram.lowestValue(Histogram.bucket(value)));
+            assertEquals(value, Histogram.highestValue(Histogram.bucket(value)));
+        }
+    }
+
+    @Test
+    public void bucketsStayWithinOneSixteenth() {
+        Random random = new Random(1);
+
+        for (int sample = 0; sample < SAMPLES; sample++) {
+            // Spread the samples over every magnitude
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            int bucket = Histogram.bucket(value);
+            long lowest = Histogram.lowestValue(bucket);
+            long highest = Histogram.highestValue(bucket);
+
+            assertTrue(lowest <= value && value <= highest);
+            assertTrue("value " + value, highest - lowest <= value / 16);
+        }
+    }
+
+    @Test
+    public void percentilesOfUniformValues() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500500, histogram.getSum());
+        assertEquals(500.5, histogram.getMean(), 0);
+        assertEquals(1000, histogram.getMax());
+        assertEquals(1000, histogram.getValueAtPercentile(1));
+
+        long median = histogram.getValueAtPercentile(0.5);
+        assertTrue("median " + median, median >= 500 && median <= 500 + 500 / 16);
+        long p99 = histogram.getValueAtPercentile(0.99);
+        assertTrue("p99 " + p99, p99 >= 990 && p99 <= 1000);
+    }
+
+    @Test
+    public void negativeValuesCountAsZero() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getSum());
+        assertEquals(0, histogram.getValueAtPercentile(1));
+    }
+
+    @Test
+    public void resetForgetsEverything() {
+        Histogram histogram = new Histogram();
+        histogram.record(12345);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getSum());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getMean(), 0);
+        assertEquals(0, histogram.getValueAtPercentile(0.5));
+
+        histogram.record(7);
+        assertEquals(7, histogram.getValueAtPercentile(0.5));
+    }
+
+    private static final int BUCKETS = 960;
+    private static final int SAMPLES = 100000;
+}
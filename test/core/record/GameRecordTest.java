@@ -0,0 +1,268 @@
+package core.record;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import core.Position;
+import core.RandomGames;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that records come back unchanged from their binary form, from a
+ * record stream and from an archive, including one whose last append was
+ * cut short.
+ */
+public class GameRecordTest
+{
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("game-records");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void bytesRoundTrip() {
+        for (GameRecord record : randomGames(new Random(1), GAMES)) {
+            assertEquals(record, GameRecord.fromBytes(record.toBytes()));
+        }
+    }
+
+    @Test
+    public void emptyAndNamedGamesRoundTrip() {
+        GameRecord empty = new GameRecord("", "", 2, 2, 0, 0, new int[0]);
+        assertEquals(empty, GameRecord.fromBytes(empty.toBytes()));
+
+        GameRecord named = new GameRecord("J\u00f6ns", "\u767d", 40, 24, 1500000000000L, 1500000600000L, new int[] { 19, 18 });
+        GameRecord copy = GameRecord.fromBytes(named.toBytes());
+        assertEquals("J\u00f6ns", copy.getDarkPlayer());
+        assertEquals("\u767d", copy.getLightPlayer());
+        assertEquals(1500000600000L, copy.getEndTime());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedBytesAreRejected() {
+        byte[] bytes = randomGames(new Random(2), 1).get(0).toBytes();
+        GameRecord.fromBytes(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+
+    @Test
+    public void transcriptRoundTrip() {
+        for (GameRecord record : randomGames(new Random(3), GAMES)) {
+            GameRecord converted = TranscriptConverter.fromTranscript(record.toTranscript());
+
+            assertEquals(record.toTranscript(), converted.toTranscript());
+            assertEquals(record.getDarkCount(), converted.getDarkCount());
+            assertEquals(record.getLightCount(), converted.getLightCount());
+        }
+    }
+
+    @Test
+    public void illegalTranscriptsAreRejected() {
+        // Dark plays twice although light has moves after f5
+        for (String transcript : new String[] { "f5d3", "f5c4", "f5f5", "e4" }) {
+            try {
+                TranscriptConverter.fromTranscript(transcript);
+                fail(transcript + " was accepted");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void importSkipsIllegalLines() throws IOException {
+        List<GameRecord> records = randomGames(new Random(7), 2);
+        Path transcripts = directory.resolve("games.txt");
+        Files.write(transcripts, Arrays.asList(records.get(0).toTranscript(), "f5d3", "# comment", "",
+                records.get(1).toTranscript()));
+
+        try (GameArchive archive = new GameArchive(directory.resolve("games.dat"))) {
+            TranscriptConverter converter = new TranscriptConverter();
+            assertEquals(2, converter.importTranscripts(transcripts, archive));
+            assertEquals(1, converter.getSkippedGames());
+
+            assertEquals(2, archive.size());
+            for (int number = 0; number < records.size(); number++) {
+                assertEquals(records.get(number).toTranscript(), archive.get(number).toTranscript());
+                assertEquals(records.get(number).getDarkCount(), archive.get(number).getDarkCount());
+            }
+        }
+    }
+
+    @Test
+    public void streamRoundTrip() throws IOException {
+        List<GameRecord> records = randomGames(new Random(4), GAMES);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (GameRecordWriter writer = new GameRecordWriter(bytes)) {
+            for (GameRecord record : records) {
+                writer.write(record);
+            }
+            assertEquals(records.size(), writer.getCount());
+        }
+
+        try (GameRecordReader reader = new GameRecordReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            for (GameRecord record : records) {
+                assertEquals(record, reader.read());
+            }
+            assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void archiveRoundTrip() throws IOException {
+        List<GameRecord> records = randomGames(new Random(5), GAMES);
+        Path file = directory.resolve("games.dat");
+
+        try (GameArchive archive = new GameArchive(file)) {
+            for (int number = 0; number < records.size(); number++) {
+                assertEquals(number, archive.append(records.get(number)));
+            }
+
+            // Buffered records can be read before they are flushed
+            assertEquals(records.get(GAMES - 1), archive.get(GAMES - 1));
+        }
+
+        try (GameArchive archive = new GameArchive(file)) {
+            assertEquals(records.size(), archive.size());
+            for (int number = records.size() - 1; number >= 0; number--) {
+                assertEquals(records.get(number), archive.get(number));
+            }
+
+            try (GameRecordReader reader = archive.reader()) {
+                for (GameRecord record : records) {
+                    assertEquals(record, reader.read());
+                }
+                assertNull(reader.read());
+            }
+        }
+    }
+
+    @Test
+    public void archiveRecoversFromACutShortAppend() throws IOException {
+        List<GameRecord> records = randomGames(new Random(6), GAMES);
+        Path file = directory.resolve("games.dat");
+
+        try (GameArchive archive = new GameArchive(file)) {
+            for (GameRecord record : records) {
+                archive.append(record);
+            }
+        }
+
+        // Lose the last two offsets and half of the last record, as if the process died mid-append
+        Path index = Paths.get(file + GameArchive.INDEX_SUFFIX);
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 2 * 8);
+        }
+        int lastLength = records.get(GAMES - 1).toBytes().length;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - lastLength / 2);
+        }
+
+        try (GameArchive archive = new GameArchive(file)) {
+            assertEquals(GAMES - 1, archive.size());
+            for (int number = 0; number < GAMES - 1; number++) {
+                assertEquals(records.get(number), archive.get(number));
+            }
+
+            // The archive is usable again after recovery
+            archive.append(records.get(GAMES - 1));
+            assertEquals(records.get(GAMES - 1), archive.get(GAMES - 1));
+        }
+    }
+
+    @Test
+    public void archiveDropsAnIndexedRecordThatWasCutShort() throws IOException {
+        List<GameRecord> records = randomGames(new Random(8), GAMES);
+        Path file = directory.resolve("games.dat");
+
+        try (GameArchive archive = new GameArchive(file)) {
+            for (GameRecord record : records) {
+                archive.append(record);
+            }
+        }
+
+        // The index holds every offset, but the data lost the end of the last record
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 20);
+        }
+        long size = Files.size(file);
+
+        try (GameArchive archive = new GameArchive(file)) {
+            assertEquals(GAMES - 1, archive.size());
+            assertEquals(records.get(GAMES - 2), archive.get(GAMES - 2));
+
+            // The record is written where the cut-short one started, leaving no hole
+            archive.append(records.get(GAMES - 1));
+            archive.flush();
+            assertEquals(records.get(GAMES - 1), archive.get(GAMES - 1));
+        }
+        assertEquals(size + 20, Files.size(file));
+
+        // Only the length of the last record survived
+        int lastLength = records.get(GAMES - 1).toBytes().length;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - lastLength + 1);
+        }
+        try (GameArchive archive = new GameArchive(file)) {
+            assertEquals(GAMES - 1, archive.size());
+            archive.append(records.get(GAMES - 1));
+        }
+
+        // And only one byte of the length
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - lastLength - 1);
+        }
+        try (GameArchive archive = new GameArchive(file)) {
+            assertEquals(GAMES - 1, archive.size());
+        }
+    }
+
+    /**
+     * @param random the source of randomness
+     * @param count the number of games
+     * @return records of games of random moves played to the end
+     */
+    private static List<GameRecord> randomGames(Random random, int count) {
+        List<GameRecord> records = new ArrayList<>();
+
+        for (int game = 0; game < count; game++) {
+            int[] moves = RandomGames.play(random);
+            Position end = RandomGames.replay(moves);
+            long start = 1600000000000L + random.nextInt(1000000000);
+            records.add(new GameRecord("dark" + game, "light" + game, Long.bitCount(end.getDark()),
+                    Long.bitCount(end.getLight()), start, start + random.nextInt(3600000), moves));
+        }
+
+        return records;
+    }
+
+    private static final int GAMES = 200;
+
+    private Path directory;
+}